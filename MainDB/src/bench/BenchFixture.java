@@ -0,0 +1,92 @@
+package bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The rows every database benchmark works against: one category, one product with a single
+ * deeply stocked size, a customer and a cashier, plus a shopper whose cart only the add-to-cart
+ * case grows so it never leaks into checkouts. Created once and reused on later runs.
+ */
+final class BenchFixture {
+
+    static final String PRODUCT_CODE = "PBENCH1";
+    static final String SIZE = "M";
+    static final int STOCK = 10_000_000;
+
+    final int categoryId;
+    /** Category with the most products, the heaviest product listing. */
+    final int busiestCategoryId;
+    final int productId;
+    final int customerId;
+    final int shopperId;
+    final int cashierId;
+
+    private BenchFixture(int categoryId, int busiestCategoryId, int productId, int customerId, int shopperId,
+                         int cashierId) {
+        this.categoryId = categoryId;
+        this.busiestCategoryId = busiestCategoryId;
+        this.productId = productId;
+        this.customerId = customerId;
+        this.shopperId = shopperId;
+        this.cashierId = cashierId;
+    }
+
+    static BenchFixture prepare(Connection conn) throws SQLException {
+        int categoryId = findOrInsert(conn,
+                "SELECT id FROM categories WHERE name = 'Benchmark'",
+                "INSERT INTO categories(name, active_status) VALUES('Benchmark', 1)");
+        int productId = findOrInsert(conn,
+                "SELECT id FROM products WHERE product_code = '" + PRODUCT_CODE + "'",
+                "INSERT INTO products(product_code, name, price, stock, category_id) VALUES('" + PRODUCT_CODE
+                        + "', 'Benchmark Polo', 450.00, 0, " + categoryId + ")");
+        findOrInsert(conn,
+                "SELECT id FROM product_sizes WHERE product_id = " + productId + " AND size = '" + SIZE + "'",
+                "INSERT INTO product_sizes(product_id, size, stock, damaged, critical_stock) VALUES("
+                        + productId + ", '" + SIZE + "', 0, 0, 10)");
+        int customerId = findOrInsert(conn,
+                "SELECT id FROM users WHERE username = 'bench_customer'",
+                "INSERT INTO users(username, password, role, active_status) VALUES('bench_customer', 'bench', 'USER', 1)");
+        int shopperId = findOrInsert(conn,
+                "SELECT id FROM users WHERE username = 'bench_shopper'",
+                "INSERT INTO users(username, password, role, active_status) VALUES('bench_shopper', 'bench', 'USER', 1)");
+        int cashierId = findOrInsert(conn,
+                "SELECT id FROM users WHERE username = 'bench_cashier'",
+                "INSERT INTO users(username, password, role, active_status) VALUES('bench_cashier', 'bench', 'SALESMANAGER', 1)");
+
+        // Start from an empty checkout cart and top the stock back up so long runs never hit a shortfall;
+        // the product total follows the size through its trigger
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM cart WHERE user_id = ?")) {
+            ps.setInt(1, customerId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE product_sizes SET stock = ? WHERE product_id = ? AND size = ?")) {
+            ps.setInt(1, STOCK);
+            ps.setInt(2, productId);
+            ps.setString(3, SIZE);
+            ps.executeUpdate();
+        }
+        int busiestCategoryId = categoryId;
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(
+                "SELECT category_id FROM products WHERE active_status = 1 GROUP BY category_id ORDER BY COUNT(*) DESC LIMIT 1")) {
+            if (rs.next()) busiestCategoryId = rs.getInt(1);
+        }
+        return new BenchFixture(categoryId, busiestCategoryId, productId, customerId, shopperId, cashierId);
+    }
+
+    private static int findOrInsert(Connection conn, String find, String insert) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery(find)) {
+                if (rs.next()) return rs.getInt(1);
+            }
+            st.executeUpdate(insert, Statement.RETURN_GENERATED_KEYS);
+            try (ResultSet keys = st.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package bench;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import dao.CartDao;
+import dao.InventoryLogDao;
+import dao.Keyset;
+import dao.ProductDao;
+import dao.SalesDao;
+import dao.SalesRollupDao;
+import db.ConnectionPool;
+import db.IdAllocator;
+import db.SchemaMigrator;
+import service.CatalogCache;
+import service.CheckoutEngine;
+import service.ReceiptRenderer;
+import service.SaleCommitPipeline;
+import service.Session;
+
+/**
+ * Benchmarks for the paths behind add to cart, submit quotation, completing a sale, the sales
+ * dashboard and receipt rendering. The menus themselves read from the console, so each case drives
+ * the same service and DAO calls the menu action makes.
+ *
+ * Database cases run against -Dusms.bench.url (a separate usms_bench database by default, created
+ * and migrated on first use) and are skipped when it cannot be reached; rendering needs no database.
+ * Pass benchmark name prefixes as arguments to run a subset, e.g. {@code bench.BenchMain cart render}.
+ */
+public final class BenchMain {
+
+    static final String RESET = "\u001B[0m";
+    static final String YELLOW = "\u001B[33m";
+
+    static final String URL = System.getProperty("usms.bench.url",
+            "jdbc:mysql://localhost:3306/usms_bench?createDatabaseIfNotExist=true"
+                    + "&useServerPrepStmts=true&cachePrepStmts=true&rewriteBatchedStatements=true");
+    static final String USER = System.getProperty("usms.bench.user", "root");
+    static final String PASS = System.getProperty("usms.bench.pass", "");
+
+    static final int PAGE_SIZE = 20;
+
+    private static final AtomicLong invoiceSeq = new AtomicLong(System.currentTimeMillis() * 1_000);
+
+    private BenchMain() {}
+
+    public static void main(String[] args) throws Exception {
+        List<Harness.Case> cases = new ArrayList<>(renderCases());
+
+        try (ConnectionPool pool = new ConnectionPool(URL, USER, PASS)) {
+            BenchFixture fixture = null;
+            try (Connection conn = pool.getConnection()) {
+                SchemaMigrator.migrate(conn);
+                fixture = BenchFixture.prepare(conn);
+            } catch (SQLException e) {
+                System.out.println(YELLOW + "Skipping database benchmarks, " + URL + " is unavailable: "
+                        + e.getMessage() + RESET);
+            }
+            if (fixture != null) cases.addAll(databaseCases(pool, fixture));
+
+            Harness.printHeader();
+            for (Harness.Case c : cases) {
+                if (selected(c.name(), args)) Harness.print(Harness.run(c));
+            }
+        } finally {
+            ReceiptRenderer.shutdown(10_000);
+        }
+    }
+
+    private static boolean selected(String name, String[] prefixes) {
+        if (prefixes.length == 0) return true;
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static String nextInvoice() {
+        return "B" + invoiceSeq.incrementAndGet();
+    }
+
+    // ==========================================================
+    // RENDERING
+    // ==========================================================
+    private static List<Harness.Case> renderCases() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<ReceiptRenderer.InvoiceLine> invoiceLines = new ArrayList<>();
+        List<SaleCommitPipeline.Line> receiptLines = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            invoiceLines.add(new ReceiptRenderer.InvoiceLine("Benchmark Polo Long Sleeve Variant " + i, "M", i, 450.0, 450.0 * i));
+            receiptLines.add(new SaleCommitPipeline.Line("Benchmark Polo Long Sleeve Variant " + i, "M", i, 450.0 * i));
+        }
+        ReceiptRenderer.Invoice invoice = new ReceiptRenderer.Invoice("BENCH", "bench_customer", now, invoiceLines, 6750.0);
+        SaleCommitPipeline.Receipt receipt = new SaleCommitPipeline.Receipt(0, "bench_customer", "bench_cashier",
+                now, receiptLines, 6750.0);
+
+        return List.of(
+                new Harness.Case("render.invoice", () -> ReceiptRenderer.renderInvoice(invoice).join()),
+                new Harness.Case("render.receipt", () -> ReceiptRenderer.renderReceipt("BENCH", "Cash", receipt).join()));
+    }
+
+    // ==========================================================
+    // DATABASE PATHS
+    // ==========================================================
+    private static List<Harness.Case> databaseCases(ConnectionPool pool, BenchFixture f) {
+        String[] pendingInvoice = new String[1];
+
+        // CartManager.addToCart: cached product, size and stock lookups, then the cart upsert
+        Harness.Case addToCart = new Harness.Case("cart.add", () -> {
+            CatalogCache.product(pool, BenchFixture.PRODUCT_CODE);
+            CatalogCache.sizesOf(pool, f.productId);
+            CatalogCache.sizeStock(pool, f.productId, BenchFixture.SIZE);
+            pool.run(conn -> CartDao.addQuantity(conn, f.shopperId, f.productId, BenchFixture.SIZE, 1));
+        });
+
+        // CartManager.submitQuotation: cart read and the checkout transaction
+        Harness.Case checkout = new Harness.Case("checkout.submit",
+                () -> pool.run(conn -> CartDao.addQuantity(conn, f.customerId, f.productId, BenchFixture.SIZE, 1)),
+                () -> pool.run(conn -> CheckoutEngine.checkout(conn, f.customerId, BenchMain::nextInvoice,
+                        CartDao.linesOf(conn, f.customerId))));
+
+        // SalesManager.processPendingQuotation: a fresh pending quotation per op, completed as a sale
+        Session cashier = new Session(f.cashierId, "bench_cashier", "SALESMANAGER");
+        Harness.Case saleCommit = new Harness.Case("sale.commit",
+                () -> pool.run(conn -> {
+                    CartDao.addQuantity(conn, f.customerId, f.productId, BenchFixture.SIZE, 1);
+                    pendingInvoice[0] = CheckoutEngine.checkout(conn, f.customerId, BenchMain::nextInvoice,
+                            CartDao.linesOf(conn, f.customerId)).invoiceNumber();
+                }),
+                () -> pool.run(conn -> SaleCommitPipeline.commit(conn, pendingInvoice[0], "Cash", cashier)));
+
+        // SalesManager.viewSalesDashboard: revenue by period and top sellers from the rollups
+        Harness.Case dashboard = new Harness.Case("dashboard.read", () -> pool.run(conn -> {
+            SalesRollupDao.revenueNow(conn);
+            SalesRollupDao.topProducts(conn, 5);
+        }));
+
+        // Read-only viewers that slow down with volume (see Seeder): a category listing and the first
+        // page of each history screen
+        Harness.Case category = new Harness.Case("catalog.category",
+                () -> pool.run(conn -> ProductDao.findActiveByCategory(conn, f.busiestCategoryId)));
+        Harness.Case salesHistory = new Harness.Case("history.sales",
+                () -> pool.run(conn -> SalesDao.page(conn, SalesDao.Filter.NONE, Keyset.NEWEST, PAGE_SIZE)));
+        Harness.Case inventoryHistory = new Harness.Case("history.inventory",
+                () -> pool.run(conn -> InventoryLogDao.page(conn, InventoryLogDao.Filter.NONE, Keyset.NEWEST, PAGE_SIZE)));
+
+        // CheckoutService and CatalogService.addProduct: one code from the current block, a refill every BLOCK_SIZE
+        Harness.Case nextId = new Harness.Case("ids.next", () -> IdAllocator.next(pool, IdAllocator.Sequence.INVOICE));
+
+        return List.of(addToCart, checkout, saleCommit, dashboard, category, salesHistory, inventoryHistory, nextId);
+    }
+}
@@ -0,0 +1,175 @@
+package bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Runs one benchmark case the way a JMH run would, in miniature: timed warmup iterations that are
+ * thrown away, then measured iterations. Each op is timed on its own, per-op setup runs outside the
+ * timer, and GC activity and bytes allocated by all threads are sampled around the measured phase.
+ * A case with per-op setup has its allocation sampled around each op instead, so what the setup
+ * allocates is not charged to the op.
+ *
+ * Tuned with -Dusms.bench.warmupIterations, -Dusms.bench.iterations and -Dusms.bench.iterationMs.
+ * With -Dusms.bench.csv=path every result is also appended to that file for comparing runs.
+ */
+final class Harness {
+
+    static final String RESET = "\u001B[0m";
+    static final String CYAN = "\u001B[36m";
+
+    @FunctionalInterface
+    interface Op {
+        void run() throws Exception;
+    }
+
+    /** A named operation with an optional untimed step before every invocation. */
+    record Case(String name, Op beforeEach, Op op) {
+        Case(String name, Op op) {
+            this(name, null, op);
+        }
+    }
+
+    record Result(String name, long ops, double opsPerSec, double avgMicros, double p50Micros, double p99Micros,
+                  double maxMicros, long bytesPerOp, long gcCount, long gcMillis) {}
+
+    static final int WARMUP_ITERATIONS = Integer.getInteger("usms.bench.warmupIterations", 3);
+    static final int ITERATIONS = Integer.getInteger("usms.bench.iterations", 5);
+    static final long ITERATION_MS = Long.getLong("usms.bench.iterationMs", 1_000L);
+    static final String CSV = System.getProperty("usms.bench.csv");
+
+    // Latency samples are preallocated so recording them does not show up in bytes/op
+    private static final int MAX_SAMPLES = 1 << 20;
+
+    private Harness() {}
+
+    static Result run(Case c) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) iterate(c, null, 0, 0);
+        long samplerBytes = c.beforeEach() == null ? 0 : samplerBytes();
+
+        long[] samples = new long[MAX_SAMPLES];
+        int count = 0;
+        long ops = 0;
+        long elapsedNanos = 0;
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long bytesBefore = allocatedBytes();
+        long opBytes = 0;
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            long[] iteration = iterate(c, samples, count, samplerBytes);
+            ops += iteration[0];
+            elapsedNanos += iteration[1];
+            opBytes += iteration[2];
+            count = (int) Math.min(MAX_SAMPLES, count + iteration[0]);
+        }
+
+        long bytes = c.beforeEach() == null ? allocatedBytes() - bytesBefore : opBytes;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+
+        return new Result(c.name(), ops,
+                ops == 0 ? 0 : ops / (elapsedNanos / 1e9),
+                ops == 0 ? 0 : elapsedNanos / 1e3 / ops,
+                percentile(sorted, 0.50), percentile(sorted, 0.99),
+                count == 0 ? 0 : sorted[count - 1] / 1e3,
+                ops == 0 ? 0 : bytes / ops,
+                gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+    }
+
+    // Returns {ops, timed nanos, bytes allocated by the ops}; samples are recorded from offset when an
+    // array is given. Op allocation is only sampled for cases with setup, less what a sample costs.
+    private static long[] iterate(Case c, long[] samples, int offset, long samplerBytes) throws Exception {
+        long ops = 0;
+        long timed = 0;
+        long bytes = 0;
+        long deadline = System.nanoTime() + ITERATION_MS * 1_000_000;
+        while (System.nanoTime() < deadline) {
+            long bytesBefore = 0;
+            if (c.beforeEach() != null) {
+                c.beforeEach().run();
+                if (samples != null) bytesBefore = allocatedBytes();
+            }
+            long start = System.nanoTime();
+            c.op().run();
+            long nanos = System.nanoTime() - start;
+            if (c.beforeEach() != null && samples != null) {
+                bytes += Math.max(0, allocatedBytes() - bytesBefore - samplerBytes);
+            }
+            timed += nanos;
+            if (samples != null && offset + ops < samples.length) samples[(int) (offset + ops)] = nanos;
+            ops++;
+        }
+        return new long[] { ops, timed, bytes };
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e3;
+    }
+
+    // ==========================================================
+    // PROFILING
+    // ==========================================================
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) total += Math.max(gc.getCollectionCount(), 0);
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) total += Math.max(gc.getCollectionTime(), 0);
+        return total;
+    }
+
+    // What one allocatedBytes() call counts of its own allocation; the least of a few back-to-back pairs
+    private static long samplerBytes() {
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 16; i++) {
+            long before = allocatedBytes();
+            least = Math.min(least, allocatedBytes() - before);
+        }
+        return Math.max(0, least);
+    }
+
+    // Summed over every live thread so work handed to pools (receipt rendering) is counted too
+    private static long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemoryEnabled()) {
+            return 0;
+        }
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) total += Math.max(bytes, 0);
+        return total;
+    }
+
+    // ==========================================================
+    // REPORTING
+    // ==========================================================
+    static void printHeader() {
+        System.out.printf(CYAN + "%-24s %9s %10s %10s %10s %10s %10s %12s %5s %7s%n" + RESET,
+                "Benchmark", "Ops", "Ops/s", "Avg µs", "p50 µs", "p99 µs", "Max µs", "Alloc B/op", "GCs", "GC ms");
+    }
+
+    static void print(Result r) {
+        System.out.printf("%-24s %9d %10.1f %10.1f %10.1f %10.1f %10.1f %12d %5d %7d%n",
+                r.name(), r.ops(), r.opsPerSec(), r.avgMicros(), r.p50Micros(), r.p99Micros(), r.maxMicros(),
+                r.bytesPerOp(), r.gcCount(), r.gcMillis());
+        if (CSV != null) appendCsv(r);
+    }
+
+    private static void appendCsv(Result r) {
+        try (PrintWriter out = new PrintWriter(new FileWriter(CSV, true))) {
+            out.printf("%d,%s,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%d,%d%n", System.currentTimeMillis(), r.name(), r.ops(),
+                    r.opsPerSec(), r.avgMicros(), r.p50Micros(), r.p99Micros(), r.maxMicros(),
+                    r.bytesPerOp(), r.gcCount(), r.gcMillis());
+        } catch (IOException e) {
+            System.out.println("Could not append to " + CSV + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import dao.SalesRollupDao;
+import db.ConnectionPool;
+import db.SchemaMigrator;
+
+/**
+ * Fills the benchmark database with production-sized synthetic data: categories, products with
+ * XS..XXXL sizes, users and cashiers, carts, years of quotations with their items, sales and
+ * inventory_log history. Then it runs {@link BenchMain} against the result.
+ *
+ * Every table is split into ranges that a pool of writer threads inserts in parallel, each range
+ * on its own connection with JDBC batches that rewriteBatchedStatements turns into multi-row
+ * INSERTs, committed once per batch. Rows that other rows point to get explicit ids above the
+ * current maximum, so writers never wait on each other and seeding can be repeated on top of an
+ * existing dataset. Product popularity follows a Zipf curve, so a few products take most sales.
+ *
+ * Scale with -Dusms.seed.* properties: products, categories, users, carts, quotations, sales,
+ * inventoryLog, years, skew (Zipf exponent, 0 = uniform), threads, batchSize, seed (for prices and
+ * popularity), and time=false to skip the benchmark run afterwards.
+ */
+public final class Seeder {
+
+    static final String RESET = "\u001B[0m";
+    static final String GREEN = "\u001B[32m";
+    static final String CYAN = "\u001B[36m";
+
+    static final int PRODUCTS = Integer.getInteger("usms.seed.products", 20_000);
+    static final int CATEGORIES = Integer.getInteger("usms.seed.categories", 40);
+    static final int USERS = Integer.getInteger("usms.seed.users", 5_000);
+    static final int CARTS = Integer.getInteger("usms.seed.carts", 1_000);
+    static final int QUOTATIONS = Integer.getInteger("usms.seed.quotations", 300_000);
+    static final int SALES = Integer.getInteger("usms.seed.sales", 2_000_000);
+    static final int INVENTORY_LOG = Integer.getInteger("usms.seed.inventoryLog", 2_000_000);
+    static final int YEARS = Integer.getInteger("usms.seed.years", 3);
+    static final double SKEW = Double.parseDouble(System.getProperty("usms.seed.skew", "1.1"));
+    static final int THREADS = Integer.getInteger("usms.seed.threads", Runtime.getRuntime().availableProcessors());
+    static final int BATCH_SIZE = Integer.getInteger("usms.seed.batchSize", 1_000);
+    static final long SEED = Long.getLong("usms.seed.seed", 42L);
+    static final boolean TIME = Boolean.parseBoolean(System.getProperty("usms.seed.time", "true"));
+
+    static final String[] SIZES = { "XS", "S", "M", "L", "XL", "XXL", "XXXL" };
+    static final String[] PAYMENT_METHODS = { "Cash", "GCash" };
+    static final String[] CHANGE_TYPES = { "RESTOCK", "SALE", "SALE", "SALE", "ADD", "EDIT" };
+
+    // Codes the application generates continue above the seeded ones
+    static final String ADVANCE_SEQUENCE = "UPDATE id_sequences SET next_value = GREATEST(next_value, ?) WHERE name = ?";
+    // Checkout takes a pending quotation's units off its sizes and expiry gives them back, so the
+    // seeded pending ones hold theirs too. A size seeded with less than is reserved is taken as having
+    // had exactly enough, and is left at 0.
+    static final String RESERVE_PENDING = """
+            UPDATE product_sizes ps
+            JOIN (SELECT qi.product_id, qi.size, SUM(qi.quantity) AS quantity
+                  FROM quotations q JOIN quotation_items qi ON qi.quotation_id = q.id
+                  WHERE q.status = 'PENDING' AND q.id > ?
+                  GROUP BY qi.product_id, qi.size) r ON r.product_id = ps.product_id AND r.size = ps.size
+            SET ps.stock = GREATEST(ps.stock, r.quantity) - r.quantity
+            """;
+
+    // One cashier per this many users
+    private static final int USERS_PER_CASHIER = 100;
+    private static final long SPAN_MS = TimeUnit.DAYS.toMillis(365L) * YEARS;
+    // Quotations younger than this stay PENDING, like ones a cashier has not reached yet
+    private static final long PENDING_WINDOW_MS = TimeUnit.DAYS.toMillis(1);
+
+    @FunctionalInterface
+    interface RowWriter {
+        /** Binds the parameters of row {@code n} (0-based within the table) and adds it to the batch. */
+        void add(PreparedStatement ps, long n, ThreadLocalRandom random) throws SQLException;
+    }
+
+    /** One table's worth of generated rows. */
+    record Table(String name, String insert, long rows, RowWriter writer) {}
+
+    // Ids handed out start above what is already there
+    private static int categoryBase;
+    private static int productBase;
+    private static int userBase;
+    private static int quotationBase;
+
+    private static double[] prices;
+    private static double[] popularity;
+    private static final long now = System.currentTimeMillis();
+
+    private Seeder() {}
+
+    public static void main(String[] args) throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(BenchMain.URL, BenchMain.USER, BenchMain.PASS)) {
+            try (Connection conn = pool.getConnection()) {
+                SchemaMigrator.migrate(conn);
+                categoryBase = maxId(conn, "categories");
+                productBase = maxId(conn, "products");
+                userBase = maxId(conn, "users");
+                quotationBase = maxId(conn, "quotations");
+            }
+            prepareDistributions();
+
+            long start = System.currentTimeMillis();
+            seed(pool, tables());
+            try (Connection conn = pool.getConnection()) {
+                reservePending(conn);
+                advanceSequence(conn, "product_code", 1_000_000L + productBase + PRODUCTS + 1);
+                advanceSequence(conn, "invoice", 1_000_000L + quotationBase + QUOTATIONS + 1);
+            }
+
+            System.out.print("Rebuilding sales rollups... ");
+            long rollupStart = System.currentTimeMillis();
+            try (Connection conn = pool.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    SalesRollupDao.backfill(conn);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+            System.out.println((System.currentTimeMillis() - rollupStart) + " ms");
+            System.out.println(GREEN + "Seeding finished in " + (System.currentTimeMillis() - start) / 1000 + " s." + RESET);
+        }
+
+        if (TIME) BenchMain.main(args);
+    }
+
+    // ==========================================================
+    // TABLES
+    // ==========================================================
+    private static List<Table> tables() {
+        int cashiers = Math.max(1, USERS / USERS_PER_CASHIER);
+        List<Table> tables = new ArrayList<>();
+
+        tables.add(new Table("categories",
+                "INSERT INTO categories(id, name, active_status) VALUES(?, ?, 1)",
+                CATEGORIES, (ps, n, r) -> {
+                    ps.setInt(1, categoryBase + (int) n + 1);
+                    ps.setString(2, "Seed Category " + (categoryBase + n + 1));
+                    ps.addBatch();
+                }));
+
+        tables.add(new Table("products",
+                "INSERT INTO products(id, product_code, name, price, stock, category_id, active_status) VALUES(?, ?, ?, ?, ?, ?, 1)",
+                PRODUCTS, (ps, n, r) -> {
+                    int id = productBase + (int) n + 1;
+                    ps.setInt(1, id);
+                    ps.setString(2, "P" + (1_000_000 + id));
+                    ps.setString(3, "Seed Uniform " + id);
+                    ps.setDouble(4, prices[(int) n]);
+                    // The product_sizes triggers add each size's stock as it goes in
+                    ps.setInt(5, 0);
+                    ps.setInt(6, categoryBase + 1 + (int) (n % CATEGORIES));
+                    ps.addBatch();
+                }));
+
+        tables.add(new Table("product_sizes",
+                "INSERT INTO product_sizes(product_id, size, stock, damaged, critical_stock) VALUES(?, ?, ?, ?, ?)",
+                (long) PRODUCTS * SIZES.length, (ps, n, r) -> {
+                    ps.setInt(1, productBase + (int) (n / SIZES.length) + 1);
+                    ps.setString(2, SIZES[(int) (n % SIZES.length)]);
+                    ps.setInt(3, r.nextInt(0, 200));
+                    ps.setInt(4, r.nextInt(0, 5));
+                    ps.setInt(5, 10);
+                    ps.addBatch();
+                }));
+
+        // The first users are cashiers, the rest customers
+        tables.add(new Table("users",
+                "INSERT INTO users(id, username, password, role, active_status) VALUES(?, ?, 'seed', ?, 1)",
+                USERS, (ps, n, r) -> {
+                    int id = userBase + (int) n + 1;
+                    ps.setInt(1, id);
+                    ps.setString(2, "seed_user_" + id);
+                    ps.setString(3, n < cashiers ? "SALESMANAGER" : "USER");
+                    ps.addBatch();
+                }));
+
+        // Distinct sizes per user keep (user, product, size) unique without a lookup
+        tables.add(new Table("cart",
+                "INSERT IGNORE INTO cart(user_id, product_id, size, quantity) VALUES(?, ?, ?, ?)",
+                (long) CARTS * 3, (ps, n, r) -> {
+                    ps.setInt(1, customer((int) (n / 3) % Math.max(1, USERS - cashiers), cashiers));
+                    ps.setInt(2, product(r));
+                    ps.setString(3, SIZES[(int) (n % 3) * 2]);
+                    ps.setInt(4, r.nextInt(1, 4));
+                    ps.addBatch();
+                }));
+
+        tables.add(new Table("quotations",
+                "INSERT INTO quotations(id, user_id, total_amount, status, invoice_number, created_at) VALUES(?, ?, ?, ?, ?, ?)",
+                QUOTATIONS, (ps, n, r) -> {
+                    int id = quotationBase + (int) n + 1;
+                    long createdAt = pastMillis(r);
+                    ps.setInt(1, id);
+                    ps.setInt(2, customer(r.nextInt(Math.max(1, USERS - cashiers)), cashiers));
+                    ps.setDouble(3, r.nextInt(1, 5) * 450.0);
+                    ps.setString(4, now - createdAt < PENDING_WINDOW_MS ? "PENDING"
+                            : r.nextInt(10) == 0 ? "EXPIRED" : "completed");
+                    ps.setString(5, "INV" + (1_000_000 + id));
+                    ps.setTimestamp(6, new Timestamp(createdAt));
+                    ps.addBatch();
+                }));
+
+        // Two items per quotation on average, distinct sizes within a quotation
+        tables.add(new Table("quotation_items",
+                "INSERT INTO quotation_items(quotation_id, product_id, size, quantity, subtotal) VALUES(?, ?, ?, ?, ?)",
+                (long) QUOTATIONS * 2, (ps, n, r) -> {
+                    int productId = product(r);
+                    int qty = r.nextInt(1, 4);
+                    ps.setInt(1, quotationBase + (int) (n / 2) + 1);
+                    ps.setInt(2, productId);
+                    ps.setString(3, SIZES[(int) (n % 2) * 3 + 1]);
+                    ps.setInt(4, qty);
+                    ps.setDouble(5, prices[productId - productBase - 1] * qty);
+                    ps.addBatch();
+                }));
+
+        tables.add(new Table("sales",
+                "INSERT INTO sales(product_id, quantity, total_price, payment_method, user_id, sale_date) VALUES(?, ?, ?, ?, ?, ?)",
+                SALES, (ps, n, r) -> {
+                    int productId = product(r);
+                    int qty = r.nextInt(1, 4);
+                    ps.setInt(1, productId);
+                    ps.setInt(2, qty);
+                    ps.setDouble(3, prices[productId - productBase - 1] * qty);
+                    ps.setString(4, PAYMENT_METHODS[r.nextInt(PAYMENT_METHODS.length)]);
+                    ps.setInt(5, userBase + 1 + r.nextInt(cashiers));
+                    ps.setTimestamp(6, new Timestamp(pastMillis(r)));
+                    ps.addBatch();
+                }));
+
+        tables.add(new Table("inventory_log",
+                "INSERT INTO inventory_log(product_id, change_type, quantity, previous_stock, new_stock, created_at) VALUES(?, ?, ?, ?, ?, ?)",
+                INVENTORY_LOG, (ps, n, r) -> {
+                    String type = CHANGE_TYPES[r.nextInt(CHANGE_TYPES.length)];
+                    int qty = r.nextInt(1, 50);
+                    int previous = r.nextInt(0, 500);
+                    int next = type.equals("SALE") ? Math.max(0, previous - qty) : previous + qty;
+                    ps.setInt(1, product(r));
+                    ps.setString(2, type);
+                    ps.setInt(3, qty);
+                    ps.setInt(4, previous);
+                    ps.setInt(5, next);
+                    ps.setTimestamp(6, new Timestamp(pastMillis(r)));
+                    ps.addBatch();
+                }));
+
+        return tables;
+    }
+
+    // ==========================================================
+    // PARALLEL WRITERS
+    // ==========================================================
+    private static void seed(ConnectionPool pool, List<Table> tables) throws Exception {
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService writers = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "usms-seed-writer-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (Table table : tables) {
+                if (table.rows() <= 0) continue;
+                long start = System.currentTimeMillis();
+                AtomicLong written = new AtomicLong();
+
+                // A few ranges per writer so a slow range does not leave the others idle
+                long chunk = Math.max(BATCH_SIZE, table.rows() / (THREADS * 4L));
+                List<Future<?>> ranges = new ArrayList<>();
+                for (long from = 0; from < table.rows(); from += chunk) {
+                    long first = from;
+                    long last = Math.min(table.rows(), from + chunk);
+                    ranges.add(writers.submit(() -> {
+                        writeRange(pool, table, first, last, written);
+                        return null;
+                    }));
+                }
+                for (Future<?> range : ranges) range.get();
+
+                long millis = Math.max(1, System.currentTimeMillis() - start);
+                System.out.printf(CYAN + "%-16s" + RESET + " %,12d rows  %8d ms  %,10d rows/s%n",
+                        table.name(), written.get(), millis, written.get() * 1_000 / millis);
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    private static void writeRange(ConnectionPool pool, Table table, long first, long last, AtomicLong written)
+            throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(table.insert())) {
+                int pending = 0;
+                for (long n = first; n < last; n++) {
+                    table.writer().add(ps, n, random);
+                    if (++pending == BATCH_SIZE) {
+                        ps.executeBatch();
+                        conn.commit();
+                        written.addAndGet(pending);
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    ps.executeBatch();
+                    conn.commit();
+                    written.addAndGet(pending);
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // ==========================================================
+    // DISTRIBUTIONS
+    // ==========================================================
+    private static void prepareDistributions() {
+        Random random = new Random(SEED);
+        prices = new double[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) prices[i] = 150 + 25 * random.nextInt(55);
+
+        // Cumulative Zipf weights; product rank is shuffled so popular ids are spread out
+        int[] rank = new int[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) rank[i] = i;
+        for (int i = PRODUCTS - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = rank[i];
+            rank[i] = rank[j];
+            rank[j] = swap;
+        }
+        popularity = new double[PRODUCTS];
+        double total = 0;
+        for (int i = 0; i < PRODUCTS; i++) {
+            total += 1.0 / Math.pow(rank[i] + 1, SKEW);
+            popularity[i] = total;
+        }
+        for (int i = 0; i < PRODUCTS; i++) popularity[i] /= total;
+    }
+
+    private static int product(ThreadLocalRandom random) {
+        int i = Arrays.binarySearch(popularity, random.nextDouble());
+        if (i < 0) i = -i - 1;
+        return productBase + Math.min(i, PRODUCTS - 1) + 1;
+    }
+
+    private static int customer(int n, int cashiers) {
+        return userBase + cashiers + n + 1;
+    }
+
+    private static long pastMillis(ThreadLocalRandom random) {
+        return now - random.nextLong(SPAN_MS);
+    }
+
+    private static void reservePending(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(RESERVE_PENDING)) {
+            ps.setInt(1, quotationBase);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void advanceSequence(Connection conn, String name, long next) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(ADVANCE_SEQUENCE)) {
+            ps.setLong(1, next);
+            ps.setString(2, name);
+            ps.executeUpdate();
+        }
+    }
+
+    private static int maxId(Connection conn, String table) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
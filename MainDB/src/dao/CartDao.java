@@ -0,0 +1,89 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import db.StatementRegistry;
+
+/**
+ * Data access for the cart table.
+ */
+public final class CartDao {
+
+    public record Line(int id, int productId, String name, double price, String size, int quantity, double total) {}
+
+    static final String LINES_OF = """
+            SELECT c.id, c.product_id, p.name, p.price, c.size, c.quantity, (p.price * c.quantity) AS total
+            FROM cart c
+            JOIN products p ON c.product_id = p.id
+            WHERE c.user_id = ?
+            """;
+    static final String FIND_QUANTITY =
+            "SELECT quantity FROM cart WHERE user_id = ? AND product_id = ? AND size = ?";
+    static final String UPDATE_QUANTITY =
+            "UPDATE cart SET quantity = ? WHERE user_id = ? AND product_id = ? AND size = ?";
+    static final String INSERT =
+            "INSERT INTO cart(user_id, product_id, size, quantity) VALUES (?, ?, ?, ?)";
+    static final String DELETE_LINES =
+            "DELETE FROM cart WHERE user_id = ? AND id IN (%s)";
+
+    private CartDao() {}
+
+    public static List<Line> linesOf(Connection conn, int userId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, LINES_OF);
+        ps.setInt(1, userId);
+        List<Line> lines = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                lines.add(new Line(rs.getInt("id"), rs.getInt("product_id"), rs.getString("name"),
+                        rs.getDouble("price"), rs.getString("size"), rs.getInt("quantity"), rs.getDouble("total")));
+            }
+        }
+        return lines;
+    }
+
+    /** Adds qty to the user's cart line for this product/size, creating the line if needed. */
+    public static void addQuantity(Connection conn, int userId, int productId, String size, int qty) throws SQLException {
+        PreparedStatement find = StatementRegistry.prepare(conn, FIND_QUANTITY);
+        find.setInt(1, userId);
+        find.setInt(2, productId);
+        find.setString(3, size);
+        Integer current = null;
+        try (ResultSet rs = find.executeQuery()) {
+            if (rs.next()) current = rs.getInt("quantity");
+        }
+
+        if (current != null) {
+            PreparedStatement ps = StatementRegistry.prepare(conn, UPDATE_QUANTITY);
+            ps.setInt(1, current + qty);
+            ps.setInt(2, userId);
+            ps.setInt(3, productId);
+            ps.setString(4, size);
+            ps.executeUpdate();
+        } else {
+            PreparedStatement ps = StatementRegistry.prepare(conn, INSERT);
+            ps.setInt(1, userId);
+            ps.setInt(2, productId);
+            ps.setString(3, size);
+            ps.setInt(4, qty);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Deletes the user's cart lines with these ids in one statement and returns how many went.
+     * Fewer than asked for means another submit or edit got to some of them first.
+     */
+    public static int deleteLines(Connection conn, int userId, List<Integer> cartIds) throws SQLException {
+        int size = StatementRegistry.inListSize(cartIds.size());
+        PreparedStatement ps = StatementRegistry.prepare(conn,
+                DELETE_LINES.formatted(String.join(", ", Collections.nCopies(size, "?"))));
+        ps.setInt(1, userId);
+        for (int i = 0; i < size; i++) ps.setInt(i + 2, cartIds.get(Math.min(i, cartIds.size() - 1)));
+        return ps.executeUpdate();
+    }
+}
@@ -0,0 +1,58 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import db.StatementRegistry;
+
+/**
+ * Data access for the categories table.
+ */
+public final class CategoryDao {
+
+    public record Category(int id, String name) {}
+
+    static final String FIND_ACTIVE =
+            "SELECT id, name FROM categories WHERE active_status = 1 ORDER BY id";
+    static final String INSERT =
+            "INSERT INTO categories(name, active_status) VALUES(?, 1)";
+    static final String RENAME =
+            "UPDATE categories SET name = ? WHERE id = ?";
+    static final String SET_ACTIVE_STATUS =
+            "UPDATE categories SET active_status = ? WHERE id = ?";
+
+    private CategoryDao() {}
+
+    public static List<Category> findActive(Connection conn) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, FIND_ACTIVE);
+        List<Category> categories = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) categories.add(new Category(rs.getInt("id"), rs.getString("name")));
+        }
+        return categories;
+    }
+
+    public static void insert(Connection conn, String name) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, INSERT);
+        ps.setString(1, name);
+        ps.executeUpdate();
+    }
+
+    public static boolean rename(Connection conn, int categoryId, String name) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, RENAME);
+        ps.setString(1, name);
+        ps.setInt(2, categoryId);
+        return ps.executeUpdate() == 1;
+    }
+
+    /** 1 = active, 2 = recovery requested, 0 = deactivated. */
+    public static boolean setActiveStatus(Connection conn, int categoryId, int status) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, SET_ACTIVE_STATUS);
+        ps.setInt(1, status);
+        ps.setInt(2, categoryId);
+        return ps.executeUpdate() == 1;
+    }
+}
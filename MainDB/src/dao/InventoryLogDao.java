@@ -0,0 +1,146 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import db.StatementRegistry;
+
+/**
+ * Data access for the inventory_log table.
+ */
+public final class InventoryLogDao {
+
+    public record Entry(long id, String productName, String changeType, int quantity,
+                        int previousStock, int newStock, Timestamp createdAt) {}
+
+    /** A stock movement about to be logged. */
+    public record Change(int productId, String changeType, int quantity, int previousStock, int newStock) {}
+
+    /** A change queued to be written after its transaction commits, with the time it happened. */
+    public record Stamped(Change change, Timestamp at) {}
+
+    /** Optional filters for {@link #page}; null fields are not applied. */
+    public record Filter(String productCode, String changeType) {
+        public static final Filter NONE = new Filter(null, null);
+    }
+
+    static final String INSERT = """
+            INSERT INTO inventory_log (product_id, change_type, quantity, previous_stock, new_stock, created_at)
+            VALUES (?, ?, ?, ?, ?, NOW())
+            """;
+
+    static final String INSERT_AT = """
+            INSERT INTO inventory_log (product_id, change_type, quantity, previous_stock, new_stock, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    static final String NOW = "SELECT NOW()";
+
+    static final String PAGE = """
+            SELECT l.id,
+                   COALESCE(p.name, 'Deleted Product') AS product_name,
+                   l.change_type,
+                   l.quantity,
+                   l.previous_stock,
+                   l.new_stock,
+                   l.created_at
+            FROM inventory_log l
+            LEFT JOIN products p ON l.product_id = p.id
+            WHERE (l.created_at, l.id) < (?, ?)
+            """;
+
+    static final String EXPORT = """
+            SELECT l.id,
+                   l.created_at,
+                   p.product_code,
+                   COALESCE(p.name, 'Deleted Product') AS product,
+                   l.change_type,
+                   l.quantity,
+                   l.previous_stock,
+                   l.new_stock
+            FROM inventory_log l
+            LEFT JOIN products p ON l.product_id = p.id
+            WHERE l.created_at >= ? AND l.created_at < ?
+            ORDER BY l.created_at, l.id
+            """;
+
+    private InventoryLogDao() {}
+
+    /** The database clock, read on the caller's connection so it matches the rows it stamps. */
+    public static Timestamp now(Connection conn) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, NOW);
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    /** Log entries in [from, to), oldest first, streamed; closing the result set closes its statement. */
+    public static ResultSet export(Connection conn, Timestamp from, Timestamp to) throws SQLException {
+        return Streaming.range(conn, EXPORT, from, to);
+    }
+
+    /**
+     * One newest-first page of log entries strictly older than {@code after}.
+     * Seeks on (created_at, id) so the cost does not grow with how far back the page is.
+     */
+    public static List<Entry> page(Connection conn, Filter filter, Keyset after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(PAGE);
+        if (filter.productCode() != null) sql.append("  AND p.product_code = ?\n");
+        if (filter.changeType() != null) sql.append("  AND l.change_type = ?\n");
+        sql.append("ORDER BY l.created_at DESC, l.id DESC\nLIMIT ?");
+
+        PreparedStatement ps = StatementRegistry.prepare(conn, sql.toString());
+        int i = 1;
+        ps.setTimestamp(i++, after.at());
+        ps.setLong(i++, after.id());
+        if (filter.productCode() != null) ps.setString(i++, filter.productCode());
+        if (filter.changeType() != null) ps.setString(i++, filter.changeType());
+        ps.setInt(i, limit);
+        ps.setFetchSize(limit);
+
+        List<Entry> entries = new ArrayList<>(limit);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                entries.add(new Entry(rs.getLong("id"), rs.getString("product_name"), rs.getString("change_type"),
+                        rs.getInt("quantity"), rs.getInt("previous_stock"), rs.getInt("new_stock"),
+                        rs.getTimestamp("created_at")));
+            }
+        }
+        return entries;
+    }
+
+    /** Logs every change in one batch; the driver rewrites it into a single multi-row INSERT. */
+    public static void insertAll(Connection conn, List<Change> changes) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, INSERT);
+        for (Change change : changes) {
+            ps.setInt(1, change.productId());
+            ps.setString(2, change.changeType());
+            ps.setInt(3, change.quantity());
+            ps.setInt(4, change.previousStock());
+            ps.setInt(5, change.newStock());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    /** Like {@link #insertAll} but keeps each change's own time instead of the time of the write. */
+    public static void insertStamped(Connection conn, List<Stamped> changes) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, INSERT_AT);
+        for (Stamped stamped : changes) {
+            Change change = stamped.change();
+            ps.setInt(1, change.productId());
+            ps.setString(2, change.changeType());
+            ps.setInt(3, change.quantity());
+            ps.setInt(4, change.previousStock());
+            ps.setInt(5, change.newStock());
+            ps.setTimestamp(6, stamped.at());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+}
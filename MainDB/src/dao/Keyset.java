@@ -0,0 +1,18 @@
+package dao;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Seek position for newest-first pagination over (timestamp, id).
+ * A page query returns only rows strictly older than this position.
+ */
+public record Keyset(Timestamp at, long id) {
+
+    public static final Keyset NEWEST = new Keyset(Timestamp.valueOf("9999-12-31 23:59:59"), Long.MAX_VALUE);
+
+    /** Position just after the last possible row of the given day, so the page starts on that day. */
+    public static Keyset endOf(LocalDate day) {
+        return new Keyset(Timestamp.valueOf(day.plusDays(1).atStartOfDay()), Long.MIN_VALUE);
+    }
+}
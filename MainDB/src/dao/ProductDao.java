@@ -0,0 +1,460 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import db.StatementRegistry;
+
+/**
+ * Data access for products and their product_sizes rows.
+ */
+public final class ProductDao {
+
+    /** stock is the total over the product's sizes, kept in step with product_sizes by triggers. */
+    public record Product(int id, String code, String name, double price, int stock, int categoryId) {}
+
+    public record Size(int id, int productId, String size, int stock, int damaged, int criticalStock) {}
+
+    /** One size of an active product with its category, for the restock dashboard; size is null when there are none. */
+    public record StockLevel(int productId, int categoryId, String category, String product, String size,
+                             int stock, int damaged, int criticalStock) {}
+
+    /** A product to create in a bulk insert; ids come back in the same order. */
+    public record ProductRow(String code, String name, double price, int categoryId) {}
+
+    public record SizeRow(int productId, String size, int criticalStock) {}
+
+    /** A product code and size label as written on a delivery manifest. */
+    public record Sku(String code, String size) {}
+
+    /** A size found by its SKU, with the product it belongs to. */
+    public record SkuSize(Size size, String code, String productName) {}
+
+    /** Units to add to one size: good ones to stock, the rest to damaged. */
+    public record SizeRestock(int sizeId, int good, int damaged) {}
+
+    /** An active product with its category name, as the search index holds it. */
+    public record Searchable(Product product, String category) {}
+
+    static final String FIND_ACTIVE_BY_CODE =
+            "SELECT id, product_code, name, price, stock, category_id FROM products WHERE product_code = ? AND active_status = 1";
+    static final String FIND_BY_ID =
+            "SELECT id, product_code, name, price, stock, category_id FROM products WHERE id = ?";
+    static final String FIND_ACTIVE_BY_CATEGORY =
+            "SELECT id, product_code, name, price, stock, category_id FROM products WHERE category_id = ? AND active_status = 1 ORDER BY product_code";
+    static final String FIND_ACTIVE_IN_CATEGORY =
+            "SELECT id, product_code, name, price, stock, category_id FROM products WHERE product_code = ? AND category_id = ? AND active_status = 1";
+    static final String SEARCHABLE = """
+            SELECT p.id, p.product_code, p.name, p.price, p.stock, p.category_id, c.name AS category
+            FROM products p
+            LEFT JOIN categories c ON c.id = p.category_id
+            WHERE p.active_status = 1
+            """;
+    static final String SEARCHABLE_BY_ID = SEARCHABLE + " AND p.id = ?";
+    static final String INSERT =
+            "INSERT INTO products(product_code, name, price, stock, category_id) VALUES(?, ?, ?, 0, ?)";
+    static final String UPDATE_DETAILS =
+            "UPDATE products SET name = ?, price = ? WHERE id = ?";
+    static final String SET_ACTIVE_STATUS =
+            "UPDATE products SET active_status = ? WHERE id = ?";
+    static final String STOCK_LEVELS = """
+            SELECT p.id AS product_id, p.category_id, c.name AS category, p.name AS product,
+                   ps.size, COALESCE(ps.stock, 0) AS stock, COALESCE(ps.damaged, 0) AS damaged,
+                   COALESCE(ps.critical_stock, 0) AS critical_stock
+            FROM products p
+            LEFT JOIN product_sizes ps ON p.id = ps.product_id
+            LEFT JOIN categories c ON p.category_id = c.id
+            WHERE p.active_status = 1
+            """;
+    static final String STOCK_LEVELS_OF_PRODUCT = STOCK_LEVELS + " AND p.id = ?";
+
+    static final String SIZES_OF = """
+            SELECT id, product_id, size, stock, damaged, critical_stock
+            FROM product_sizes
+            WHERE product_id = ?
+            ORDER BY FIELD(size,'XS','S','M','L','XL','XXL','XXXL'), size
+            """;
+    static final String ALL_SIZES = """
+            SELECT ps.id, ps.product_id, ps.size, ps.stock, ps.damaged, ps.critical_stock
+            FROM product_sizes ps
+            JOIN products p ON p.id = ps.product_id AND p.active_status = 1
+            ORDER BY ps.product_id, FIELD(ps.size,'XS','S','M','L','XL','XXL','XXXL'), ps.size
+            """;
+    static final String SIZE_STOCK =
+            "SELECT stock FROM product_sizes WHERE product_id = ? AND size = ?";
+    static final String SIZE_EXISTS =
+            "SELECT COUNT(*) FROM product_sizes WHERE product_id = ? AND LOWER(size) = LOWER(?)";
+    static final String INSERT_SIZE =
+            "INSERT INTO product_sizes(product_id, size, stock, damaged, critical_stock) VALUES(?, ?, 0, 0, ?)";
+    static final String RESERVE_SIZE =
+            "UPDATE product_sizes SET stock = stock - ? WHERE product_id = ? AND size = ? AND stock >= ?";
+    static final String RETURN_SIZE =
+            "UPDATE product_sizes SET stock = stock + ? WHERE product_id = ? AND size = ?";
+    static final String LOCK_SIZE =
+            "SELECT id, product_id, size, stock, damaged, critical_stock FROM product_sizes WHERE id = ? AND product_id = ? FOR UPDATE";
+    static final String LOCK_SKUS = """
+            SELECT ps.id, ps.product_id, ps.size, ps.stock, ps.damaged, ps.critical_stock, p.product_code, p.name
+            FROM product_sizes ps
+            JOIN products p ON p.id = ps.product_id
+            WHERE p.active_status = 1 AND (p.product_code, ps.size) IN (%s)
+            FOR UPDATE OF ps
+            """;
+    static final String LOCK_PRODUCTS = "SELECT id FROM products WHERE id IN (%s) ORDER BY id FOR UPDATE";
+    static final String PRODUCT_IDS_BY_CODE = "SELECT id FROM products WHERE product_code IN (%s)";
+    static final String SET_CRITICAL_STOCK =
+            "UPDATE product_sizes SET critical_stock = ? WHERE id = ? AND product_id = ?";
+    static final String DELETE_SIZE =
+            "DELETE FROM product_sizes WHERE id = ? AND product_id = ?";
+    static final String RESTOCK_SIZE =
+            "UPDATE product_sizes SET stock = stock + ?, `damaged` = `damaged` + ? WHERE id = ?";
+
+    // Placeholder pairs per LOCK_SKUS query; keeps a large manifest well inside the protocol limit
+    // and matches the largest StatementRegistry.inListSize bucket
+    static final int LOCK_SKUS_BATCH = 500;
+
+    private ProductDao() {}
+
+    public static Product findActiveByCode(Connection conn, String code) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, FIND_ACTIVE_BY_CODE);
+        ps.setString(1, code);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? product(rs) : null;
+        }
+    }
+
+    public static Product findById(Connection conn, int id) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, FIND_BY_ID);
+        ps.setInt(1, id);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? product(rs) : null;
+        }
+    }
+
+    /** The active product with this code in the category, or null. */
+    public static Product findActiveInCategory(Connection conn, String code, int categoryId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, FIND_ACTIVE_IN_CATEGORY);
+        ps.setString(1, code);
+        ps.setInt(2, categoryId);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? product(rs) : null;
+        }
+    }
+
+    public static List<Product> findActiveByCategory(Connection conn, int categoryId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, FIND_ACTIVE_BY_CATEGORY);
+        ps.setInt(1, categoryId);
+        List<Product> products = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) products.add(product(rs));
+        }
+        return products;
+    }
+
+    /** Every active product with its category name, for building the search index. */
+    public static List<Searchable> searchable(Connection conn) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, SEARCHABLE);
+        List<Searchable> products = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) products.add(new Searchable(product(rs), rs.getString("category")));
+        }
+        return products;
+    }
+
+    /** The product as the search index holds it, or null once it is no longer active. */
+    public static Searchable searchable(Connection conn, int productId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, SEARCHABLE_BY_ID);
+        ps.setInt(1, productId);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? new Searchable(product(rs), rs.getString("category")) : null;
+        }
+    }
+
+    /** Inserts a product with zero stock and returns its generated id, or -1 if none came back. */
+    public static int insert(Connection conn, String code, String name, double price, int categoryId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepareWithKeys(conn, INSERT);
+        ps.setString(1, code);
+        ps.setString(2, name);
+        ps.setDouble(3, price);
+        ps.setInt(4, categoryId);
+        ps.executeUpdate();
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            return keys.next() ? keys.getInt(1) : -1;
+        }
+    }
+
+    /**
+     * Inserts every product in one batch, which rewriteBatchedStatements sends as multi-row INSERTs,
+     * and returns their generated ids in order.
+     */
+    public static int[] insertAll(Connection conn, List<ProductRow> products) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepareWithKeys(conn, INSERT);
+        for (ProductRow p : products) {
+            ps.setString(1, p.code());
+            ps.setString(2, p.name());
+            ps.setDouble(3, p.price());
+            ps.setInt(4, p.categoryId());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+
+        int[] ids = new int[products.size()];
+        int n = 0;
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            while (keys.next() && n < ids.length) ids[n++] = keys.getInt(1);
+        }
+        if (n != ids.length) throw new SQLException("Expected " + ids.length + " generated product ids, got " + n);
+        return ids;
+    }
+
+    public static void updateDetails(Connection conn, int productId, String name, double price) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, UPDATE_DETAILS);
+        ps.setString(1, name);
+        ps.setDouble(2, price);
+        ps.setInt(3, productId);
+        ps.executeUpdate();
+    }
+
+    /** 1 = active, 2 = recovery requested, 0 = deactivated. */
+    public static void setActiveStatus(Connection conn, int productId, int status) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, SET_ACTIVE_STATUS);
+        ps.setInt(1, status);
+        ps.setInt(2, productId);
+        ps.executeUpdate();
+    }
+
+    /** Every size of every active product, unordered; a product without sizes is one row with a null size. */
+    public static List<StockLevel> stockLevels(Connection conn) throws SQLException {
+        return stockLevels(StatementRegistry.prepare(conn, STOCK_LEVELS));
+    }
+
+    /** Every size of one product; empty when the product is not active. */
+    public static List<StockLevel> stockLevels(Connection conn, int productId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, STOCK_LEVELS_OF_PRODUCT);
+        ps.setInt(1, productId);
+        return stockLevels(ps);
+    }
+
+    private static List<StockLevel> stockLevels(PreparedStatement ps) throws SQLException {
+        List<StockLevel> levels = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                levels.add(new StockLevel(rs.getInt("product_id"), rs.getInt("category_id"), rs.getString("category"),
+                        rs.getString("product"), rs.getString("size"), rs.getInt("stock"), rs.getInt("damaged"),
+                        rs.getInt("critical_stock")));
+            }
+        }
+        return levels;
+    }
+
+    // ==========================================================
+    // PRODUCT SIZES
+    // ==========================================================
+    public static List<Size> sizesOf(Connection conn, int productId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, SIZES_OF);
+        ps.setInt(1, productId);
+        List<Size> sizes = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) sizes.add(size(rs));
+        }
+        return sizes;
+    }
+
+    /** Sizes of every active product keyed by product id, each list in the same order as sizesOf. */
+    public static Map<Integer, List<Size>> allSizes(Connection conn) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, ALL_SIZES);
+        Map<Integer, List<Size>> sizes = new HashMap<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Size size = size(rs);
+                sizes.computeIfAbsent(size.productId(), id -> new ArrayList<>()).add(size);
+            }
+        }
+        return sizes;
+    }
+
+    /** Current stock of one size, or -1 when the product has no such size. */
+    public static int sizeStock(Connection conn, int productId, String size) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, SIZE_STOCK);
+        ps.setInt(1, productId);
+        ps.setString(2, size);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    public static boolean sizeExists(Connection conn, int productId, String size) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, SIZE_EXISTS);
+        ps.setInt(1, productId);
+        ps.setString(2, size);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() && rs.getInt(1) > 0;
+        }
+    }
+
+    public static void insertSize(Connection conn, int productId, String size, int criticalStock) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, INSERT_SIZE);
+        ps.setInt(1, productId);
+        ps.setString(2, size);
+        ps.setInt(3, criticalStock);
+        ps.executeUpdate();
+    }
+
+    public static void insertSizes(Connection conn, List<SizeRow> sizes) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, INSERT_SIZE);
+        for (SizeRow s : sizes) {
+            ps.setInt(1, s.productId());
+            ps.setString(2, s.size());
+            ps.setInt(3, s.criticalStock());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    /**
+     * Takes qty units from one size only if that many are in stock.
+     * Returns false, changing nothing, when the size is missing or short.
+     */
+    public static boolean reserveSizeStock(Connection conn, int productId, String size, int qty) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, RESERVE_SIZE);
+        ps.setInt(1, qty);
+        ps.setInt(2, productId);
+        ps.setString(3, size);
+        ps.setInt(4, qty);
+        return ps.executeUpdate() == 1;
+    }
+
+    /** Puts each item's quantity back on its size in one batch, in the order given. */
+    public static void returnSizeStock(Connection conn, List<QuotationDao.Item> items) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, RETURN_SIZE);
+        for (QuotationDao.Item item : items) {
+            ps.setInt(1, item.quantity());
+            ps.setInt(2, item.productId());
+            ps.setString(3, item.size());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    /** Locks one size of a product for update; null when the size does not belong to the product. */
+    public static Size lockSize(Connection conn, int productId, int sizeId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, LOCK_SIZE);
+        ps.setInt(1, sizeId);
+        ps.setInt(2, productId);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? size(rs) : null;
+        }
+    }
+
+    /**
+     * Locks the products rows for update in id order. Call it before changing the stock of any of
+     * their sizes: the product_sizes triggers write the product row, so every writer takes the
+     * product rows first and the size rows after them.
+     */
+    public static void lockProducts(Connection conn, Collection<Integer> productIds) throws SQLException {
+        if (productIds.isEmpty()) return;
+        List<Integer> ids = new ArrayList<>(new TreeSet<>(productIds));
+        int size = StatementRegistry.inListSize(ids.size());
+        PreparedStatement ps = StatementRegistry.prepare(conn,
+                LOCK_PRODUCTS.formatted(String.join(", ", Collections.nCopies(size, "?"))));
+        for (int i = 0; i < size; i++) ps.setInt(i + 1, ids.get(Math.min(i, ids.size() - 1)));
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                // Locked as the rows are read
+            }
+        }
+    }
+
+    /** Ids of the products with these codes, active or not; a plain read that takes no locks. */
+    public static List<Integer> productIdsByCode(Connection conn, Collection<String> codes) throws SQLException {
+        if (codes.isEmpty()) return List.of();
+        List<String> distinct = new ArrayList<>(new TreeSet<>(codes));
+        int size = StatementRegistry.inListSize(distinct.size());
+        PreparedStatement ps = StatementRegistry.prepare(conn,
+                PRODUCT_IDS_BY_CODE.formatted(String.join(", ", Collections.nCopies(size, "?"))));
+        for (int i = 0; i < size; i++) ps.setString(i + 1, distinct.get(Math.min(i, distinct.size() - 1)));
+        List<Integer> ids = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        return ids;
+    }
+
+    /**
+     * Locks the sizes of active products named by (code, size) pairs for update, in one query per
+     * {@code LOCK_SKUS_BATCH} pairs. Pairs that match nothing are simply absent from the result.
+     * Each batch is padded to an IN-list bucket by repeating its last pair, so the statement cache
+     * holds a handful of shapes rather than one per manifest length.
+     */
+    public static List<SkuSize> lockSkus(Connection conn, List<Sku> skus) throws SQLException {
+        List<SkuSize> found = new ArrayList<>(skus.size());
+        for (int from = 0; from < skus.size(); from += LOCK_SKUS_BATCH) {
+            List<Sku> batch = skus.subList(from, Math.min(skus.size(), from + LOCK_SKUS_BATCH));
+            int size = StatementRegistry.inListSize(batch.size());
+            String rows = String.join(", ", Collections.nCopies(size, "(?, ?)"));
+            PreparedStatement ps = StatementRegistry.prepare(conn, LOCK_SKUS.formatted(rows));
+            int i = 1;
+            for (int k = 0; k < size; k++) {
+                Sku sku = batch.get(Math.min(k, batch.size() - 1));
+                ps.setString(i++, sku.code());
+                ps.setString(i++, sku.size());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) found.add(new SkuSize(size(rs), rs.getString("product_code"), rs.getString("name")));
+            }
+        }
+        return found;
+    }
+
+    public static boolean setCriticalStock(Connection conn, int productId, int sizeId, int criticalStock) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, SET_CRITICAL_STOCK);
+        ps.setInt(1, criticalStock);
+        ps.setInt(2, sizeId);
+        ps.setInt(3, productId);
+        return ps.executeUpdate() == 1;
+    }
+
+    public static boolean deleteSize(Connection conn, int productId, int sizeId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, DELETE_SIZE);
+        ps.setInt(1, sizeId);
+        ps.setInt(2, productId);
+        return ps.executeUpdate() == 1;
+    }
+
+    public static void restockSize(Connection conn, int sizeId, int goodQty, int damagedQty) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, RESTOCK_SIZE);
+        ps.setInt(1, goodQty);
+        ps.setInt(2, damagedQty);
+        ps.setInt(3, sizeId);
+        ps.executeUpdate();
+    }
+
+    /** Adds each size's good and damaged units in one batch. */
+    public static void restockSizes(Connection conn, List<SizeRestock> restocks) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, RESTOCK_SIZE);
+        for (SizeRestock r : restocks) {
+            ps.setInt(1, r.good());
+            ps.setInt(2, r.damaged());
+            ps.setInt(3, r.sizeId());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    static Product product(ResultSet rs) throws SQLException {
+        return new Product(rs.getInt("id"), rs.getString("product_code"), rs.getString("name"),
+                rs.getDouble("price"), rs.getInt("stock"), rs.getInt("category_id"));
+    }
+
+    static Size size(ResultSet rs) throws SQLException {
+        return new Size(rs.getInt("id"), rs.getInt("product_id"), rs.getString("size"),
+                rs.getInt("stock"), rs.getInt("damaged"), rs.getInt("critical_stock"));
+    }
+}
@@ -0,0 +1,261 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import db.StatementRegistry;
+
+/**
+ * Data access for quotations and quotation_items.
+ */
+public final class QuotationDao {
+
+    public record Quotation(int id, int userId, String invoiceNumber, double totalAmount, String status, Timestamp createdAt) {}
+
+    public record Item(int productId, String size, int quantity, double subtotal) {}
+
+    /** A pending quotation as the cashier's list shows it, items already labelled "Name (Size)". */
+    public record Pending(String invoiceNumber, String customer, double totalAmount, Timestamp createdAt, String items) {}
+
+    /**
+     * One quotation line as loaded for completing the sale. soldAt is the database clock when the
+     * lines were loaded, so the sale and its rollups agree on the day.
+     */
+    public record SaleLine(int quotationId, Timestamp createdAt, LocalDateTime soldAt, int customerId,
+                           int productId, String name, double price, int stock, String size, int quantity) {}
+
+    static final String INSERT =
+            "INSERT INTO quotations(user_id, total_amount, status, invoice_number, created_at) VALUES(?, ?, 'PENDING', ?, NOW())";
+    static final String INSERT_ITEM =
+            "INSERT INTO quotation_items(quotation_id, product_id, size, quantity, subtotal) VALUES(?, ?, ?, ?, ?)";
+    static final String FIND_BY_INVOICE =
+            "SELECT id, user_id, invoice_number, total_amount, status, created_at FROM quotations WHERE invoice_number = ?";
+    static final String ITEMS_OF =
+            "SELECT product_id, size, quantity, subtotal FROM quotation_items WHERE quotation_id = ?";
+    static final String ITEM_LABELS_OF_INVOICE = """
+            SELECT p.name, qi.size
+            FROM quotation_items qi
+            JOIN products p ON qi.product_id = p.id
+            WHERE qi.quotation_id = (SELECT id FROM quotations WHERE invoice_number = ?)
+            """;
+    // Items are folded in by the same query rather than fetched per quotation
+    static final String PENDING = """
+            SELECT q.invoice_number, u.username, q.total_amount, q.created_at,
+                   GROUP_CONCAT(CONCAT(p.name, ' (', qi.size, ')') ORDER BY qi.id SEPARATOR ', ') AS items
+            FROM quotations q
+            JOIN users u ON q.user_id = u.id
+            LEFT JOIN quotation_items qi ON qi.quotation_id = q.id
+            LEFT JOIN products p ON qi.product_id = p.id
+            WHERE q.status = 'PENDING'
+            GROUP BY q.id, q.invoice_number, u.username, q.total_amount, q.created_at
+            ORDER BY q.created_at
+            """;
+    // SKIP LOCKED leaves quotations a cashier is completing right now for the next sweep
+    static final String EXPIRED_IDS = """
+            SELECT id FROM quotations
+            WHERE status = 'PENDING' AND created_at < NOW() - INTERVAL ? MINUTE
+            ORDER BY created_at, id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+    static final String RESERVED_BY = """
+            SELECT product_id, size, SUM(quantity) AS quantity, SUM(subtotal) AS subtotal
+            FROM quotation_items
+            WHERE quotation_id IN (%s)
+            GROUP BY product_id, size
+            ORDER BY product_id, size
+            """;
+    static final String MARK_EXPIRED =
+            "UPDATE quotations SET status = 'EXPIRED' WHERE status = 'PENDING' AND id IN (%s)";
+    static final String MARK_COMPLETED =
+            "UPDATE quotations SET status = 'completed' WHERE id = ? AND status = 'PENDING'";
+
+    // Locks the quotation and then its products in product_id order, as the items index returns them:
+    // the same quotation-then-products order as checkout and the expiry sweep. The sizes are not
+    // touched, and the locked p.stock is exact for the inventory log's before and after.
+    static final String LOAD_FOR_SALE = """
+            SELECT q.id AS quotation_id, q.created_at, NOW() AS sold_at, q.user_id,
+                   qi.product_id, qi.size, qi.quantity, p.name, p.price, p.stock
+            FROM quotations q
+            JOIN quotation_items qi ON qi.quotation_id = q.id
+            JOIN products p ON p.id = qi.product_id
+            WHERE q.invoice_number = ? AND q.status = 'PENDING'
+            ORDER BY qi.product_id, qi.size
+            FOR UPDATE OF q, p
+            """;
+
+    // The created_at index bounds the scan to the range and its (created_at, id) order needs no sort;
+    // a quotation's items arrive together. Columns up to total_amount describe the quotation.
+    static final String EXPORT = """
+            SELECT q.id AS quotation_id,
+                   q.invoice_number,
+                   q.created_at,
+                   q.status,
+                   u.username AS customer,
+                   q.total_amount,
+                   p.product_code,
+                   IF(qi.id IS NULL, NULL, COALESCE(p.name, 'Deleted Product')) AS product,
+                   qi.size,
+                   qi.quantity,
+                   qi.subtotal
+            FROM quotations q
+            LEFT JOIN users u ON q.user_id = u.id
+            LEFT JOIN quotation_items qi ON qi.quotation_id = q.id
+            LEFT JOIN products p ON qi.product_id = p.id
+            WHERE q.created_at >= ? AND q.created_at < ?
+            ORDER BY q.created_at, q.id
+            """;
+    public static final int EXPORT_QUOTATION_COLUMNS = 6;
+
+    private QuotationDao() {}
+
+    /** Inserts a PENDING quotation and returns its generated id. */
+    public static int insert(Connection conn, int userId, double totalAmount, String invoiceNumber) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepareWithKeys(conn, INSERT);
+        ps.setInt(1, userId);
+        ps.setDouble(2, totalAmount);
+        ps.setString(3, invoiceNumber);
+        ps.executeUpdate();
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            return keys.next() ? keys.getInt(1) : 0;
+        }
+    }
+
+    /** Every pending quotation, oldest first. */
+    public static List<Pending> pending(Connection conn) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, PENDING);
+        List<Pending> pending = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String items = rs.getString("items");
+                pending.add(new Pending(rs.getString("invoice_number"), rs.getString("username"),
+                        rs.getDouble("total_amount"), rs.getTimestamp("created_at"), items == null ? "" : items));
+            }
+        }
+        return pending;
+    }
+
+    public static void insertItems(Connection conn, int quotationId, List<Item> items) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, INSERT_ITEM);
+        for (Item item : items) {
+            ps.setInt(1, quotationId);
+            ps.setInt(2, item.productId());
+            ps.setString(3, item.size());
+            ps.setInt(4, item.quantity());
+            ps.setDouble(5, item.subtotal());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    public static Quotation findByInvoice(Connection conn, String invoiceNumber) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, FIND_BY_INVOICE);
+        ps.setString(1, invoiceNumber);
+        try (ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) return null;
+            return new Quotation(rs.getInt("id"), rs.getInt("user_id"), rs.getString("invoice_number"),
+                    rs.getDouble("total_amount"), rs.getString("status"), rs.getTimestamp("created_at"));
+        }
+    }
+
+    public static List<Item> itemsOf(Connection conn, int quotationId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, ITEMS_OF);
+        ps.setInt(1, quotationId);
+        List<Item> items = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                items.add(new Item(rs.getInt("product_id"), rs.getString("size"), rs.getInt("quantity"), rs.getDouble("subtotal")));
+            }
+        }
+        return items;
+    }
+
+    /** "Name (size)" labels of every item on an invoice, for listings. */
+    public static List<String> itemLabelsOf(Connection conn, String invoiceNumber) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, ITEM_LABELS_OF_INVOICE);
+        ps.setString(1, invoiceNumber);
+        List<String> labels = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) labels.add(rs.getString("name") + " (" + rs.getString("size") + ")");
+        }
+        return labels;
+    }
+
+    /**
+     * Every line of a still-pending quotation joined with its product, locking the quotation and
+     * product rows. Its stock was reserved at checkout, so nothing is changed here, but the locks keep
+     * the stock read for the log from moving before the commit. Empty when the quotation is no
+     * longer pending.
+     */
+    public static List<SaleLine> loadForSale(Connection conn, String invoiceNumber) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, LOAD_FOR_SALE);
+        ps.setString(1, invoiceNumber);
+        List<SaleLine> lines = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                lines.add(new SaleLine(rs.getInt("quotation_id"), rs.getTimestamp("created_at"),
+                        rs.getObject("sold_at", LocalDateTime.class), rs.getInt("user_id"),
+                        rs.getInt("product_id"), rs.getString("name"), rs.getDouble("price"),
+                        rs.getInt("stock"), rs.getString("size"), rs.getInt("quantity")));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Oldest pending quotations older than {@code ttlMinutes} by the database clock, which is the
+     * one created_at was stamped with; locked for this transaction.
+     */
+    public static List<Integer> lockExpired(Connection conn, long ttlMinutes, int limit) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, EXPIRED_IDS);
+        ps.setLong(1, ttlMinutes);
+        ps.setInt(2, limit);
+        List<Integer> ids = new ArrayList<>(limit);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        return ids;
+    }
+
+    /** Stock held by these quotations, summed per (product_id, size) in lock order. */
+    public static List<Item> reservedBy(Connection conn, List<Integer> quotationIds) throws SQLException {
+        PreparedStatement ps = inList(conn, RESERVED_BY, quotationIds);
+        List<Item> items = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                items.add(new Item(rs.getInt("product_id"), rs.getString("size"), rs.getInt("quantity"), rs.getDouble("subtotal")));
+            }
+        }
+        return items;
+    }
+
+    /** Quotations in [from, to) with one row per item, streamed; closing the result set closes its statement. */
+    public static ResultSet export(Connection conn, Timestamp from, Timestamp to) throws SQLException {
+        return Streaming.range(conn, EXPORT, from, to);
+    }
+
+    public static int markExpired(Connection conn, List<Integer> quotationIds) throws SQLException {
+        return inList(conn, MARK_EXPIRED, quotationIds).executeUpdate();
+    }
+
+    /** Completes a pending quotation; false if someone else already completed or expired it. */
+    public static boolean markCompleted(Connection conn, int quotationId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, MARK_COMPLETED);
+        ps.setInt(1, quotationId);
+        return ps.executeUpdate() == 1;
+    }
+
+    // Fills the %s of sql with a padded placeholder list and binds the ids, repeating the last one
+    private static PreparedStatement inList(Connection conn, String sql, List<Integer> ids) throws SQLException {
+        int size = StatementRegistry.inListSize(ids.size());
+        PreparedStatement ps = StatementRegistry.prepare(conn, sql.formatted(String.join(", ", Collections.nCopies(size, "?"))));
+        for (int i = 0; i < size; i++) ps.setInt(i + 1, ids.get(Math.min(i, ids.size() - 1)));
+        return ps;
+    }
+}
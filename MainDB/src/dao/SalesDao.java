@@ -0,0 +1,116 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import db.StatementRegistry;
+
+/**
+ * Data access for the sales table.
+ */
+public final class SalesDao {
+
+    public record Sale(long id, String productName, int quantity, double totalPrice,
+                       String paymentMethod, String soldBy, Timestamp saleDate) {}
+
+    /** A sale line about to be recorded. */
+    public record NewSale(int productId, int quantity, double totalPrice) {}
+
+    /** Optional filters for {@link #page}; null fields are not applied. */
+    public record Filter(String cashier, String paymentMethod) {
+        public static final Filter NONE = new Filter(null, null);
+    }
+
+    static final String INSERT =
+            "INSERT INTO sales(product_id, quantity, total_price, payment_method, user_id, sale_date) VALUES(?, ?, ?, ?, ?, ?)";
+
+    static final String PAGE = """
+            SELECT s.id,
+                   COALESCE(p.name, 'Deleted Product') AS product,
+                   s.quantity,
+                   s.total_price,
+                   s.payment_method,
+                   u.username AS sold_by,
+                   s.sale_date
+            FROM sales s
+            LEFT JOIN products p ON s.product_id = p.id
+            LEFT JOIN users u ON s.user_id = u.id
+            WHERE (s.sale_date, s.id) < (?, ?)
+            """;
+
+    static final String EXPORT = """
+            SELECT s.id,
+                   s.sale_date,
+                   p.product_code,
+                   COALESCE(p.name, 'Deleted Product') AS product,
+                   s.quantity,
+                   s.total_price,
+                   s.payment_method,
+                   u.username AS sold_by
+            FROM sales s
+            LEFT JOIN products p ON s.product_id = p.id
+            LEFT JOIN users u ON s.user_id = u.id
+            WHERE s.sale_date >= ? AND s.sale_date < ?
+            ORDER BY s.sale_date, s.id
+            """;
+
+    private SalesDao() {}
+
+    /** Sales in [from, to), oldest first, streamed; closing the result set closes its statement. */
+    public static ResultSet export(Connection conn, Timestamp from, Timestamp to) throws SQLException {
+        return Streaming.range(conn, EXPORT, from, to);
+    }
+
+    /**
+     * One newest-first page of sales strictly older than {@code after}, seeking on (sale_date, id).
+     */
+    public static List<Sale> page(Connection conn, Filter filter, Keyset after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(PAGE);
+        if (filter.cashier() != null) sql.append("  AND u.username = ?\n");
+        if (filter.paymentMethod() != null) sql.append("  AND s.payment_method = ?\n");
+        sql.append("ORDER BY s.sale_date DESC, s.id DESC\nLIMIT ?");
+
+        PreparedStatement ps = StatementRegistry.prepare(conn, sql.toString());
+        int i = 1;
+        ps.setTimestamp(i++, after.at());
+        ps.setLong(i++, after.id());
+        if (filter.cashier() != null) ps.setString(i++, filter.cashier());
+        if (filter.paymentMethod() != null) ps.setString(i++, filter.paymentMethod());
+        ps.setInt(i, limit);
+        ps.setFetchSize(limit);
+
+        List<Sale> sales = new ArrayList<>(limit);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                sales.add(new Sale(rs.getLong("id"), rs.getString("product"), rs.getInt("quantity"),
+                        rs.getDouble("total_price"), rs.getString("payment_method"), rs.getString("sold_by"),
+                        rs.getTimestamp("sale_date")));
+            }
+        }
+        return sales;
+    }
+
+    /**
+     * Records every sale in one batch; the driver rewrites it into a single multi-row INSERT. soldAt
+     * is a database-clock time, passed as a LocalDateTime so no time zone conversion touches it.
+     */
+    public static void insertAll(Connection conn, List<NewSale> sales, String paymentMethod, int cashierId,
+                                 LocalDateTime soldAt) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, INSERT);
+        for (NewSale sale : sales) {
+            ps.setInt(1, sale.productId());
+            ps.setInt(2, sale.quantity());
+            ps.setDouble(3, sale.totalPrice());
+            ps.setString(4, paymentMethod);
+            ps.setInt(5, cashierId);
+            ps.setObject(6, soldAt);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+}
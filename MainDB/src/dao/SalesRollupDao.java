@@ -0,0 +1,171 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import db.StatementRegistry;
+
+/**
+ * Pre-aggregated sales per product and per payment method, one row per period and grain.
+ *
+ * Rows are bumped in the same transaction that records a sale, so the dashboard reads a handful
+ * of rows instead of aggregating the whole history. The tables come from SchemaMigrator. Every
+ * period is reckoned by the database clock, as sale_date is, never by the JVM's time zone.
+ */
+public final class SalesRollupDao {
+
+    /** Period size of a rollup row; ALL keeps running totals under a fixed period_start. */
+    public enum Grain {
+        DAY("D"), WEEK("W"), MONTH("M"), YEAR("Y"), ALL("A");
+
+        final String code;
+
+        Grain(String code) {
+            this.code = code;
+        }
+
+        /** First day of the period containing {@code day}; weeks start on Monday like YEARWEEK(d, 1). */
+        public LocalDate start(LocalDate day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day.minusDays(day.getDayOfWeek().getValue() - 1);
+                case MONTH -> day.withDayOfMonth(1);
+                case YEAR -> day.withDayOfYear(1);
+                case ALL -> ALL_TIME;
+            };
+        }
+    }
+
+    public record TopProduct(String name, int quantity) {}
+
+    static final LocalDate ALL_TIME = LocalDate.of(1970, 1, 1);
+
+    static final String ADD_PRODUCT = """
+            INSERT INTO sales_rollup_product (grain, period_start, product_id, quantity, revenue)
+            VALUES (?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), revenue = revenue + VALUES(revenue)
+            """;
+    static final String ADD_PAYMENT = """
+            INSERT INTO sales_rollup_payment (grain, period_start, payment_method, sale_count, revenue)
+            VALUES (?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE sale_count = sale_count + VALUES(sale_count), revenue = revenue + VALUES(revenue)
+            """;
+
+    static final String HAS_ROWS =
+            "SELECT EXISTS(SELECT 1 FROM sales_rollup_payment) OR NOT EXISTS(SELECT 1 FROM sales)";
+    // Periods around CURDATE(), the same clock sale_date and the backfill use
+    static final String REVENUE_NOW = """
+            SELECT grain, SUM(revenue) AS revenue
+            FROM sales_rollup_payment
+            WHERE (grain = 'W' AND period_start = CURDATE() - INTERVAL WEEKDAY(CURDATE()) DAY)
+               OR (grain = 'M' AND period_start = DATE_FORMAT(CURDATE(), '%Y-%m-01'))
+               OR (grain = 'Y' AND period_start = MAKEDATE(YEAR(CURDATE()), 1))
+            GROUP BY grain
+            """;
+    static final String TOP_PRODUCTS = """
+            SELECT p.name, r.quantity
+            FROM sales_rollup_product r
+            JOIN products p ON p.id = r.product_id
+            WHERE r.grain = 'A' AND r.period_start = '1970-01-01'
+            ORDER BY r.quantity DESC
+            LIMIT ?
+            """;
+
+    // Period start expressions for backfilling from the sales table, keyed like Grain.start()
+    private static final Map<Grain, String> PERIOD_SQL = new EnumMap<>(Map.of(
+            Grain.DAY, "DATE(sale_date)",
+            Grain.WEEK, "DATE(sale_date) - INTERVAL WEEKDAY(sale_date) DAY",
+            Grain.MONTH, "DATE_FORMAT(sale_date, '%Y-%m-01')",
+            Grain.YEAR, "MAKEDATE(YEAR(sale_date), 1)",
+            Grain.ALL, "'1970-01-01'"));
+
+    private SalesRollupDao() {}
+
+    /** True once rollups exist, or when there are no sales to roll up yet. */
+    public static boolean isPopulated(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(HAS_ROWS)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    /** Rebuilds every rollup row from the sales table. Run inside a transaction. */
+    public static void backfill(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM sales_rollup_product");
+            st.executeUpdate("DELETE FROM sales_rollup_payment");
+            for (Grain grain : Grain.values()) {
+                String period = PERIOD_SQL.get(grain);
+                st.executeUpdate("INSERT INTO sales_rollup_product (grain, period_start, product_id, quantity, revenue) "
+                        + "SELECT '" + grain.code + "', " + period + " AS period_start, product_id, SUM(quantity), SUM(total_price) "
+                        + "FROM sales GROUP BY period_start, product_id");
+                st.executeUpdate("INSERT INTO sales_rollup_payment (grain, period_start, payment_method, sale_count, revenue) "
+                        + "SELECT '" + grain.code + "', " + period + " AS period_start, payment_method, COUNT(*), SUM(total_price) "
+                        + "FROM sales GROUP BY period_start, payment_method");
+            }
+        }
+    }
+
+    /** Adds each sale to every grain of the product rollup for {@code day}, in one batch. */
+    public static void addProductSales(Connection conn, LocalDate day, List<SalesDao.NewSale> sales) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, ADD_PRODUCT);
+        for (Grain grain : Grain.values()) {
+            LocalDate start = grain.start(day);
+            for (SalesDao.NewSale sale : sales) {
+                ps.setString(1, grain.code);
+                ps.setObject(2, start);
+                ps.setInt(3, sale.productId());
+                ps.setInt(4, sale.quantity());
+                ps.setDouble(5, sale.totalPrice());
+                ps.addBatch();
+            }
+        }
+        ps.executeBatch();
+    }
+
+    /** Adds a sale's line count and revenue to every grain of the payment rollup for {@code day}. */
+    public static void addPaymentSales(Connection conn, LocalDate day, String paymentMethod, int count, double revenue)
+            throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, ADD_PAYMENT);
+        for (Grain grain : Grain.values()) {
+            ps.setString(1, grain.code);
+            ps.setObject(2, grain.start(day));
+            ps.setString(3, paymentMethod);
+            ps.setInt(4, count);
+            ps.setDouble(5, revenue);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    /** Revenue for the current week, month and year by the database clock; missing grains are absent. */
+    public static Map<Grain, Double> revenueNow(Connection conn) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, REVENUE_NOW);
+        Map<Grain, Double> revenue = new EnumMap<>(Grain.class);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String code = rs.getString("grain");
+                for (Grain grain : Grain.values()) {
+                    if (grain.code.equals(code)) revenue.put(grain, rs.getDouble("revenue"));
+                }
+            }
+        }
+        return revenue;
+    }
+
+    public static List<TopProduct> topProducts(Connection conn, int limit) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, TOP_PRODUCTS);
+        ps.setInt(1, limit);
+        List<TopProduct> top = new ArrayList<>(limit);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) top.add(new TopProduct(rs.getString("name"), rs.getInt("quantity")));
+        }
+        return top;
+    }
+}
@@ -0,0 +1,33 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Forward-only, row-at-a-time result sets for exports. Connector/J streams a statement whose fetch
+ * size is Integer.MIN_VALUE instead of buffering the whole result, so memory stays flat however
+ * many rows come back. Until such a result set is closed its connection can run nothing else, so
+ * these statements bypass the {@link db.StatementRegistry} and close together with their results.
+ */
+final class Streaming {
+
+    private Streaming() {}
+
+    /** Runs a query whose two parameters are the [from, to) range. */
+    static ResultSet range(Connection conn, String sql, Timestamp from, Timestamp to) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            ps.closeOnCompletion();
+            return ps.executeQuery();
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import db.StatementRegistry;
+
+/**
+ * Data access for the users table.
+ */
+public final class UserDao {
+
+    public record User(int id, String username, String role) {}
+
+    static final String AUTHENTICATE =
+            "SELECT id, username, role FROM users WHERE username = ? AND password = ? AND active_status = 1";
+    static final String USERNAME_OF =
+            "SELECT username FROM users WHERE id = ?";
+    static final String PASSWORD_OF =
+            "SELECT password FROM users WHERE id = ?";
+    static final String INSERT =
+            "INSERT INTO users (username, password, role, active_status) VALUES (?, ?, ?, 1)";
+    // Blank fields keep their current value
+    static final String UPDATE = """
+            UPDATE users
+            SET username = IF(? = '', username, ?),
+                password = IF(? = '', password, ?),
+                role = IF(? = '', role, ?)
+            WHERE id = ?
+            """;
+    static final String UPDATE_PASSWORD =
+            "UPDATE users SET password = ? WHERE id = ?";
+    static final String SET_ACTIVE_STATUS =
+            "UPDATE users SET active_status = ? WHERE id = ?";
+
+    private UserDao() {}
+
+    /** Returns the active user matching these credentials, or null. */
+    public static User authenticate(Connection conn, String username, String password) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, AUTHENTICATE);
+        ps.setString(1, username);
+        ps.setString(2, password);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? new User(rs.getInt("id"), rs.getString("username"), rs.getString("role")) : null;
+        }
+    }
+
+    /** Username for an id, or null when the user does not exist. */
+    public static String usernameOf(Connection conn, int userId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, USERNAME_OF);
+        ps.setInt(1, userId);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getString("username") : null;
+        }
+    }
+
+    /** Stored password for an id, or null when the user does not exist. */
+    public static String passwordOf(Connection conn, int userId) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, PASSWORD_OF);
+        ps.setInt(1, userId);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getString("password") : null;
+        }
+    }
+
+    public static void insert(Connection conn, String username, String password, String role) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, INSERT);
+        ps.setString(1, username);
+        ps.setString(2, password);
+        ps.setString(3, role);
+        ps.executeUpdate();
+    }
+
+    /** Updates the non-blank fields of a user. */
+    public static boolean update(Connection conn, int userId, String username, String password, String role) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, UPDATE);
+        ps.setString(1, username);
+        ps.setString(2, username);
+        ps.setString(3, password);
+        ps.setString(4, password);
+        ps.setString(5, role);
+        ps.setString(6, role);
+        ps.setInt(7, userId);
+        return ps.executeUpdate() == 1;
+    }
+
+    public static boolean updatePassword(Connection conn, int userId, String password) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, UPDATE_PASSWORD);
+        ps.setString(1, password);
+        ps.setInt(2, userId);
+        return ps.executeUpdate() == 1;
+    }
+
+    /** 1 = active, 0 = deactivated. */
+    public static boolean setActiveStatus(Connection conn, int userId, int status) throws SQLException {
+        PreparedStatement ps = StatementRegistry.prepare(conn, SET_ACTIVE_STATUS);
+        ps.setInt(1, status);
+        ps.setInt(2, userId);
+        return ps.executeUpdate() == 1;
+    }
+}
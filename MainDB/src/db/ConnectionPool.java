@@ -0,0 +1,346 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small bounded JDBC connection pool.
+ *
+ * Connections are validated when borrowed after sitting idle, evicted when idle for too long,
+ * recycled once they reach their maximum lifetime and reported when held past the leak threshold
+ * (with where they were borrowed under -Dusms.pool.leakTrace=true).
+ * Callers always get a proxy; closing it hands the physical connection back to the pool.
+ * Each physical connection keeps its own {@link StatementRegistry} across borrows, and every
+ * statement created through the proxy is instrumented by {@link SqlTrace}.
+ * Every limit can be tuned with a -Dusms.pool.* system property.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    static final String RESET = "\u001B[0m";
+    static final String YELLOW = "\u001B[33m";
+
+    private final String url;
+    private final String user;
+    private final String pass;
+
+    private final int maxSize = Integer.getInteger("usms.pool.maxSize", 10);
+    private final int minIdle = Integer.getInteger("usms.pool.minIdle", 2);
+    private final long borrowTimeoutMs = Long.getLong("usms.pool.borrowTimeoutMs", 10_000L);
+    private final long idleTimeoutMs = Long.getLong("usms.pool.idleTimeoutMs", 10 * 60_000L);
+    private final long maxLifetimeMs = Long.getLong("usms.pool.maxLifetimeMs", 30 * 60_000L);
+    private final long leakThresholdMs = Long.getLong("usms.pool.leakThresholdMs", 5 * 60_000L);
+    private final long validateAfterIdleMs = Long.getLong("usms.pool.validateAfterIdleMs", 500L);
+    private final int validationTimeoutSec = Integer.getInteger("usms.pool.validationTimeoutSec", 3);
+    // A stack trace per borrow is too dear for the hot path; turn it on while hunting a reported leak
+    private final boolean leakTrace = Boolean.getBoolean("usms.pool.leakTrace");
+
+    private final Semaphore permits = new Semaphore(maxSize, true);
+    private final LinkedBlockingDeque<Entry> idle = new LinkedBlockingDeque<>();
+    private final Set<Entry> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String pass) {
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "usms-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Long.getLong("usms.pool.housekeepingMs", 30_000L);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // ==========================================================
+    // BORROW / RETURN
+    // ==========================================================
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        waiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + borrowTimeoutMs + " ms waiting for a connection (" + stats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        try {
+            Entry entry;
+            // Most recently returned first: it is the one least likely to have been dropped by the server
+            while ((entry = idle.pollFirst()) != null) {
+                if (isUsable(entry)) break;
+                discard(entry);
+            }
+            if (entry == null) entry = open();
+
+            entry.borrowedAt = System.currentTimeMillis();
+            entry.borrowSite = leakTrace ? new Throwable("Connection borrowed here") : null;
+            entry.leakReported = false;
+            borrowed.add(entry);
+            borrows.incrementAndGet();
+            return lease(entry);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /** Unit of work that runs against one borrowed connection, see {@link #run(Task)}. */
+    @FunctionalInterface
+    public interface Task {
+        void run(Connection conn) throws SQLException;
+    }
+
+    public void run(Task task) throws SQLException {
+        try (Connection conn = getConnection()) {
+            task.run(conn);
+        }
+    }
+
+    private void release(Entry entry) {
+        borrowed.remove(entry);
+        try {
+            if (!entry.broken && !closed && !isExpired(entry, System.currentTimeMillis())) {
+                // Never hand the next borrower a half-finished transaction
+                if (!entry.raw.getAutoCommit()) {
+                    entry.raw.rollback();
+                    entry.raw.setAutoCommit(true);
+                }
+                entry.lastUsedAt = System.currentTimeMillis();
+                idle.offerFirst(entry);
+                return;
+            }
+        } catch (SQLException e) {
+            entry.broken = true;
+        } finally {
+            permits.release();
+        }
+        discard(entry);
+    }
+
+    private Entry open() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, pass);
+        created.incrementAndGet();
+        return new Entry(raw);
+    }
+
+    private void discard(Entry entry) {
+        destroyed.incrementAndGet();
+        if (entry.statements != null) entry.statements.closeAll();
+        try {
+            entry.raw.close();
+        } catch (SQLException ignored) {
+            // already unusable, nothing left to release
+        }
+    }
+
+    private boolean isUsable(Entry entry) {
+        long now = System.currentTimeMillis();
+        if (entry.broken || isExpired(entry, now)) return false;
+        if (now - entry.lastUsedAt < validateAfterIdleMs) return true;
+        try {
+            if (entry.raw.isValid(validationTimeoutSec)) return true;
+        } catch (SQLException ignored) {
+            // treated as invalid below
+        }
+        validationFailures.incrementAndGet();
+        return false;
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAt >= maxLifetimeMs;
+    }
+
+    // ==========================================================
+    // HOUSEKEEPING (idle eviction, lifetime recycling, leaks)
+    // ==========================================================
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            for (Entry entry : idle) {
+                boolean idleTooLong = now - entry.lastUsedAt >= idleTimeoutMs && idle.size() > minIdle;
+                if ((idleTooLong || isExpired(entry, now)) && idle.remove(entry)) {
+                    discard(entry);
+                }
+            }
+
+            for (Entry entry : borrowed) {
+                if (!entry.leakReported && now - entry.borrowedAt >= leakThresholdMs) {
+                    entry.leakReported = true;
+                    leaks.incrementAndGet();
+                    // Background thread: System.err stays out of the interactive menus
+                    System.err.println(YELLOW + "Possible connection leak: held for "
+                            + (now - entry.borrowedAt) / 1000 + "s"
+                            + (entry.borrowSite == null ? " (run with -Dusms.pool.leakTrace=true to see where)" : "") + RESET);
+                    if (entry.borrowSite != null) entry.borrowSite.printStackTrace(System.err);
+                }
+            }
+
+            while (!closed && idle.size() + borrowed.size() < minIdle && permits.tryAcquire()) {
+                try {
+                    Entry entry = open();
+                    entry.lastUsedAt = System.currentTimeMillis();
+                    idle.offerLast(entry);
+                } finally {
+                    permits.release();
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println(YELLOW + "Connection pool housekeeping failed: " + e.getMessage() + RESET);
+        }
+    }
+
+    // ==========================================================
+    // STATS
+    // ==========================================================
+    public record Stats(int total, int active, int idle, int waiting, long created, long destroyed,
+                        long borrows, long timeouts, long leaks, long validationFailures) {
+        @Override
+        public String toString() {
+            return String.format("total=%d active=%d idle=%d waiting=%d created=%d destroyed=%d borrows=%d timeouts=%d leaks=%d invalid=%d",
+                    total, active, idle, waiting, created, destroyed, borrows, timeouts, leaks, validationFailures);
+        }
+    }
+
+    public Stats stats() {
+        int active = borrowed.size();
+        int idleCount = idle.size();
+        return new Stats(active + idleCount, active, idleCount, waiting.get(), created.get(), destroyed.get(),
+                borrows.get(), timeouts.get(), leaks.get(), validationFailures.get());
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        Entry entry;
+        while ((entry = idle.pollFirst()) != null) discard(entry);
+        // Borrowed connections are discarded by release() once their holders close them
+    }
+
+    // ==========================================================
+    // POOLED ENTRY + LEASE PROXY
+    // ==========================================================
+    private static final class Entry {
+        final Connection raw;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastUsedAt = createdAt;
+        volatile long borrowedAt;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+        volatile boolean broken;
+        StatementRegistry statements;
+
+        Entry(Connection raw) {
+            this.raw = raw;
+        }
+
+        StatementRegistry statements() {
+            if (statements == null) statements = new StatementRegistry(raw);
+            return statements;
+        }
+    }
+
+    private Connection lease(Entry entry) {
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class, StatementRegistry.Holder.class }, new Lease(entry));
+    }
+
+    /** One borrow of a physical connection; becomes unusable once closed. */
+    private final class Lease implements InvocationHandler {
+        private final Entry entry;
+        private boolean returned;
+
+        Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(entry);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || entry.raw.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled[" + entry.raw + "]";
+                }
+                default -> {
+                    if (returned) throw new SQLException("Connection has already been returned to the pool");
+                }
+            }
+
+            if (method.getDeclaringClass() == StatementRegistry.Holder.class) {
+                return entry.statements();
+            }
+
+            try {
+                Object result = method.invoke(entry.raw, args);
+                if (result instanceof Statement statement) {
+                    // prepareStatement(sql, ...) and prepareCall(sql, ...) name their SQL up front
+                    return SqlTrace.wrap(statement, method.getName().startsWith("prepare") ? (String) args[0] : null);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQLState class 08 = connection exception; the socket is gone, do not pool it again
+                if (cause instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                    entry.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out invoice numbers and product codes from the id_sequences table, hi/lo style: each
+ * process reserves a block of -Dusms.ids.blockSize (100) values with one atomic UPDATE and then
+ * serves them from memory. Values never repeat across sessions or instances and only grow within
+ * one process; a block that is not used up before the process exits leaves a gap, nothing more.
+ */
+public final class IdAllocator {
+
+    public enum Sequence {
+        INVOICE("invoice", "INV"),
+        PRODUCT_CODE("product_code", "P");
+
+        private final String key;
+        private final String prefix;
+
+        Sequence(String key, String prefix) {
+            this.key = key;
+            this.prefix = prefix;
+        }
+
+        public String prefix() {
+            return prefix;
+        }
+    }
+
+    /** Where a caller draws its ids from; lets the checkout take a fixed source in benchmarks. */
+    @FunctionalInterface
+    public interface Source {
+        String next() throws SQLException;
+    }
+
+    static final int BLOCK_SIZE = Integer.getInteger("usms.ids.blockSize", 100);
+
+    // LAST_INSERT_ID(expr) hands the new value back on this connection without a second lock
+    static final String RESERVE = "UPDATE id_sequences SET next_value = LAST_INSERT_ID(next_value + ?) WHERE name = ?";
+    static final String RESERVED = "SELECT LAST_INSERT_ID()";
+
+    /** The values [next, limit) this process may hand out without asking the database. */
+    private static final class Block {
+        final ReentrantLock lock = new ReentrantLock();
+        long next;
+        long limit;
+    }
+
+    private static final Map<Sequence, Block> blocks = new EnumMap<>(Sequence.class);
+
+    static {
+        for (Sequence sequence : Sequence.values()) blocks.put(sequence, new Block());
+    }
+
+    private IdAllocator() {}
+
+    /** The next code of the sequence, e.g. INV100042 or P100007. */
+    public static String next(ConnectionPool pool, Sequence sequence) throws SQLException {
+        return sequence.prefix() + nextValue(pool, sequence);
+    }
+
+    public static long nextValue(ConnectionPool pool, Sequence sequence) throws SQLException {
+        Block block = blocks.get(sequence);
+        // A lock rather than synchronized so a virtual thread refilling the block does not pin its carrier
+        block.lock.lock();
+        try {
+            if (block.next < block.limit) return block.next++;
+        } finally {
+            block.lock.unlock();
+        }
+        // Borrowed before the lock is taken again: a caller refilling on a connection it already holds
+        // must never wait on this lock while its holder waits on the pool
+        try (Connection conn = pool.getConnection()) {
+            return take(conn, sequence, block);
+        }
+    }
+
+    /**
+     * Like {@link #next(ConnectionPool, Sequence)}, but a block refill runs on {@code conn}, for a
+     * caller that already holds a connection. It must have no transaction open, since the refill is
+     * committed at once.
+     */
+    public static String next(Connection conn, Sequence sequence) throws SQLException {
+        return sequence.prefix() + take(conn, sequence, blocks.get(sequence));
+    }
+
+    private static long take(Connection conn, Sequence sequence, Block block) throws SQLException {
+        block.lock.lock();
+        try {
+            if (block.next >= block.limit) reserve(conn, sequence, block);
+            return block.next++;
+        } finally {
+            block.lock.unlock();
+        }
+    }
+
+    private static void reserve(Connection conn, Sequence sequence, Block block) throws SQLException {
+        // Committed on its own, so the row lock is gone before any caller's transaction goes on
+        PreparedStatement update = StatementRegistry.prepare(conn, RESERVE);
+        update.setInt(1, BLOCK_SIZE);
+        update.setString(2, sequence.key);
+        if (update.executeUpdate() == 0) {
+            if (!conn.getAutoCommit()) conn.rollback();
+            throw new SQLException("Sequence '" + sequence.key + "' is missing from id_sequences; run the schema migrations");
+        }
+        long limit;
+        try (ResultSet rs = StatementRegistry.prepare(conn, RESERVED).executeQuery()) {
+            rs.next();
+            limit = rs.getLong(1);
+        }
+        if (!conn.getAutoCommit()) conn.commit();
+        // Only a committed block is installed; a failed commit leaves the old, used-up one in place
+        block.next = limit - BLOCK_SIZE;
+        block.limit = limit;
+    }
+}
@@ -0,0 +1,440 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates and upgrades the usms_db schema from the numbered migrations below and records each
+ * applied version in schema_version.
+ *
+ * MySQL commits DDL implicitly, so a migration cannot be rolled back as a whole. Every step is
+ * written to be safe to run again instead (IF NOT EXISTS tables, indexes checked against
+ * information_schema first, triggers dropped and created again), and a version is recorded only
+ * after all of its steps succeeded.
+ * A named lock keeps two application instances from migrating at the same time.
+ * New migrations are appended with the next version number. An applied migration is only ever
+ * edited to add a step that it turns into a no-op wherever it already ran, such as a clean-up
+ * before a unique key.
+ */
+public final class SchemaMigrator {
+
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    public record Migration(int version, String description, List<Step> steps) {}
+
+    /** Schema version before and after a run, with the migrations it applied. */
+    public record Result(int fromVersion, int toVersion, List<Migration> applied) {}
+
+    static final String LOCK_NAME = "usms_db.schema_migration";
+    static final int LOCK_TIMEOUT_SEC = Integer.getInteger("usms.schema.lockTimeoutSec", 30);
+
+    static final String CREATE_VERSION_TABLE = """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version     INT          NOT NULL PRIMARY KEY,
+                description VARCHAR(200) NOT NULL,
+                applied_at  DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                millis      BIGINT       NOT NULL
+            )
+            """;
+    static final String CURRENT_VERSION = "SELECT COALESCE(MAX(version), 0) FROM schema_version";
+    static final String RECORD_VERSION = "INSERT INTO schema_version(version, description, millis) VALUES(?, ?, ?)";
+    static final String INDEX_EXISTS = """
+            SELECT COUNT(*) FROM information_schema.statistics
+            WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?
+            """;
+
+    // ==========================================================
+    // V1: BASELINE TABLES
+    // ==========================================================
+    static final String CREATE_USERS = """
+            CREATE TABLE IF NOT EXISTS users (
+                id            INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+                username      VARCHAR(50)  NOT NULL,
+                password      VARCHAR(255) NOT NULL,
+                role          VARCHAR(20)  NOT NULL,
+                active_status TINYINT      NOT NULL DEFAULT 1,
+                created_at    DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
+    static final String CREATE_CATEGORIES = """
+            CREATE TABLE IF NOT EXISTS categories (
+                id            INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+                name          VARCHAR(100) NOT NULL,
+                active_status TINYINT      NOT NULL DEFAULT 1
+            )
+            """;
+    static final String CREATE_PRODUCTS = """
+            CREATE TABLE IF NOT EXISTS products (
+                id            INT           NOT NULL AUTO_INCREMENT PRIMARY KEY,
+                product_code  VARCHAR(20)   NOT NULL,
+                name          VARCHAR(150)  NOT NULL,
+                price         DECIMAL(10,2) NOT NULL,
+                stock         INT           NOT NULL DEFAULT 0,
+                category_id   INT           NOT NULL,
+                active_status TINYINT       NOT NULL DEFAULT 1
+            )
+            """;
+    static final String CREATE_PRODUCT_SIZES = """
+            CREATE TABLE IF NOT EXISTS product_sizes (
+                id             INT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+                product_id     INT         NOT NULL,
+                size           VARCHAR(10) NOT NULL,
+                stock          INT         NOT NULL DEFAULT 0,
+                damaged        INT         NOT NULL DEFAULT 0,
+                critical_stock INT         NOT NULL DEFAULT 0
+            )
+            """;
+    static final String CREATE_CART = """
+            CREATE TABLE IF NOT EXISTS cart (
+                id         INT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+                user_id    INT         NOT NULL,
+                product_id INT         NOT NULL,
+                size       VARCHAR(10) NOT NULL,
+                quantity   INT         NOT NULL
+            )
+            """;
+    static final String CREATE_QUOTATIONS = """
+            CREATE TABLE IF NOT EXISTS quotations (
+                id             INT           NOT NULL AUTO_INCREMENT PRIMARY KEY,
+                user_id        INT           NOT NULL,
+                total_amount   DECIMAL(12,2) NOT NULL,
+                status         VARCHAR(20)   NOT NULL DEFAULT 'PENDING',
+                invoice_number VARCHAR(20)   NOT NULL,
+                created_at     DATETIME      NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
+    static final String CREATE_QUOTATION_ITEMS = """
+            CREATE TABLE IF NOT EXISTS quotation_items (
+                id           INT           NOT NULL AUTO_INCREMENT PRIMARY KEY,
+                quotation_id INT           NOT NULL,
+                product_id   INT           NOT NULL,
+                size         VARCHAR(10)   NOT NULL,
+                quantity     INT           NOT NULL,
+                subtotal     DECIMAL(12,2) NOT NULL
+            )
+            """;
+    static final String CREATE_SALES = """
+            CREATE TABLE IF NOT EXISTS sales (
+                id             INT           NOT NULL AUTO_INCREMENT PRIMARY KEY,
+                product_id     INT           NOT NULL,
+                quantity       INT           NOT NULL,
+                total_price    DECIMAL(12,2) NOT NULL,
+                payment_method VARCHAR(20)   NOT NULL,
+                user_id        INT           NOT NULL,
+                sale_date      DATETIME      NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
+    static final String CREATE_INVENTORY_LOG = """
+            CREATE TABLE IF NOT EXISTS inventory_log (
+                id             INT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+                product_id     INT         NOT NULL,
+                change_type    VARCHAR(20) NOT NULL,
+                quantity       INT         NOT NULL,
+                previous_stock INT         NOT NULL,
+                new_stock      INT         NOT NULL,
+                created_at     DATETIME    NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
+
+    // ==========================================================
+    // V2: SALES ROLLUPS
+    // ==========================================================
+    static final String CREATE_ROLLUP_PRODUCT = """
+            CREATE TABLE IF NOT EXISTS sales_rollup_product (
+                grain        CHAR(1)       NOT NULL,
+                period_start DATE          NOT NULL,
+                product_id   INT           NOT NULL,
+                quantity     INT           NOT NULL DEFAULT 0,
+                revenue      DECIMAL(14,2) NOT NULL DEFAULT 0,
+                PRIMARY KEY (grain, period_start, product_id),
+                KEY idx_rollup_product_qty (grain, period_start, quantity)
+            )
+            """;
+    static final String CREATE_ROLLUP_PAYMENT = """
+            CREATE TABLE IF NOT EXISTS sales_rollup_payment (
+                grain          CHAR(1)       NOT NULL,
+                period_start   DATE          NOT NULL,
+                payment_method VARCHAR(20)   NOT NULL,
+                sale_count     INT           NOT NULL DEFAULT 0,
+                revenue        DECIMAL(14,2) NOT NULL DEFAULT 0,
+                PRIMARY KEY (grain, period_start, payment_method)
+            )
+            """;
+
+    // ==========================================================
+    // V3: INDEXES FOR THE HOT ACCESS PATHS
+    // ==========================================================
+    // A cart line is one row per (user, product, size); older trees could hold duplicates, so
+    // they are folded into the oldest row before the unique key goes on
+    static final String MERGE_CART_DUPLICATES = """
+            UPDATE cart c
+            JOIN (SELECT MIN(id) AS keep_id, SUM(quantity) AS quantity
+                  FROM cart GROUP BY user_id, product_id, size HAVING COUNT(*) > 1) d ON c.id = d.keep_id
+            SET c.quantity = d.quantity
+            """;
+    static final String DELETE_CART_DUPLICATES = """
+            DELETE c FROM cart c
+            JOIN (SELECT MIN(id) AS keep_id, user_id, product_id, size
+                  FROM cart GROUP BY user_id, product_id, size HAVING COUNT(*) > 1) d
+              ON c.user_id = d.user_id AND c.product_id = d.product_id AND c.size = d.size AND c.id <> d.keep_id
+            """;
+
+    // Legacy random invoice numbers could collide. Every copy after the oldest keeps its number with
+    // its own id appended (INV12345-678 still fits VARCHAR(20)), so no quotation is lost and the
+    // unique key can go on. Sequence-issued numbers never contain a dash.
+    static final String RENAME_DUPLICATE_INVOICES = """
+            UPDATE quotations q
+            JOIN (SELECT invoice_number, MIN(id) AS keep_id
+                  FROM quotations GROUP BY invoice_number HAVING COUNT(*) > 1) d
+              ON q.invoice_number = d.invoice_number AND q.id <> d.keep_id
+            SET q.invoice_number = CONCAT(q.invoice_number, '-', q.id)
+            """;
+    // A size entered twice for one product is folded into its oldest row: stock and damaged add up,
+    // the higher critical level wins. Carts and quotations name sizes by text, so nothing points at
+    // the rows that go.
+    static final String MERGE_SIZE_DUPLICATES = """
+            UPDATE product_sizes ps
+            JOIN (SELECT MIN(id) AS keep_id, SUM(stock) AS stock, SUM(damaged) AS damaged,
+                         MAX(critical_stock) AS critical_stock
+                  FROM product_sizes GROUP BY product_id, size HAVING COUNT(*) > 1) d ON ps.id = d.keep_id
+            SET ps.stock = d.stock, ps.damaged = d.damaged, ps.critical_stock = d.critical_stock
+            """;
+    static final String DELETE_SIZE_DUPLICATES = """
+            DELETE ps FROM product_sizes ps
+            JOIN (SELECT MIN(id) AS keep_id, product_id, size
+                  FROM product_sizes GROUP BY product_id, size HAVING COUNT(*) > 1) d
+              ON ps.product_id = d.product_id AND ps.size = d.size AND ps.id <> d.keep_id
+            """;
+
+    // ==========================================================
+    // V4: ID SEQUENCES
+    // ==========================================================
+    static final String CREATE_ID_SEQUENCES = """
+            CREATE TABLE IF NOT EXISTS id_sequences (
+                name       VARCHAR(40) NOT NULL PRIMARY KEY,
+                next_value BIGINT      NOT NULL
+            )
+            """;
+    // Start above every number already issued, and above the old five-digit random range, so a
+    // new code can never meet an existing one
+    static final String SEED_INVOICE_SEQUENCE = """
+            INSERT IGNORE INTO id_sequences(name, next_value)
+            SELECT 'invoice', GREATEST(100000, COALESCE(MAX(CAST(SUBSTRING(invoice_number, 4) AS UNSIGNED)), 0) + 1)
+            FROM quotations WHERE invoice_number REGEXP '^INV[0-9]+$'
+            """;
+    static final String SEED_PRODUCT_CODE_SEQUENCE = """
+            INSERT IGNORE INTO id_sequences(name, next_value)
+            SELECT 'product_code', GREATEST(100000, COALESCE(MAX(CAST(SUBSTRING(product_code, 2) AS UNSIGNED)), 0) + 1)
+            FROM products WHERE product_code REGEXP '^P[0-9]+$'
+            """;
+
+    // ==========================================================
+    // V5: MAINTAINED PRODUCT STOCK TOTALS
+    // ==========================================================
+    // products.stock is the sum of its product_sizes.stock, kept by these triggers in the same
+    // transaction as every size change, whichever code path (or hand-written SQL) made it. A trigger
+    // locks the product row after the size row, so writers that change several sizes lock their
+    // products first (ProductDao.lockProducts) to keep one order: products by id, then sizes.
+    // A size change that leaves stock alone (critical stock, damaged only, a new empty size) does not
+    // touch the product row, so it takes no lock on it either.
+    static final String CREATE_SIZE_INSERT_TRIGGER = """
+            CREATE TRIGGER trg_product_sizes_stock_insert AFTER INSERT ON product_sizes FOR EACH ROW
+            BEGIN
+                IF NEW.stock <> 0 THEN
+                    UPDATE products SET stock = stock + NEW.stock WHERE id = NEW.product_id;
+                END IF;
+            END
+            """;
+    static final String CREATE_SIZE_UPDATE_TRIGGER = """
+            CREATE TRIGGER trg_product_sizes_stock_update AFTER UPDATE ON product_sizes FOR EACH ROW
+            BEGIN
+                IF NEW.stock <> OLD.stock THEN
+                    UPDATE products SET stock = stock + NEW.stock - OLD.stock WHERE id = NEW.product_id;
+                END IF;
+            END
+            """;
+    static final String CREATE_SIZE_DELETE_TRIGGER = """
+            CREATE TRIGGER trg_product_sizes_stock_delete AFTER DELETE ON product_sizes FOR EACH ROW
+            BEGIN
+                IF OLD.stock <> 0 THEN
+                    UPDATE products SET stock = stock - OLD.stock WHERE id = OLD.product_id;
+                END IF;
+            END
+            """;
+    // Runs after the triggers exist, so nothing written from here on is missed
+    static final String RECOMPUTE_PRODUCT_STOCK = """
+            UPDATE products p
+            LEFT JOIN (SELECT product_id, SUM(stock) AS stock FROM product_sizes GROUP BY product_id) s
+              ON s.product_id = p.id
+            SET p.stock = COALESCE(s.stock, 0)
+            """;
+
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Baseline tables", List.of(
+                    sql(CREATE_USERS), sql(CREATE_CATEGORIES), sql(CREATE_PRODUCTS), sql(CREATE_PRODUCT_SIZES),
+                    sql(CREATE_CART), sql(CREATE_QUOTATIONS), sql(CREATE_QUOTATION_ITEMS),
+                    sql(CREATE_SALES), sql(CREATE_INVENTORY_LOG))),
+            new Migration(2, "Sales rollup tables", List.of(
+                    sql(CREATE_ROLLUP_PRODUCT), sql(CREATE_ROLLUP_PAYMENT))),
+            new Migration(3, "Indexes for hot access paths", List.of(
+                    // Expiry sweep and pending list; id rides along in the secondary index
+                    index("quotations", "idx_quotations_status_created", false, "status, created_at"),
+                    // The clean-ups run before their unique keys. A database that already has the keys
+                    // has no duplicates left, so they find nothing there.
+                    sql(RENAME_DUPLICATE_INVOICES),
+                    index("quotations", "uq_quotations_invoice", true, "invoice_number"),
+                    index("quotation_items", "idx_quotation_items_quotation", false, "quotation_id, product_id, size"),
+                    sql(MERGE_CART_DUPLICATES), sql(DELETE_CART_DUPLICATES),
+                    index("cart", "uq_cart_user_product_size", true, "user_id, product_id, size"),
+                    sql(MERGE_SIZE_DUPLICATES), sql(DELETE_SIZE_DUPLICATES),
+                    index("product_sizes", "uq_product_sizes_product_size", true, "product_id, size"),
+                    index("products", "idx_products_category_active", false, "category_id, active_status, product_code"),
+                    index("products", "idx_products_code", false, "product_code"),
+                    index("users", "idx_users_username", false, "username"),
+                    // Keyset pagers seek on (date, id); InnoDB appends the id to every secondary index
+                    index("inventory_log", "idx_inventory_log_created", false, "created_at"),
+                    index("sales", "idx_sales_date", false, "sale_date"))),
+            new Migration(4, "Id sequences for invoice numbers and product codes", List.of(
+                    sql(CREATE_ID_SEQUENCES), sql(SEED_INVOICE_SEQUENCE), sql(SEED_PRODUCT_CODE_SEQUENCE))),
+            new Migration(5, "Product stock totals maintained from product_sizes", List.of(
+                    trigger("trg_product_sizes_stock_insert", CREATE_SIZE_INSERT_TRIGGER),
+                    trigger("trg_product_sizes_stock_update", CREATE_SIZE_UPDATE_TRIGGER),
+                    trigger("trg_product_sizes_stock_delete", CREATE_SIZE_DELETE_TRIGGER),
+                    sql(RECOMPUTE_PRODUCT_STOCK))),
+            new Migration(6, "Quotations indexed by creation time for exports", List.of(
+                    // The status-led index cannot serve a date range over every status
+                    index("quotations", "idx_quotations_created", false, "created_at")))
+    );
+
+    private static volatile Result lastRun;
+
+    private SchemaMigrator() {}
+
+    /** Brings the schema up to the latest version; returns what was applied. */
+    public static Result migrate(Connection conn) throws SQLException {
+        acquireLock(conn);
+        try {
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate(CREATE_VERSION_TABLE);
+            }
+            int from = currentVersion(conn);
+            int to = from;
+            List<Migration> applied = new ArrayList<>();
+
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() <= from) continue;
+                long start = System.currentTimeMillis();
+                for (Step step : migration.steps()) step.apply(conn);
+                recordVersion(conn, migration, System.currentTimeMillis() - start);
+                applied.add(migration);
+                to = migration.version();
+            }
+
+            Result result = new Result(from, to, applied);
+            lastRun = result;
+            return result;
+        } finally {
+            releaseLock(conn);
+        }
+    }
+
+    public static int currentVersion(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(CURRENT_VERSION)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /** Latest version this build knows about. */
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+    }
+
+    /** Outcome of the last {@link #migrate} in this process, or null if it has not run. */
+    public static Result lastRun() {
+        return lastRun;
+    }
+
+    private static void recordVersion(Connection conn, Migration migration, long millis) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(RECORD_VERSION)) {
+            ps.setInt(1, migration.version());
+            ps.setString(2, migration.description());
+            ps.setLong(3, millis);
+            ps.executeUpdate();
+        }
+    }
+
+    // ==========================================================
+    // STEPS
+    // ==========================================================
+    static Step sql(String ddl) {
+        return conn -> {
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate(ddl);
+            }
+        };
+    }
+
+    // MySQL has no CREATE INDEX IF NOT EXISTS; INPLACE/LOCK=NONE keeps the table writable while it builds
+    static Step index(String table, String name, boolean unique, String columns) {
+        return conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(INDEX_EXISTS)) {
+                ps.setString(1, table);
+                ps.setString(2, name);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) > 0) return;
+                }
+            }
+            String ddl = "ALTER TABLE " + table + " ADD " + (unique ? "UNIQUE " : "") + "INDEX " + name
+                    + " (" + columns + "), ALGORITHM=INPLACE, LOCK=NONE";
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate(ddl);
+            } catch (SQLException e) {
+                throw new SQLException("Could not add index " + name + " on " + table + ": " + e.getMessage(),
+                        e.getSQLState(), e.getErrorCode(), e);
+            }
+        };
+    }
+
+    // Dropped and created again, so a rerun after a half-applied migration picks up this definition
+    static Step trigger(String name, String ddl) {
+        return conn -> {
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("DROP TRIGGER IF EXISTS " + name);
+                st.executeUpdate(ddl);
+            } catch (SQLException e) {
+                throw new SQLException("Could not create trigger " + name + ": " + e.getMessage(),
+                        e.getSQLState(), e.getErrorCode(), e);
+            }
+        };
+    }
+
+    // ==========================================================
+    // MIGRATION LOCK
+    // ==========================================================
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SEC);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another instance to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        }
+    }
+}
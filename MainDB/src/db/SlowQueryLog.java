@@ -0,0 +1,109 @@
+package db;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statements slower than -Dusms.slowlog.thresholdMs (50), appended to logs/slow-queries.log by one
+ * background thread so a slow query never waits on the disk as well. The file is rotated to
+ * slow-queries.log.1 .. .N once it passes -Dusms.slowlog.maxBytes; -Dusms.slowlog.files generations
+ * are kept. When the writer falls behind, entries are dropped and counted rather than queued forever.
+ */
+public final class SlowQueryLog {
+
+    static final String RESET = "\u001B[0m";
+    static final String YELLOW = "\u001B[33m";
+
+    public record Stats(long logged, long dropped, long thresholdMs) {}
+
+    private record Entry(LocalDateTime at, String sql, int binds, long nanos, long rows, String caller) {}
+
+    static final long THRESHOLD_MS = Long.getLong("usms.slowlog.thresholdMs", 50L);
+    static final Path DIR = Path.of(System.getProperty("usms.slowlog.dir", "logs"));
+    static final long MAX_BYTES = Long.getLong("usms.slowlog.maxBytes", 5L * 1024 * 1024);
+    static final int FILES = Integer.getInteger("usms.slowlog.files", 5);
+    private static final String NAME = "slow-queries.log";
+
+    private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(Integer.getInteger("usms.slowlog.queueSize", 1024));
+    private static final AtomicLong logged = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static Thread writer;
+
+    private SlowQueryLog() {}
+
+    static boolean isSlow(long nanos) {
+        return nanos >= TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MS);
+    }
+
+    static void offer(String sql, int binds, long nanos, long rows, String caller) {
+        if (!isSlow(nanos)) return;
+        ensureWriter();
+        if (!queue.offer(new Entry(LocalDateTime.now(), sql, binds, nanos, rows, caller))) dropped.incrementAndGet();
+    }
+
+    public static Stats stats() {
+        return new Stats(logged.get(), dropped.get(), THRESHOLD_MS);
+    }
+
+    private static synchronized void ensureWriter() {
+        if (writer != null) return;
+        writer = new Thread(SlowQueryLog::drain, "usms-slowlog");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // ==========================================================
+    // WRITER THREAD
+    // ==========================================================
+    private static void drain() {
+        Path file = DIR.resolve(NAME);
+        while (true) {
+            try {
+                Entry first = queue.take();
+                Files.createDirectories(DIR);
+                if (Files.exists(file) && Files.size(file) >= MAX_BYTES) rotate(file);
+
+                try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    // Write whatever else piled up in the same open/close
+                    Entry entry = first;
+                    do {
+                        out.write(format(entry));
+                        out.newLine();
+                        logged.incrementAndGet();
+                    } while ((entry = queue.poll()) != null);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                dropped.incrementAndGet();
+                System.err.println(YELLOW + "Slow query log not written: " + e.getMessage() + RESET);
+            }
+        }
+    }
+
+    private static void rotate(Path file) throws IOException {
+        Files.deleteIfExists(DIR.resolve(NAME + "." + FILES));
+        for (int i = FILES - 1; i >= 1; i--) {
+            Path older = DIR.resolve(NAME + "." + i);
+            if (Files.exists(older)) Files.move(older, DIR.resolve(NAME + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(file, DIR.resolve(NAME + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String format(Entry e) {
+        return String.format("%s | %9.2f ms | rows=%-6d | binds=%-3d | %s | %s",
+                e.at().truncatedTo(ChronoUnit.MILLIS), e.nanos() / 1_000_000.0, e.rows(), e.binds(), e.caller(), e.sql());
+    }
+}
@@ -0,0 +1,270 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * Instruments every statement that leaves the pool. Each execution is recorded with its SQL text,
+ * bound parameter count, time spent in execute, rows returned or affected and the manager method
+ * that issued it; the totals per SQL text are kept in a {@link Profile}, latencies go to the
+ * "sql ..." histograms and anything slower than -Dusms.slowlog.thresholdMs goes to the
+ * {@link SlowQueryLog}.
+ *
+ * Finding the manager method walks the stack, which is too dear for every execution. It is done
+ * for each slow statement and for one in -Dusms.trace.callerSample (64) of the rest, which is
+ * enough to keep each profile's last caller current.
+ *
+ * Rows of a query are only known once its result set has been read, so a query is recorded when
+ * the result set runs out or is closed, or at the latest when its statement is reused or closed.
+ */
+public final class SqlTrace {
+
+    /** Running totals for one SQL text. */
+    public static final class Profile {
+        private final String sql;
+        private final Histogram latency;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLong maxRows = new AtomicLong();
+        private volatile String lastCaller = "?";
+
+        Profile(String sql) {
+            this.sql = sql;
+            this.latency = Metrics.histogram("sql " + sql);
+        }
+
+        public String sql() { return sql; }
+        public Histogram latency() { return latency; }
+        public long calls() { return calls.sum(); }
+        public long rows() { return rows.sum(); }
+        public long maxRows() { return maxRows.get(); }
+        public double totalMillis() { return nanos.sum() / 1_000_000.0; }
+        public String lastCaller() { return lastCaller; }
+    }
+
+    static final int CALLER_SAMPLE = Math.max(1, Integer.getInteger("usms.trace.callerSample", 64));
+
+    private static final ConcurrentHashMap<String, Profile> profiles = new ConcurrentHashMap<>();
+
+    // Frames from these packages are plumbing; the caller is the first frame outside them
+    private static final String[] PLUMBING = { "db.", "dao.", "service.", "metrics.", "java.", "javax.", "jdk.",
+            "sun.", "com.sun.", "com.mysql." };
+
+    private SqlTrace() {}
+
+    static Statement wrap(Statement target, String sql) {
+        Class<?> type = target instanceof CallableStatement ? CallableStatement.class
+                : target instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(SqlTrace.class.getClassLoader(), new Class<?>[] { type },
+                new Traced(target, sql == null ? null : profile(sql)));
+    }
+
+    static PreparedStatement wrap(PreparedStatement target, String sql) {
+        return (PreparedStatement) wrap((Statement) target, sql);
+    }
+
+    static Profile profile(String sql) {
+        return profiles.computeIfAbsent(sql.strip().replaceAll("\\s+", " "), Profile::new);
+    }
+
+    /** Every SQL text seen so far, most total time first. */
+    public static List<Profile> profiles() {
+        List<Profile> list = new ArrayList<>(profiles.values());
+        list.sort(Comparator.comparingDouble(Profile::totalMillis).reversed());
+        return list;
+    }
+
+    static String caller() {
+        Optional<String> frame = StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> !isPlumbing(f.getClassName()))
+                .map(f -> simpleName(f.getClassName()) + "." + methodName(f.getMethodName()))
+                .findFirst());
+        return frame.orElse("?");
+    }
+
+    private static boolean isPlumbing(String className) {
+        for (String prefix : PLUMBING) {
+            if (className.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    // lambda$addToCart$2 -> addToCart
+    private static String methodName(String name) {
+        if (!name.startsWith("lambda$")) return name;
+        int end = name.indexOf('$', 7);
+        return end < 0 ? name.substring(7) : name.substring(7, end);
+    }
+
+    // ==========================================================
+    // ONE EXECUTION
+    // ==========================================================
+    private static final class Execution {
+        final Profile profile;
+        final int binds;
+        final long nanos;
+        final String caller;
+        long rows;
+        boolean done;
+
+        Execution(Profile profile, int binds, long nanos, String caller) {
+            this.profile = profile;
+            this.binds = binds;
+            this.nanos = nanos;
+            this.caller = caller;
+        }
+
+        void finish() {
+            if (done) return;
+            done = true;
+            profile.calls.increment();
+            profile.rows.add(rows);
+            profile.nanos.add(nanos);
+            profile.maxRows.accumulateAndGet(rows, Math::max);
+            if (caller != null) profile.lastCaller = caller;
+            profile.latency.recordNanos(nanos);
+            SlowQueryLog.offer(profile.sql, binds, nanos, rows, caller);
+        }
+    }
+
+    // ==========================================================
+    // STATEMENT PROXY
+    // ==========================================================
+    private static final class Traced implements InvocationHandler {
+        private final Statement target;
+        private final Profile prepared;
+        private int binds;
+        private int batchBinds;
+        private Execution pending;
+
+        Traced(Statement target, Profile prepared) {
+            this.target = target;
+            this.prepared = prepared;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) return execute(method, args);
+
+            switch (name) {
+                case "equals" -> { return proxy == args[0]; }
+                case "hashCode" -> { return System.identityHashCode(proxy); }
+                case "clearParameters" -> binds = 0;
+                case "clearBatch" -> batchBinds = 0;
+                case "addBatch" -> batchBinds += binds;
+                case "close" -> flush();
+                default -> {
+                    // setInt(3, ...) and friends; Statement's own setters (setFetchSize...) do not bind anything
+                    if (name.startsWith("set") && method.getDeclaringClass() == PreparedStatement.class
+                            && args != null && args.length > 0 && args[0] instanceof Integer index) {
+                        binds = Math.max(binds, index);
+                    }
+                }
+            }
+
+            Object result = invokeTarget(method, args);
+            if (name.equals("getResultSet") && result instanceof ResultSet rs && pending != null && !pending.done) {
+                return wrapResultSet(rs, pending);
+            }
+            return result;
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            flush();
+            Profile profile = args != null && args.length > 0 && args[0] instanceof String sql ? profile(sql) : prepared;
+            if (profile == null) return invokeTarget(method, args);
+
+            boolean batch = method.getName().contains("Batch");
+            long start = System.nanoTime();
+            Object result = invokeTarget(method, args);
+            long nanos = System.nanoTime() - start;
+
+            // Null unless this one is slow or sampled; see the class comment
+            String caller = SlowQueryLog.isSlow(nanos) || profile.calls.sum() % CALLER_SAMPLE == 0 ? caller() : null;
+            Execution execution = new Execution(profile, batch ? batchBinds : binds, nanos, caller);
+            if (batch) batchBinds = 0;
+            switch (result) {
+                case ResultSet rs -> {
+                    pending = execution;
+                    return wrapResultSet(rs, execution);
+                }
+                case Integer count -> execution.rows = count;
+                case Long count -> execution.rows = count;
+                case int[] counts -> {
+                    for (int c : counts) execution.rows += Math.max(c, 0);
+                }
+                case long[] counts -> {
+                    for (long c : counts) execution.rows += Math.max(c, 0);
+                }
+                case Boolean hasResultSet when hasResultSet -> {
+                    // Rows are counted if and when the caller fetches the result set
+                    pending = execution;
+                    return result;
+                }
+                case null, default -> execution.rows = Math.max(target.getUpdateCount(), 0);
+            }
+            execution.finish();
+            return result;
+        }
+
+        private void flush() {
+            if (pending != null) pending.finish();
+            pending = null;
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // ==========================================================
+    // RESULT SET PROXY (row counting)
+    // ==========================================================
+    private static ResultSet wrapResultSet(ResultSet rs, Execution execution) {
+        return (ResultSet) Proxy.newProxyInstance(SqlTrace.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals" -> { return proxy == args[0]; }
+                        case "hashCode" -> { return System.identityHashCode(proxy); }
+                        case "close" -> execution.finish();
+                        default -> { }
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(rs, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (method.getName().equals("next")) {
+                        if ((Boolean) result) execution.rows++;
+                        else execution.finish();
+                    }
+                    return result;
+                });
+    }
+}
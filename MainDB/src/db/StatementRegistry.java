@@ -0,0 +1,125 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepared statements owned by one physical connection, keyed by their SQL text.
+ *
+ * A statement is parsed and prepared the first time a DAO asks for it and then handed back
+ * (with parameters and batch cleared) on every later call against the same connection.
+ * Callers must not close the statements they get from here, only their result sets.
+ * Every statement is instrumented by {@link SqlTrace}.
+ *
+ * Only pooled connections ({@link Holder}) keep a registry. A connection that did not come from the
+ * pool (a tool, an ad-hoc script) gets a fresh statement on every call, closed along with the
+ * connection; a global map of them would pin every such connection, since each statement refers
+ * back to it.
+ */
+public final class StatementRegistry {
+
+    /** Implemented by pooled connections so the registry lives as long as the physical connection. */
+    public interface Holder {
+        StatementRegistry statements();
+    }
+
+    private static final int MAX_STATEMENTS = Integer.getInteger("usms.statements.max", 100);
+
+    // Lengths an IN list is padded up to, so lists of any length share a handful of statements
+    // (and of SqlTrace profiles) instead of one per length
+    private static final int[] IN_LIST_SIZES = { 8, 32, 128, 500 };
+
+    private static final AtomicLong prepared = new AtomicLong();
+    private static final AtomicLong reused = new AtomicLong();
+
+    private final Connection conn;
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() <= MAX_STATEMENTS) return false;
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+
+    StatementRegistry(Connection conn) {
+        this.conn = conn;
+    }
+
+    public static PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        if (conn instanceof Holder holder) return holder.statements().get(sql, false);
+        return unpooled(conn, sql, false);
+    }
+
+    public static PreparedStatement prepareWithKeys(Connection conn, String sql) throws SQLException {
+        if (conn instanceof Holder holder) return holder.statements().get(sql, true);
+        return unpooled(conn, sql, true);
+    }
+
+    private static PreparedStatement unpooled(Connection conn, String sql, boolean generatedKeys) throws SQLException {
+        PreparedStatement ps = generatedKeys ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(sql);
+        prepared.incrementAndGet();
+        return SqlTrace.wrap(ps, sql);
+    }
+
+    private PreparedStatement get(String sql, boolean generatedKeys) throws SQLException {
+        String key = generatedKeys ? "#keys#" + sql : sql;
+        PreparedStatement ps = statements.get(key);
+        if (ps != null && !ps.isClosed()) {
+            ps.clearParameters();
+            ps.clearBatch();
+            reused.incrementAndGet();
+            return ps;
+        }
+
+        ps = SqlTrace.wrap(generatedKeys
+                ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(sql), sql);
+        statements.put(key, ps);
+        prepared.incrementAndGet();
+        return ps;
+    }
+
+    /**
+     * Placeholder count to use for an IN list of {@code count} values: the next padded length, or a
+     * multiple of the largest. Bind the padding by repeating the last value, which matches nothing new.
+     */
+    public static int inListSize(int count) {
+        for (int size : IN_LIST_SIZES) {
+            if (count <= size) return size;
+        }
+        int largest = IN_LIST_SIZES[IN_LIST_SIZES.length - 1];
+        return (count + largest - 1) / largest * largest;
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    void closeAll() {
+        for (PreparedStatement ps : statements.values()) closeQuietly(ps);
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+            // the connection is going away or the statement is already closed
+        }
+    }
+
+    public static long preparedCount() {
+        return prepared.get();
+    }
+
+    public static long reusedCount() {
+        return reused.get();
+    }
+}
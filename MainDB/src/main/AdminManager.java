@@ -3,12 +3,24 @@ package main;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
-import java.sql.PreparedStatement;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import db.ConnectionPool;
+import db.SchemaMigrator;
+import db.SlowQueryLog;
+import db.SqlTrace;
+import metrics.Histogram;
+import metrics.Metrics;
+import service.CatalogService;
+import service.ExpiryScheduler;
+import service.InventoryJournal;
+import service.ReceiptRenderer;
+import service.SaleCommitPipeline;
+import service.Session;
+import service.UserService;
 
 public class AdminManager {
 
@@ -20,7 +32,7 @@ public class AdminManager {
     // ================================
     // ADMIN MENU
     // ================================
-    public static void manageUsers(Connection conn, Scanner sc, int adminId, String adminUsername) {
+    public static void manageUsers(ConnectionPool pool, Scanner sc, Session admin) {
         while (true) {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -32,6 +44,8 @@ public class AdminManager {
             System.out.println("│ [2] View as Product Manager                              │");
             System.out.println("│ [3] View as Sales Manager                                │");
             System.out.println("│ [4] View Pending Recovery Requests                       │");
+            System.out.println("│ [5] View Database Status                                 │");
+            System.out.println("│ [6] View Metrics                                         │");
             System.out.println("│ [X] Back                                                 │");
             System.out.println("╰──────────────────────────────────────────────────────────╯");
             System.out.print("Enter choice ➤ ");
@@ -57,11 +71,11 @@ public class AdminManager {
                         String sub = sc.nextLine().trim().toUpperCase();
 
                         switch (sub) {
-                            case "1" -> viewUsers(conn);
-                            case "2" -> addUser(conn, sc);
-                            case "3" -> editUser(conn, sc);
-                            case "4" -> deactivateUser(conn, sc, adminId);
-                            case "5" -> recoverUser(conn, sc);
+                            case "1" -> MainDB.withConnection(pool, AdminManager::viewUsers);
+                            case "2" -> addUser(pool, sc);
+                            case "3" -> editUser(pool, sc);
+                            case "4" -> deactivateUser(pool, sc, admin);
+                            case "5" -> recoverUser(pool, sc);
                             case "X" -> inSubMenu = false;
                             default -> {
                                 System.out.println(RED + "Invalid choice!" + RESET);
@@ -71,11 +85,15 @@ public class AdminManager {
                     }
                 }
 
-                case "2" -> ProductManager.manageProducts(conn, sc, adminUsername, "ADMIN");
+                case "2" -> ProductManager.manageProducts(pool, sc, admin);
 
-                case "3" -> SalesManager.salesMenu(conn, sc, adminUsername, "ADMIN", adminId);
+                case "3" -> SalesManager.salesMenu(pool, sc, admin);
 
-                case "4" -> viewPendingRecoveries(conn, sc);
+                case "4" -> viewPendingRecoveries(pool, sc);
+
+                case "5" -> viewPoolStatus(pool);
+
+                case "6" -> viewMetrics();
 
                 case "X" -> { return; }
 
@@ -90,7 +108,7 @@ public class AdminManager {
     // =======================================
     // VIEW & APPROVE PENDING PRODUCT/CATEGORY RECOVERIES
     // =======================================
-    private static void viewPendingRecoveries(Connection conn, Scanner sc) {
+    private static void viewPendingRecoveries(ConnectionPool pool, Scanner sc) {
         while (true) {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -107,8 +125,8 @@ public class AdminManager {
             String choice = sc.nextLine().trim().toUpperCase();
 
             switch (choice) {
-                case "1" -> requestProductRecoveryAdmin(conn, sc);
-                case "2" -> requestCategoryRecoveryAdmin(conn, sc);
+                case "1" -> requestProductRecoveryAdmin(pool, sc);
+                case "2" -> requestCategoryRecoveryAdmin(pool, sc);
                 case "X" -> { return; }
                 default -> {
                     System.out.println(RED + "Invalid choice!" + RESET);
@@ -118,8 +136,119 @@ public class AdminManager {
         }
     }
 
+    // =======================================
+    // DATABASE STATUS (pool + sale commits)
+    // =======================================
+    private static void viewPoolStatus(ConnectionPool pool) {
+        MainDB.clearScreen();
+        System.out.println("╔══════════════════════════════════════════════════════════╗");
+        System.out.println("║                     DATABASE STATUS                      ║");
+        System.out.println("╚══════════════════════════════════════════════════════════╝");
+
+        SchemaMigrator.Result schema = SchemaMigrator.lastRun();
+        System.out.printf("%-22s │ %s of %d%n", "Schema version",
+                schema == null ? "unknown" : String.valueOf(schema.toVersion()), SchemaMigrator.latestVersion());
+        System.out.println("───────────────────────┼──────────────────────────────────");
+
+        ConnectionPool.Stats stats = pool.stats();
+        System.out.printf("%-22s │ %d / %d%n", "Open connections", stats.total(), pool.maxSize());
+        System.out.printf("%-22s │ %d%n", "In use", stats.active());
+        System.out.printf("%-22s │ %d%n", "Idle", stats.idle());
+        System.out.printf("%-22s │ %d%n", "Waiting borrowers", stats.waiting());
+        System.out.println("───────────────────────┼──────────────────────────────────");
+        System.out.printf("%-22s │ %d%n", "Total borrows", stats.borrows());
+        System.out.printf("%-22s │ %d%n", "Connections opened", stats.created());
+        System.out.printf("%-22s │ %d%n", "Connections closed", stats.destroyed());
+        System.out.printf("%-22s │ %d%n", "Failed validations", stats.validationFailures());
+        System.out.printf("%-22s │ %d%n", "Borrow timeouts", stats.timeouts());
+        System.out.printf("%-22s │ %d%n", "Suspected leaks", stats.leaks());
+        System.out.println("───────────────────────┼──────────────────────────────────");
+
+        SaleCommitPipeline.Stats sales = SaleCommitPipeline.stats();
+        System.out.printf("%-22s │ %d%n", "Sales committed", sales.commits());
+        System.out.printf("%-22s │ %d%n", "Sales aborted", sales.aborted());
+        System.out.printf("%-22s │ %.2f ms (max %.2f ms)%n", "Avg commit latency", sales.avgMicros() / 1000.0, sales.maxMicros() / 1000.0);
+        System.out.printf("%-22s │ %.1f%n", "Avg round trips", sales.avgRoundTrips());
+        System.out.println("───────────────────────┼──────────────────────────────────");
+
+        ReceiptRenderer.Stats renders = ReceiptRenderer.stats();
+        System.out.printf("%-22s │ %d queued, %d rendering%n", "Receipt images", renders.queued(), renders.rendering());
+        System.out.printf("%-22s │ %d written, %d failed%n", "Receipts finished", renders.completed(), renders.failed());
+        System.out.printf("%-22s │ %d ms (max %d ms)%n", "Avg render latency", renders.avgMillis(), renders.maxMillis());
+        System.out.println("───────────────────────┼──────────────────────────────────");
+
+        InventoryJournal.Stats journal = InventoryJournal.stats();
+        System.out.printf("%-22s │ %s, %d queued%n", "Inventory journal", journal.durability(), journal.queued());
+        System.out.printf("%-22s │ %d lines in %d flushes, %d direct%n", "Journal written", journal.written(),
+                journal.flushes(), journal.callerWrites());
+        System.out.printf("%-22s │ %d%n", "Journal failures", journal.failures());
+        System.out.println("───────────────────────┼──────────────────────────────────");
+
+        ExpiryScheduler.Stats expiry = ExpiryScheduler.stats();
+        ExpiryScheduler.Run last = expiry.lastRun();
+        if (last == null) {
+            System.out.printf("%-22s │ %s%n", "Last expiry sweep", "not run yet");
+        } else {
+            System.out.printf("%-22s │ %s (%d ms)%n", "Last expiry sweep", last.finishedAt(), last.millis());
+            System.out.printf("%-22s │ %d quotations, %d units%n", "Last sweep reclaimed", last.quotations(), last.units());
+        }
+        System.out.printf("%-22s │ %d quotations, %d units%n", "Reclaimed since start", expiry.totalQuotations(), expiry.totalUnits());
+        System.out.printf("%-22s │ %d%n", "Failed sweeps", expiry.failures());
+        System.out.println("───────────────────────┼──────────────────────────────────");
+
+        PosServer.Stats sessions = PosServer.stats();
+        System.out.printf("%-22s │ %d connected, %d since start%n", "Terminal sessions", sessions.active(), sessions.total());
+        System.out.printf("%-22s │ %d%n", "Terminals turned away", sessions.rejected());
+        MainDB.pause();
+    }
+
+    // =======================================
+    // METRICS (same figures as the usms MBeans)
+    // =======================================
+    private static void viewMetrics() {
+        MainDB.clearScreen();
+        System.out.println("╔══════════════════════════════════════════════════════════╗");
+        System.out.println("║                         METRICS                          ║");
+        System.out.println("╚══════════════════════════════════════════════════════════╝");
+
+        System.out.printf("%-40s │ %8s │ %9s │ %9s │ %9s%n", "Latency (ms)", "Count", "p50", "p99", "Max");
+        System.out.println("─────────────────────────────────────────┼──────────┼───────────┼───────────┼──────────");
+        for (Histogram h : Metrics.histograms()) {
+            // Statements get their own table below
+            if (h.getCount() == 0 || h.name().startsWith("sql ")) continue;
+            System.out.printf("%-40s │ %8d │ %9.2f │ %9.2f │ %9.2f%n", abbreviate(h.name(), 40),
+                    h.getCount(), h.getP50Millis(), h.getP99Millis(), h.getMaxMillis());
+        }
+        System.out.println("─────────────────────────────────────────┼──────────┼───────────┼───────────┼──────────");
+
+        System.out.printf("%-40s │ %8s │ %9s │ %9s │ %9s%n", "Top statements (ms)", "Calls", "Total", "p99", "Rows/call");
+        System.out.println("─────────────────────────────────────────┼──────────┼───────────┼───────────┼──────────");
+        for (SqlTrace.Profile p : SqlTrace.profiles().stream().limit(TOP_STATEMENTS).toList()) {
+            System.out.printf("%-40s │ %8d │ %9.1f │ %9.2f │ %9.1f%n", abbreviate(p.sql(), 40), p.calls(),
+                    p.totalMillis(), p.latency().getP99Millis(), p.calls() == 0 ? 0.0 : (double) p.rows() / p.calls());
+            System.out.printf("  %-38s │%n", "↳ " + abbreviate(p.lastCaller(), 36));
+        }
+        SlowQueryLog.Stats slow = SlowQueryLog.stats();
+        System.out.printf("%-40s │ %d logged, %d dropped (over %d ms)%n", "Slow query log", slow.logged(), slow.dropped(), slow.thresholdMs());
+        System.out.println("─────────────────────────────────────────┼──────────┼───────────┼───────────┼──────────");
+
+        for (Metrics.Counter c : Metrics.counters()) {
+            System.out.printf("%-40s │ %8d%n", abbreviate(c.name(), 40), c.getValue());
+        }
+        for (Metrics.Gauge g : Metrics.gauges()) {
+            System.out.printf("%-40s │ %8d%n", abbreviate(g.name(), 40), g.getValue());
+        }
+        MainDB.pause();
+    }
+
+    private static final int TOP_STATEMENTS = 10;
+
+    private static String abbreviate(String text, int width) {
+        return text.length() <= width ? text : text.substring(0, width - 3) + "...";
+    }
+
     // ADMIN APPROVE PRODUCT RECOVERY
-    private static void requestProductRecoveryAdmin(Connection conn, Scanner sc) {
+    private static void requestProductRecoveryAdmin(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             String sql = """
@@ -133,7 +262,8 @@ public class AdminManager {
             Map<Integer, String> productMap = new LinkedHashMap<>();
             Map<Integer, String> productCategory = new LinkedHashMap<>();
 
-            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            try (Connection conn = pool.getConnection();
+                 Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
                 System.out.printf("%-4s │ %-40s │ %-40s%n", "ID", "Product Name", "Category");
                 System.out.println("─────┼──────────────────────────────────────────┼──────────────────────────────────────────────");
                 while (rs.next()) {
@@ -168,11 +298,7 @@ public class AdminManager {
                 return;
             }
 
-            String updateSql = "UPDATE products SET active_status = 1 WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                ps.setInt(1, selectedId);
-                ps.executeUpdate();
-            }
+            CatalogService.approveProductRecovery(pool, selectedId);
 
             System.out.println(GREEN + "Product recovery approved!" + RESET);
             MainDB.pause();
@@ -183,12 +309,13 @@ public class AdminManager {
     }
 
     // ADMIN APPROVE CATEGORY RECOVERY
-    private static void requestCategoryRecoveryAdmin(Connection conn, Scanner sc) {
+    private static void requestCategoryRecoveryAdmin(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             String sql = "SELECT id, name FROM categories WHERE active_status = 2 ORDER BY id";
             List<Integer> ids = new ArrayList<>();
-            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            try (Connection conn = pool.getConnection();
+                 Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
                 System.out.println("ID   │ Category Name");
                 System.out.println("─────┼──────────────────────────────────────────────────────────");
                 while (rs.next()) {
@@ -217,11 +344,7 @@ public class AdminManager {
                 return;
             }
 
-            String updateSql = "UPDATE categories SET active_status = 1 WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                ps.setInt(1, selectedId);
-                ps.executeUpdate();
-            }
+            CatalogService.approveCategoryRecovery(pool, selectedId);
 
             System.out.println(GREEN + "Category recovery approved!" + RESET);
             MainDB.pause();
@@ -232,34 +355,6 @@ public class AdminManager {
     }
 
 
-    // ================================
-    // OVERLOADED 3-PARAMETER METHOD
-    // ================================
-    public static void manageUsers(Connection conn, Scanner sc, int adminId) {
-        String adminUsername = "";
-        try {
-            String sql = "SELECT username FROM users WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, adminId);
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    adminUsername = rs.getString("username");
-                } else {
-                    System.out.println("\u001B[31mAdmin not found!\u001B[0m");
-                    MainDB.pause();
-                    return;
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("\u001B[31mError fetching admin username: " + e.getMessage() + "\u001B[0m");
-            MainDB.pause();
-            return;
-        }
-
-        // Call the main 4-parameter method
-        manageUsers(conn, sc, adminId, adminUsername);
-    }
-
     // ================================
     // DISPLAY USERS (NO PAUSE)
     // ================================
@@ -297,6 +392,7 @@ public class AdminManager {
                 System.out.println("──────┼──────────────────────┼─────────────────┼──────────────");
             }
         } catch (Exception e) {
+            Metrics.error("displayUsers");
             System.out.println(RED + "Error loading users: " + e.getMessage() + RESET);
         }
     }
@@ -317,7 +413,7 @@ public class AdminManager {
     // ================================
     // ADD USER
     // ================================
-    public static void addUser(Connection conn, Scanner sc) {
+    public static void addUser(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -361,13 +457,7 @@ public class AdminManager {
                 break;
             }
 
-            String sql = "INSERT INTO users (username, password, role, active_status) VALUES (?, ?, ?, 1)";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, username);
-                ps.setString(2, password);
-                ps.setString(3, role);
-                ps.executeUpdate();
-            }
+            UserService.addUser(pool, new UserService.NewUser(username, password, role));
 
             System.out.println(GREEN + "User added successfully!" + RESET);
             MainDB.pause();
@@ -381,14 +471,14 @@ public class AdminManager {
     // ================================
     // EDIT USER
     // ================================
-    public static void editUser(Connection conn, Scanner sc) {
+    public static void editUser(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
             System.out.println("║                         EDIT USER                        ║");
             System.out.println("╚══════════════════════════════════════════════════════════╝");
 
-            displayUsers(conn);
+            MainDB.withConnection(pool, AdminManager::displayUsers);
 
             System.out.println(YELLOW + "Type 'back' to cancel." + RESET);
             System.out.print("\nEnter user ID to edit: ");
@@ -406,27 +496,10 @@ public class AdminManager {
             System.out.print("New role (USER / PRODUCTMANAGER / SALESMANAGER / ADMIN) or leave blank: ");
             String newRole = sc.nextLine().trim().toUpperCase();
 
-            String sql = """
-                UPDATE users
-                SET username = IF(? = '', username, ?),
-                    password = IF(? = '', password, ?),
-                    role = IF(? = '', role, ?)
-                WHERE id = ?
-            """;
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, newUsername);
-                ps.setString(2, newUsername);
-
-                ps.setString(3, newPassword);
-                ps.setString(4, newPassword);
-
-                ps.setString(5, newRole);
-                ps.setString(6, newRole);
-
-                ps.setInt(7, id);
-
-                ps.executeUpdate();
+            if (!UserService.editUser(pool, new UserService.UserEdit(id, newUsername, newPassword, newRole))) {
+                System.out.println(RED + "User ID not found!" + RESET);
+                MainDB.pause();
+                return;
             }
 
             System.out.println(GREEN + "User updated!" + RESET);
@@ -441,14 +514,14 @@ public class AdminManager {
     // ================================
     // DELETE USER (SET inactive)
     // ================================
-    public static void deactivateUser(Connection conn, Scanner sc, int adminId) {
+    public static void deactivateUser(ConnectionPool pool, Scanner sc, Session admin) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
             System.out.println("║                      DEACTIVATE USER                     ║");
             System.out.println("╚══════════════════════════════════════════════════════════╝");
 
-            displayUsers(conn);
+            MainDB.withConnection(pool, AdminManager::displayUsers);
 
             System.out.println(YELLOW + "Type 'back' to cancel." + RESET);
             System.out.print("\nEnter user ID to deactivate: ");
@@ -458,7 +531,7 @@ public class AdminManager {
             int id = Integer.parseInt(idInput);
 
             // Prevent self-deactivation
-            if (id == adminId) {
+            if (id == admin.userId()) {
                 System.out.println(RED + "You cannot deactivate your own account!" + RESET);
                 MainDB.pause();
                 return;
@@ -477,31 +550,18 @@ public class AdminManager {
             System.out.print("Enter your admin password to continue: ");
             String adminPass = sc.nextLine().trim();
 
-            String checkAdmin = "SELECT password FROM users WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(checkAdmin)) {
-                ps.setInt(1, adminId);
-                ResultSet rs = ps.executeQuery();
-
-                if (!rs.next()) {
-                    System.out.println(RED + "Admin verification failed!" + RESET);
+            switch (UserService.deactivate(pool, admin.userId(), adminPass, id)) {
+                case SELF -> {
+                    System.out.println(RED + "You cannot deactivate your own account!" + RESET);
                     MainDB.pause();
                     return;
                 }
-
-                String correctPass = rs.getString("password");
-
-                if (!correctPass.equals(adminPass)) {
+                case WRONG_PASSWORD -> {
                     System.out.println(RED + "Incorrect password. Action denied!" + RESET);
                     MainDB.pause();
                     return;
                 }
-            }
-
-            // FINAL ACTION: Deactivate user
-            String sql = "UPDATE users SET active_status = 0 WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, id);
-                ps.executeUpdate();
+                case DEACTIVATED -> {}
             }
 
             System.out.println(GREEN + "User successfully deactivated!" + RESET);
@@ -516,7 +576,7 @@ public class AdminManager {
     // ================================
     // RECOVER USER
     // ================================
-    public static void recoverUser(Connection conn, Scanner sc) {
+    public static void recoverUser(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -531,7 +591,8 @@ public class AdminManager {
 
             List<Integer> ids = new ArrayList<>();
 
-            try (Statement st = conn.createStatement();
+            try (Connection conn = pool.getConnection();
+                 Statement st = conn.createStatement();
                  ResultSet rs = st.executeQuery(sql)) {
 
                 System.out.printf("%-5s │ %-20s │ %-15s%n", "ID", "Username", "Role");
@@ -565,11 +626,7 @@ public class AdminManager {
                 return;
             }
 
-            String updateSql = "UPDATE users SET active_status = 1 WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                ps.setInt(1, id);
-                ps.executeUpdate();
-            }
+            UserService.recover(pool, id);
 
             System.out.println(GREEN + "User recovered!" + RESET);
             MainDB.pause();
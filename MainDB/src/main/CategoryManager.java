@@ -2,6 +2,9 @@ package main;
 
 import java.sql.*;
 import java.util.*;
+import db.ConnectionPool;
+import metrics.Metrics;
+import service.CatalogService;
 
 public class CategoryManager {
     static final String RESET = "\u001B[0m";
@@ -12,7 +15,7 @@ public class CategoryManager {
     // ================================
     // CATEGORY MENU
     // ================================
-    public static void manageCategories(Connection conn, Scanner sc) {
+    public static void manageCategories(ConnectionPool pool, Scanner sc) {
         while (true) {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -29,10 +32,10 @@ public class CategoryManager {
             String input = sc.nextLine().trim().toUpperCase();
 
             switch (input) {
-                case "1" -> viewCategories(conn);
-                case "2" -> addCategory(conn, sc);
-                case "3" -> editCategory(conn, sc);
-                case "4" -> deleteCategory(conn, sc);
+                case "1" -> MainDB.withConnection(pool, CategoryManager::viewCategories);
+                case "2" -> addCategory(pool, sc);
+                case "3" -> editCategory(pool, sc);
+                case "4" -> deleteCategory(pool, sc);
                 case "X" -> {
                     return; 
                 }
@@ -70,6 +73,7 @@ public class CategoryManager {
                 System.out.println("─────┼──────────────────────────────────────────────────────────");
             }
         } catch (Exception e) {
+            Metrics.error("displayCategories");
             System.out.println(RED + "Error loading categories: " + e.getMessage() + RESET);
         }
     }
@@ -96,7 +100,7 @@ public class CategoryManager {
     // ================================
     // ADD CATEGORY
     // ================================
-    public static void addCategory(Connection conn, Scanner sc) {
+    public static void addCategory(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -120,11 +124,7 @@ public class CategoryManager {
                 break;
             }
 
-            String sql = "INSERT INTO categories(name, active_status) VALUES(?, 1)";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, name);
-                ps.executeUpdate();
-            }
+            CatalogService.addCategory(pool, name);
 
             System.out.println(GREEN + "Category added successfully!" + RESET);
             MainDB.pause();
@@ -138,7 +138,7 @@ public class CategoryManager {
     // ================================
     // EDIT CATEGORY
     // ================================
-    public static void editCategory(Connection conn, Scanner sc) {
+    public static void editCategory(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -146,7 +146,7 @@ public class CategoryManager {
             System.out.println("╚══════════════════════════════════════════════════════════╝");
            
 
-            displayCategories(conn);
+            MainDB.withConnection(pool, CategoryManager::displayCategories);
             System.out.print("");
             System.out.println(YELLOW + "Type 'back' at any time to go back.\n" + RESET);
 
@@ -169,11 +169,10 @@ public class CategoryManager {
                 break;
             }
 
-            String sql = "UPDATE categories SET name = ? WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, newName);
-                ps.setInt(2, id);
-                ps.executeUpdate();
+            if (!CatalogService.renameCategory(pool, id, newName)) {
+                System.out.println(RED + "Category ID not found!" + RESET);
+                MainDB.pause();
+                return;
             }
 
             System.out.println(GREEN + "Category updated!" + RESET);
@@ -188,7 +187,7 @@ public class CategoryManager {
     // ================================
     // DELETE CATEGORY
     // ================================
-    public static void deleteCategory(Connection conn, Scanner sc) {
+    public static void deleteCategory(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -196,7 +195,7 @@ public class CategoryManager {
             System.out.println("╚══════════════════════════════════════════════════════════╝");
             
 
-            displayCategories(conn);
+            MainDB.withConnection(pool, CategoryManager::displayCategories);
 
             System.out.print("");
             System.out.println(YELLOW + "Type 'back' at any time to go back.\n" + RESET);
@@ -216,10 +215,10 @@ public class CategoryManager {
                 return;
             }
 
-            String sql = "UPDATE categories SET active_status = 0 WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, id);
-                ps.executeUpdate();
+            if (!CatalogService.deactivateCategory(pool, id)) {
+                System.out.println(RED + "Category ID not found!" + RESET);
+                MainDB.pause();
+                return;
             }
 
             System.out.println(GREEN + "Category deleted!" + RESET);
@@ -231,7 +230,7 @@ public class CategoryManager {
         }
     }
     
-    public static void requestRecovery(Connection conn, Scanner sc) {
+    public static void requestRecovery(ConnectionPool pool, Scanner sc) {
         while (true) {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -247,9 +246,9 @@ public class CategoryManager {
             String input = sc.nextLine().trim().toUpperCase();
 
             switch (input) {
-                case "1" -> requestCategoryRecovery(conn, sc);
-                case "2" -> requestProductRecovery(conn, sc);
-                case "3" -> checkPendingStatus(conn);
+                case "1" -> requestCategoryRecovery(pool, sc);
+                case "2" -> requestProductRecovery(pool, sc);
+                case "3" -> MainDB.withConnection(pool, CategoryManager::checkPendingStatus);
                 case "X" -> { return; }
                 default -> {
                     System.out.println(RED + "Invalid choice!" + RESET);
@@ -321,7 +320,7 @@ public class CategoryManager {
     // ============================
     // Category Recovery
     // ============================
-    private static void requestCategoryRecovery(Connection conn, Scanner sc) {
+    private static void requestCategoryRecovery(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -330,7 +329,8 @@ public class CategoryManager {
 
             String sql = "SELECT id, name FROM categories WHERE active_status = 0 ORDER BY id";
             List<Integer> ids = new ArrayList<>();
-            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            try (Connection conn = pool.getConnection();
+                 Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
                 System.out.println("ID   │ Category Name");
                 System.out.println("─────┼──────────────────────────────────────────────────────────");
                 while (rs.next()) {
@@ -361,11 +361,7 @@ public class CategoryManager {
                 return;
             }
 
-            String updateSql = "UPDATE categories SET active_status = 2 WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                ps.setInt(1, selectedId);
-                ps.executeUpdate();
-            }
+            CatalogService.requestCategoryRecovery(pool, selectedId);
 
             System.out.println(GREEN + "Category recovery request submitted! Status set to PENDING." + RESET);
             MainDB.pause();
@@ -379,7 +375,7 @@ public class CategoryManager {
     // ============================
     // Product Recovery
     // ============================
-    private static void requestProductRecovery(Connection conn, Scanner sc) {
+    private static void requestProductRecovery(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -397,7 +393,8 @@ public class CategoryManager {
             Map<Integer, String> productMap = new LinkedHashMap<>();
             Map<Integer, String> productCategory = new LinkedHashMap<>();
 
-            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            try (Connection conn = pool.getConnection();
+                 Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
 
                 System.out.printf("%-4s │ %-40s │ %-40s%n", "ID", "Product Name", "Category");
                 System.out.println("─────┼──────────────────────────────────────────┼──────────────────────────────────────────────");
@@ -436,11 +433,7 @@ public class CategoryManager {
                 return;
             }
 
-            String updateSql = "UPDATE products SET active_status = 2 WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                ps.setInt(1, selectedId);
-                ps.executeUpdate();
-            }
+            CatalogService.requestProductRecovery(pool, selectedId);
 
             System.out.println(GREEN + "Product recovery request submitted! Status set to PENDING." + RESET);
             MainDB.pause();
@@ -0,0 +1,127 @@
+package main;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import dao.Keyset;
+import db.ConnectionPool;
+
+/**
+ * Newest-first pager for the history screens.
+ *
+ * Only the page on screen and the prefetched next page are held in memory. Going back re-seeks
+ * from the remembered start key of the previous page instead of keeping old pages around.
+ */
+class KeysetPager<T> {
+
+    @FunctionalInterface
+    interface Fetcher<T> {
+        List<T> fetch(Connection conn, Keyset after, int limit) throws SQLException;
+    }
+
+    private static final ExecutorService PREFETCH = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "usms-page-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ConnectionPool pool;
+    private final Fetcher<T> fetcher;
+    private final Function<T, Keyset> keyOf;
+    private final int pageSize;
+
+    private final Deque<Keyset> previousStarts = new ArrayDeque<>();
+    private Keyset start;
+    private List<T> rows;
+    private boolean hasNext;
+    private CompletableFuture<List<T>> nextPage;
+    private int pageNumber;
+
+    KeysetPager(ConnectionPool pool, int pageSize, Function<T, Keyset> keyOf, Fetcher<T> fetcher) {
+        this.pool = pool;
+        this.pageSize = pageSize;
+        this.keyOf = keyOf;
+        this.fetcher = fetcher;
+    }
+
+    /** Starts over at the given position (Keyset.NEWEST for the latest rows). */
+    void reset(Keyset from) throws SQLException {
+        previousStarts.clear();
+        pageNumber = 1;
+        show(from, load(from));
+    }
+
+    void next() throws SQLException {
+        if (!hasNext) return;
+        List<T> fetched;
+        try {
+            fetched = nextPage.join();
+        } catch (CompletionException e) {
+            // Prefetch failed (e.g. pool exhausted); try again in the foreground
+            fetched = load(nextStart());
+        }
+        previousStarts.push(start);
+        pageNumber++;
+        show(nextStart(), fetched);
+    }
+
+    void previous() throws SQLException {
+        if (previousStarts.isEmpty()) return;
+        Keyset from = previousStarts.pop();
+        pageNumber--;
+        show(from, load(from));
+    }
+
+    List<T> rows() {
+        return rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+    }
+
+    boolean hasNext() {
+        return hasNext;
+    }
+
+    boolean hasPrevious() {
+        return !previousStarts.isEmpty();
+    }
+
+    int pageNumber() {
+        return pageNumber;
+    }
+
+    // One extra row tells us whether another page exists without counting the table
+    private List<T> load(Keyset from) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return fetcher.fetch(conn, from, pageSize + 1);
+        }
+    }
+
+    private void show(Keyset from, List<T> fetched) {
+        if (nextPage != null) nextPage.cancel(false);
+        start = from;
+        rows = fetched;
+        hasNext = fetched.size() > pageSize;
+        nextPage = null;
+
+        if (hasNext) {
+            Keyset after = nextStart();
+            nextPage = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return load(after);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, PREFETCH);
+        }
+    }
+
+    private Keyset nextStart() {
+        return keyOf.apply(rows.get(pageSize - 1));
+    }
+}
@@ -1,8 +1,11 @@
 package main;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Scanner;
+import dao.InventoryLogDao;
+import dao.Keyset;
+import db.ConnectionPool;
 
 public class LogManager {
     static final String RESET = "\u001B[0m";
@@ -11,40 +14,47 @@ public class LogManager {
     static final String YELLOW = "\u001B[33m";
     static final String MAGENTA = "\u001B[35m";
 
-    public static void viewInventoryLog(Connection conn) {
+    public static void viewInventoryLog(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
 
-            String sql = """
-                SELECT l.id, 
-                       COALESCE(p.name, 'Deleted Product') AS product_name, 
-                       l.change_type,
-                       l.quantity, 
-                       l.previous_stock, 
-                       l.new_stock, 
-                       l.created_at
-                FROM inventory_log l
-                LEFT JOIN products p ON l.product_id = p.id
-                ORDER BY l.created_at DESC
-            """;
-
-            try (Statement st = conn.createStatement();
-                 ResultSet rs = st.executeQuery(sql)) {
-
-                List<String[]> records = new ArrayList<>();
-                java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("MMMM dd, yyyy  hh:mm a");
-
-                while (rs.next()) {
-                    int id = rs.getInt("id");
-                    String product = rs.getString("product_name");
+            InventoryLogDao.Filter[] filter = { InventoryLogDao.Filter.NONE };
+            KeysetPager<InventoryLogDao.Entry> pager = new KeysetPager<>(pool, 10,
+                    e -> new Keyset(e.createdAt(), e.id()),
+                    (conn, after, limit) -> InventoryLogDao.page(conn, filter[0], after, limit));
+            pager.reset(Keyset.NEWEST);
+
+            if (pager.rows().isEmpty()) {
+                System.out.println(RED + "No inventory logs found." + RESET);
+                MainDB.pause();
+                return;
+            }
+
+            final String format = "%-3s │ %-30s │ %-10s │ %-5s │ %-10s │ %-10s │ %-25s%n";
+            java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("MMMM dd, yyyy  hh:mm a");
+
+            boolean running = true;
+            while (running) {
+                MainDB.clearScreen();
+
+                // Header Box
+                System.out.println("╔══════════════════════════════════════════════════════════════════════════════════════════════════════════════════════╗");
+                System.out.println("║                                             INVENTORY LOG HISTORY                                                    ║");
+                System.out.println("╚══════════════════════════════════════════════════════════════════════════════════════════════════════════════════════╝");
+                if (!filter[0].equals(InventoryLogDao.Filter.NONE)) {
+                    System.out.println(YELLOW + "Filter ➜ Product: " + valueOrAny(filter[0].productCode())
+                            + "   Type: " + valueOrAny(filter[0].changeType()) + RESET);
+                }
+                System.out.printf(format, "ID", "Product Name", "Type", "Qty", "Prev Stock", "New Stock", "Date & Time");
+                System.out.println("────┼────────────────────────────────┼────────────┼───────┼────────────┼────────────┼───────────────────────────────────");
+
+                for (InventoryLogDao.Entry e : pager.rows()) {
+                    String product = e.productName();
                     if (product.length() > 30) product = product.substring(0, 27) + "..."; // truncate long names
 
-                    String type = rs.getString("change_type");
-                    int qty = rs.getInt("quantity");
-                    int prev = rs.getInt("previous_stock");
-                    int now = rs.getInt("new_stock");
-                    Timestamp createdAt = rs.getTimestamp("created_at");
-                    String formattedDate = (createdAt != null) ? sdf.format(createdAt) : "N/A";
+                    String type = e.changeType();
+                    int qty = e.quantity();
+                    String formattedDate = (e.createdAt() != null) ? sdf.format(e.createdAt()) : "N/A";
 
                     // Determine color
                     String color;
@@ -56,89 +66,59 @@ public class LogManager {
                         default -> color = RESET;
                     }
 
-                    // Color-coded type & quantity
-                    String coloredType = color + String.format("%-6s", type) + RESET;
+                    // Pad before coloring so the escape codes don't break alignment
                     String qtyDisplay = (type.equalsIgnoreCase("ADD") || type.equalsIgnoreCase("RESTOCK") || qty > 0)
                             ? "+" + qty : String.valueOf(qty);
-                    String coloredQty = color + String.format("%4s", qtyDisplay) + RESET;
-
-                    records.add(new String[]{
-                            String.valueOf(id),
-                            product,
-                            coloredType,
-                            coloredQty,
-                            String.valueOf(prev),
-                            String.valueOf(now),
-                            formattedDate
-                    });
+                    String coloredType = color + String.format("%-10s", type) + RESET;
+                    String coloredQty = color + String.format("%5s", qtyDisplay) + RESET;
+
+                    System.out.printf(format, e.id(), product, coloredType, coloredQty,
+                            e.previousStock(), e.newStock(), formattedDate);
                 }
 
-                if (records.isEmpty()) {
-                    System.out.println(RED + "No inventory logs found." + RESET);
-                    MainDB.pause();
-                    return;
+                if (pager.rows().isEmpty()) {
+                    System.out.println(YELLOW + "No inventory logs match." + RESET);
                 }
 
-                final String format = "%-3s │ %-30s │ %-10s │ %-5s │ %-10s │ %-10s │ %-25s%n";
-                Scanner scanner = new Scanner(System.in);
-                int pageSize = 10;
-                int currentPage = 0;
-                int totalPages = (int) Math.ceil((double) records.size() / pageSize);
-
-                boolean running = true;
-                while (running) {
-                    MainDB.clearScreen();
-
-                    // Header Box
-                    System.out.println("╔══════════════════════════════════════════════════════════════════════════════════════════════════════════════════════╗");
-                    System.out.println("║                                             INVENTORY LOG HISTORY                                                    ║");
-                    System.out.println("╚══════════════════════════════════════════════════════════════════════════════════════════════════════════════════════╝");
-                    System.out.printf(format, "ID", "Product Name", "Type", "Qty", "Prev Stock", "New Stock", "Date & Time");
-                    System.out.println("────┼────────────────────────────────┼────────────┼───────┼────────────┼────────────┼───────────────────────────────────");
-
-                    int start = currentPage * pageSize;
-                    int end = Math.min(start + pageSize, records.size());
-
-                    for (int i = start; i < end; i++) {
-                        String[] r = records.get(i);
-
-                        // Ensure color codes don't break alignment
-                        String typeText = String.format("%-10s", r[2].replaceAll("\u001B\\[[;\\d]*m", "")); // pad without color
-                        String coloredType = r[2].contains(RED) ? RED + typeText + RESET
-                                            : r[2].contains(GREEN) ? GREEN + typeText + RESET
-                                            : r[2].contains(YELLOW) ? YELLOW + typeText + RESET
-                                            : r[2].contains(MAGENTA) ? MAGENTA + typeText + RESET
-                                            : RESET + typeText + RESET;
-
-                        String qtyText = String.format("%5s", r[3].replaceAll("\u001B\\[[;\\d]*m", ""));
-                        String coloredQty = r[3].contains(RED) ? RED + qtyText + RESET
-                                          : r[3].contains(GREEN) ? GREEN + qtyText + RESET
-                                          : r[3].contains(YELLOW) ? YELLOW + qtyText + RESET
-                                          : r[3].contains(MAGENTA) ? MAGENTA + qtyText + RESET
-                                          : RESET + qtyText + RESET;
-
-                        System.out.printf(format, r[0], r[1], coloredType, coloredQty, r[4], r[5], r[6]);
+                System.out.println("────────────────────────────────────────────────────────────────────────────────────────────────────────────────────────");
+                System.out.printf("📄 Page %d%n", pager.pageNumber());
+
+                // Options
+                System.out.println();
+                String options = "[X] ➜ Exit";
+                if (pager.hasPrevious()) options = "[B] ➜ Previous Page   " + options;
+                if (pager.hasNext()) options = "[F] ➜ Next Page   " + options;
+                System.out.println(options);
+                System.out.println("[D] ➜ Jump to Date   [P] ➜ Filter Product   [T] ➜ Filter Type   [C] ➜ Clear Filters");
+
+                System.out.print("Choose option: ");
+                String choice = sc.nextLine().trim().toUpperCase();
+
+                switch (choice) {
+                    case "F" -> pager.next();
+                    case "B" -> pager.previous();
+                    case "D" -> {
+                        LocalDate day = readDate(sc);
+                        if (day != null) pager.reset(Keyset.endOf(day));
                     }
-
-                    System.out.println("────────────────────────────────────────────────────────────────────────────────────────────────────────────────────────");
-                    System.out.printf("📄 Page %d of %d%n", currentPage + 1, totalPages);
-
-                    // Options
-                    System.out.println();
-                    String options = "[X] ➜ Exit";
-                    if (currentPage > 0) options = "[B] ➜ Previous Page   " + options;
-                    if (currentPage < totalPages - 1) options = "[F] ➜ Next Page   " + options;
-                    System.out.println(options);
-
-                    System.out.print("Choose option: ");
-                    String choice = scanner.nextLine().trim().toUpperCase();
-
-                    switch (choice) {
-                        case "F" -> { if (currentPage < totalPages - 1) currentPage++; }
-                        case "B" -> { if (currentPage > 0) currentPage--; }
-                        case "X" -> running = false;
-                        default -> {}
+                    case "P" -> {
+                        System.out.print("Product code (blank for any): ");
+                        String code = sc.nextLine().trim().toUpperCase();
+                        filter[0] = new InventoryLogDao.Filter(code.isEmpty() ? null : code, filter[0].changeType());
+                        pager.reset(Keyset.NEWEST);
+                    }
+                    case "T" -> {
+                        System.out.print("Change type (SALE/RESTOCK/ADD/EDIT/DELETE, blank for any): ");
+                        String type = sc.nextLine().trim().toUpperCase();
+                        filter[0] = new InventoryLogDao.Filter(filter[0].productCode(), type.isEmpty() ? null : type);
+                        pager.reset(Keyset.NEWEST);
                     }
+                    case "C" -> {
+                        filter[0] = InventoryLogDao.Filter.NONE;
+                        pager.reset(Keyset.NEWEST);
+                    }
+                    case "X" -> running = false;
+                    default -> {}
                 }
             }
 
@@ -148,5 +128,19 @@ public class LogManager {
         }
     }
 
+    static LocalDate readDate(Scanner sc) {
+        System.out.print("Show entries on or before date (YYYY-MM-DD): ");
+        String input = sc.nextLine().trim();
+        try {
+            return LocalDate.parse(input);
+        } catch (DateTimeParseException e) {
+            System.out.println(RED + "Invalid date!" + RESET);
+            MainDB.pause();
+            return null;
+        }
+    }
 
+    static String valueOrAny(String value) {
+        return value == null ? "Any" : value;
+    }
 }
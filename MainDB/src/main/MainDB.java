@@ -2,10 +2,21 @@ package main;
 
 import java.sql.*;
 import java.util.Scanner;
+import db.ConnectionPool;
+import db.SchemaMigrator;
+import metrics.Metrics;
+import service.CatalogCache;
+import service.ExpiryScheduler;
+import service.InventoryJournal;
+import service.LowStockIndex;
+import service.ReceiptRenderer;
+import service.SearchIndex;
+import service.Session;
 import user.UserManager;
 
 public class MainDB {
-    static final String URL = "jdbc:mysql://localhost:3306/usms_db";
+    // Server-side prepared statements pair with the per-connection StatementRegistry: each SQL is parsed once per connection
+    static final String URL = "jdbc:mysql://localhost:3306/usms_db?useServerPrepStmts=true&cachePrepStmts=true&rewriteBatchedStatements=true";
     static final String USER = "root";
     static final String PASS = "";
 
@@ -14,50 +25,120 @@ public class MainDB {
     static final String RED = "\u001B[31m";
     static final String ORANGE = "\u001B[38;5;208m";
 
-    static Scanner sc = new Scanner(System.in);
+    private static boolean stopped;
 
     public static void main(String[] args) {
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASS)) {
+        try (ConnectionPool pool = new ConnectionPool(URL, USER, PASS)) {
+            try {
+                startServices(pool);
+                runSession(pool);
+            } finally {
+                // Before the pool closes: the inventory journal drains through it
+                stopServices();
+            }
+        } catch (SQLException e) {
+            System.out.println(RED + "Could not start: " + e.getMessage() + RESET);
+        }
+    }
+
+    // Schema, rollups and the background sweeper; shared by the console app and PosServer
+    static void startServices(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
             System.out.println(GREEN + "Connected to usms_db database!" + RESET);
 
-            CartManager.returnExpiredStock(conn);
-            
-            boolean running = true;
-            while (running) {
-                clearScreen();
-                System.out.println("╔══════════════════════════════════════════════════════════╗");
-                System.out.println("║               UNIFORM SALES & MANAGEMENT SYSTEM          ║");
-                System.out.println("╚══════════════════════════════════════════════════════════╝");
-                System.out.println("                  Developed by: STI Student");
-                System.out.println("");
-                System.out.println("╭──────────────────────── Options ─────────────────────────╮");
-                System.out.println("│ [1] View All Products          [3] Exit Application      │");
-                System.out.println("│ [2] Login to Your Account                                │");
-                System.out.println("╰──────────────────────────────────────────────────────────╯");
-                System.out.print("Enter your choice ➤ ");
-
-                int choice = readInt();
-                if (choice == -1) continue;
-                switch (choice) {
-                    case 1 -> ProductManager.viewAllProducts(conn, sc, 0, false);
-                    case 2 -> loginFlow(conn);
-                    case 3 -> {
-                        System.out.println(ORANGE + "Exiting... Goodbye!" + RESET);
-                        pause();
-                        running = false;
-                    }
-                    default -> {
-                        System.out.println(RED + "Invalid choice!" + RESET);
-                        pause();
-                    }
+            migrateSchema(conn);
+            SalesManager.prepareSalesRollups(conn);
+        }
+        ExpiryScheduler.start(pool);
+        InventoryJournal.start(pool);
+        // Ctrl+C or a kill skips the finally around the session, so drain from the hook as well
+        Runtime.getRuntime().addShutdownHook(new Thread(MainDB::stopServices, "usms-shutdown"));
+        buildSearchIndex(pool);
+
+        Metrics.gauge("pool.active", () -> pool.stats().active());
+        Metrics.gauge("pool.idle", () -> pool.stats().idle());
+        Metrics.gauge("pool.waiting", () -> pool.stats().waiting());
+        Metrics.gauge("sessions.active", () -> PosServer.stats().active());
+    }
+
+    // Like migrations, a failed index build only costs the feature, not the app
+    private static void buildSearchIndex(ConnectionPool pool) {
+        try {
+            long start = System.nanoTime();
+            int products = SearchIndex.build(pool);
+            CatalogCache.preloadSizes(pool);
+            int atRisk = LowStockIndex.build(pool);
+            System.out.println(GREEN + "Indexed " + products + " product(s) for search and " + atRisk
+                    + " low-stock size(s) in " + (System.nanoTime() - start) / 1_000_000 + " ms." + RESET);
+        } catch (SQLException e) {
+            System.out.println(RED + "Search index not built: " + e.getMessage() + RESET);
+        }
+    }
+
+    // Runs from both the normal exit path and the shutdown hook; whichever comes second waits for the first and returns
+    static synchronized void stopServices() {
+        if (stopped) return;
+        stopped = true;
+        ExpiryScheduler.stop();
+        int unlogged = InventoryJournal.stop(10_000);
+        if (unlogged > 0) System.out.println(RED + unlogged + " inventory log line(s) could not be written." + RESET);
+        // Let queued invoices and receipts finish writing before the JVM exits
+        int unwritten = ReceiptRenderer.shutdown(10_000);
+        if (unwritten > 0) System.out.println(RED + unwritten + " receipt image(s) could not be written." + RESET);
+    }
+    
+    // One terminal's walk through the menus, from the main menu until Exit; server sessions run the same loop
+    static void runSession(ConnectionPool pool) {
+        Scanner sc = Terminal.in();
+        boolean running = true;
+        while (running) {
+            clearScreen();
+            System.out.println("╔══════════════════════════════════════════════════════════╗");
+            System.out.println("║               UNIFORM SALES & MANAGEMENT SYSTEM          ║");
+            System.out.println("╚══════════════════════════════════════════════════════════╝");
+            System.out.println("                  Developed by: STI Student");
+            System.out.println("");
+            System.out.println("╭──────────────────────── Options ─────────────────────────╮");
+            System.out.println("│ [1] View All Products          [3] Exit Application      │");
+            System.out.println("│ [2] Login to Your Account      [4] Search Products       │");
+            System.out.println("╰──────────────────────────────────────────────────────────╯");
+            System.out.print("Enter your choice ➤ ");
+
+            int choice = readInt();
+            if (choice == -1) continue;
+            switch (choice) {
+                case 1 -> ProductManager.viewAllProducts(pool, sc, null);
+                case 2 -> loginFlow(pool, sc);
+                case 4 -> ProductManager.searchProducts(pool, sc, null);
+                case 3 -> {
+                    System.out.println(ORANGE + "Exiting... Goodbye!" + RESET);
+                    pause();
+                    running = false;
+                }
+                default -> {
+                    System.out.println(RED + "Invalid choice!" + RESET);
+                    pause();
                 }
             }
+        }
+    }
 
+    // A failed migration stops startup. Later migrations would not apply, and the code that relies on
+    // them (id sequences, stock triggers) would fail on every checkout instead
+    private static void migrateSchema(Connection conn) throws SQLException {
+        SchemaMigrator.Result result;
+        try {
+            result = SchemaMigrator.migrate(conn);
         } catch (SQLException e) {
-            System.out.println(RED + "Database connection failed: " + e.getMessage() + RESET);
+            throw new SQLException("Schema migration failed, fix it and start again: " + e.getMessage(),
+                    e.getSQLState(), e.getErrorCode(), e);
+        }
+        for (SchemaMigrator.Migration migration : result.applied()) {
+            System.out.println(GREEN + "Applied schema migration " + migration.version() + ": "
+                    + migration.description() + RESET);
         }
     }
-    
+
     public static Integer readInt(Scanner sc, String message) {
         while (true) {
             System.out.print(message);
@@ -73,25 +154,30 @@ public class MainDB {
         }
     }
 
-    private static void loginFlow(Connection conn) {
-        Object[] userInfo = UserManager.login(conn);
-        if (userInfo == null) {
+    // Borrows a pooled connection for a single menu action and reports failures on the console
+    public static void withConnection(ConnectionPool pool, ConnectionPool.Task task) {
+        try {
+            pool.run(task);
+        } catch (SQLException e) {
+            System.out.println(RED + "Database error: " + e.getMessage() + RESET);
+            pause();
+        }
+    }
+
+    private static void loginFlow(ConnectionPool pool, Scanner sc) {
+        Session session = UserManager.login(pool);
+        if (session == null) {
             System.out.println(ORANGE + "Returning to Main Menu..." + RESET);
             pause();
             return;
         }
 
-        int userId = (int) userInfo[0];
-        String loggedUser = (String) userInfo[1];
-        String userRole = ((String) userInfo[2]).toUpperCase();
-        boolean loggedIn = (boolean) userInfo[3];
-
         boolean inside = true;
         while (inside) {
         	clearScreen();
         	System.out.println("╔══════════════════════════════════════════════════════════════════╗");
 
-        	String header = "Logged in as: " + loggedUser + " (" + userRole + ")";
+        	String header = "Logged in as: " + session.username() + " (" + session.role() + ")";
         	int totalWidth = 66; 
         	int padding = (totalWidth - header.length()) / 2;
         	if (padding < 0) padding = 0; 
@@ -100,7 +186,7 @@ public class MainDB {
         	System.out.println(line);
         	System.out.println("╚══════════════════════════════════════════════════════════════════╝");
 
-            switch (userRole) {
+            switch (session.role()) {
             case "USER" -> {
                 String input = "";
                 do {
@@ -114,16 +200,18 @@ public class MainDB {
                     System.out.println("│ [2] View Cart                                            │");
                     System.out.println("│ [3] Submit Quotation Request                             │");
                     System.out.println("│ [4] Change Password                                      │");
+                    System.out.println("│ [5] Search Products                                      │");
                     System.out.println("╰──────────────────────────────────────────────────────────╯");
                     System.out.print("Enter your choice ➤ ");
 
                     input = sc.nextLine().trim().toUpperCase();
 
                     switch (input) {
-                        case "1" -> ProductManager.viewAllProducts(conn, sc, userId, loggedIn);
-                        case "2" -> CartManager.viewCart(conn, sc, userId);
-                        case "3" -> CartManager.submitQuotation(conn, sc, userId, loggedIn);
-                        case "4" -> UserManager.changePassword(conn, userId, loggedIn);
+                        case "1" -> ProductManager.viewAllProducts(pool, sc, session);
+                        case "2" -> CartManager.viewCart(pool, sc, session);
+                        case "3" -> CartManager.submitQuotation(pool, sc, session);
+                        case "4" -> UserManager.changePassword(pool, session);
+                        case "5" -> ProductManager.searchProducts(pool, sc, session);
 
 
                         case "X" -> inside = false;
@@ -135,15 +223,16 @@ public class MainDB {
                 } while (!input.equals("X"));
             }
                 case "PRODUCTMANAGER" -> {
-                    ProductManager.manageProducts(conn, sc, loggedUser, userRole);
+                    ProductManager.showLowStockAlert(pool);
+                    ProductManager.manageProducts(pool, sc, session);
                     inside = false;
                 }
                 case "SALESMANAGER" -> {
-                    SalesManager.salesMenu(conn, sc, loggedUser, userRole, userId);
+                    SalesManager.salesMenu(pool, sc, session);
                     inside = false;
                 }
                 case "ADMIN" -> {
-                	AdminManager.manageUsers(conn, sc, userId);
+                	AdminManager.manageUsers(pool, sc, session);
                     inside = false;
                 }
                 default -> {
@@ -160,16 +249,17 @@ public class MainDB {
         for (int i = 0; i < 50; i++) {
             System.out.println();
         }
+        Terminal.showNotices();
     }
 
     public static void pause() {
         System.out.println("Press Enter to continue...");
-        sc.nextLine();
+        Terminal.in().nextLine();
     }
 
     private static int readInt() {
         try {
-            return Integer.parseInt(sc.nextLine().trim());
+            return Integer.parseInt(Terminal.in().nextLine().trim());
         } catch (NumberFormatException e) {
             System.out.println(RED + "Invalid input! Please enter a number." + RESET);
             pause();
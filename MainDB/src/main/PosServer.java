@@ -0,0 +1,121 @@
+package main;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import db.ConnectionPool;
+
+/**
+ * Serves the menus to many terminals from one process. Each TCP connection (telnet or nc from a
+ * kiosk or till) gets its own virtual thread and {@link Terminal}; the connection pool, catalog
+ * cache, receipt renderer and expiry sweeper are shared by all of them. A session only holds a
+ * database connection while one of its menu actions runs, so the pool stays far smaller than the
+ * number of terminals.
+ *
+ * Listens on -Dusms.server.bind (127.0.0.1) port -Dusms.server.port (5050) and turns terminals away
+ * once -Dusms.server.maxSessions are connected.
+ */
+public final class PosServer {
+
+    static final String RESET = "\u001B[0m";
+    static final String GREEN = "\u001B[32m";
+    static final String RED = "\u001B[31m";
+    static final String YELLOW = "\u001B[33m";
+
+    public record Stats(int active, long total, long rejected) {}
+
+    static final String BIND = System.getProperty("usms.server.bind", "127.0.0.1");
+    static final int PORT = Integer.getInteger("usms.server.port", 5050);
+    static final int MAX_SESSIONS = Integer.getInteger("usms.server.maxSessions", 500);
+
+    private static final AtomicInteger active = new AtomicInteger();
+    private static final AtomicLong total = new AtomicLong();
+    private static final AtomicLong rejected = new AtomicLong();
+
+    private PosServer() {}
+
+    public static void main(String[] args) {
+        Terminal.install();
+
+        try (ConnectionPool pool = new ConnectionPool(MainDB.URL, MainDB.USER, MainDB.PASS);
+             ServerSocket server = new ServerSocket(PORT, 128, InetAddress.getByName(BIND))) {
+            try {
+                MainDB.startServices(pool);
+                // Stops accepting; the services themselves are drained by the hook startServices added
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> closeQuietly(server)));
+                System.out.println(GREEN + "Serving terminals on " + BIND + ":" + PORT + RESET);
+
+                while (!server.isClosed()) {
+                    Socket socket;
+                    try {
+                        socket = server.accept();
+                    } catch (SocketException e) {
+                        break; // closed by the shutdown hook
+                    }
+                    if (active.incrementAndGet() > MAX_SESSIONS) {
+                        active.decrementAndGet();
+                        rejected.incrementAndGet();
+                        refuse(socket);
+                        continue;
+                    }
+                    long id = total.incrementAndGet();
+                    Thread.ofVirtual().name("usms-session-" + id).start(() -> serve(pool, socket));
+                }
+            } finally {
+                // Before the pool closes: the inventory journal drains through it
+                MainDB.stopServices();
+            }
+        } catch (SQLException e) {
+            System.out.println(RED + "Could not start: " + e.getMessage() + RESET);
+        } catch (IOException e) {
+            System.out.println(RED + "Could not listen on " + BIND + ":" + PORT + ": " + e.getMessage() + RESET);
+        }
+    }
+
+    public static Stats stats() {
+        return new Stats(active.get(), total.get(), rejected.get());
+    }
+
+    private static void serve(ConnectionPool pool, Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            Terminal.bind(Terminal.over(socket.getInputStream(), socket.getOutputStream()));
+            try {
+                MainDB.runSession(pool);
+            } finally {
+                Terminal.unbind();
+            }
+        } catch (NoSuchElementException | IOException e) {
+            // Terminal hung up mid-menu
+        } catch (RuntimeException e) {
+            // System.err is never routed, so this lands in the server log rather than the session
+            System.err.println(YELLOW + Thread.currentThread().getName() + " ended: " + e + RESET);
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    private static void refuse(Socket socket) {
+        try (socket) {
+            socket.getOutputStream().write((RED + "All terminals are busy, try again shortly." + RESET + "\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ignored) {
+            // Nothing more to tell a terminal that is already gone
+        }
+    }
+
+    private static void closeQuietly(ServerSocket server) {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+}
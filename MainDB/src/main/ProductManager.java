@@ -1,7 +1,18 @@
 package main;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.*;
+import dao.CategoryDao;
+import dao.ProductDao;
+import db.ConnectionPool;
+import service.CatalogImport;
+import service.CatalogService;
+import service.InventoryService;
+import service.LowStockIndex;
+import service.Session;
 
 public class ProductManager {
     static final String RESET = "\u001B[0m";
@@ -9,15 +20,18 @@ public class ProductManager {
     static final String RED = "\u001B[31m";
     static final String YELLOW = "\u001B[33m";
 
+    static final int SEARCH_RESULTS = 20;
+    static final int IMPORT_ERRORS_SHOWN = 15;
+
     // ==========================================================
     // MANAGE PRODUCTS MENU (Admin/Manager)
     // ==========================================================
-    public static void manageProducts(Connection conn, Scanner sc, String username, String role) {
+    public static void manageProducts(ConnectionPool pool, Scanner sc, Session session) {
         String input = "";
         do {
             try {
                 MainDB.clearScreen();
-                System.out.println("            Logged in as: " + username + " (" + role.toUpperCase() + ")");
+                System.out.println("            Logged in as: " + session.username() + " (" + session.role() + ")");
                 System.out.println("╔══════════════════════════════════════════════════════════╗");
                 System.out.println("║              PRODUCT MANAGEMENT MENU                     ║");
                 System.out.println("╚══════════════════════════════════════════════════════════╝");
@@ -25,7 +39,8 @@ public class ProductManager {
                 System.out.println("╭──────────────────────── Options ─────────────────────────╮");
                 System.out.println("│ [1] Manage Products by Category      [4] Manage Restock  │");
                 System.out.println("│ [2] Manage Categories                [5] Request Recovery│");
-                System.out.println("│ [3] View Inventory Logs              [X] Logout          │");
+                System.out.println("│ [3] View Inventory Logs              [6] Import Catalog  │");
+                System.out.println("│ [X] Logout                                               │");
                 System.out.println("╰──────────────────────────────────────────────────────────╯");
                 System.out.print("Enter your choice ➤ ");
 
@@ -33,11 +48,12 @@ public class ProductManager {
                 input = sc.nextLine().trim().toUpperCase();
 
                 switch (input) {
-                    case "1" -> manageProductsByCategory(conn, sc);
-                    case "2" -> CategoryManager.manageCategories(conn, sc);
-                    case "3" -> LogManager.viewInventoryLog(conn);
-                    case "4" -> manageRestock(conn, sc, username);
-                    case "5" -> CategoryManager.requestRecovery(conn, sc);
+                    case "1" -> manageProductsByCategory(pool, sc);
+                    case "2" -> CategoryManager.manageCategories(pool, sc);
+                    case "3" -> LogManager.viewInventoryLog(pool, sc);
+                    case "4" -> manageRestock(pool, sc, session);
+                    case "5" -> CategoryManager.requestRecovery(pool, sc);
+                    case "6" -> importCatalog(pool, sc);
 
                     case "X" -> {}
                     default -> {
@@ -54,15 +70,15 @@ public class ProductManager {
 
 
     
-    private static void manageProductsByCategory(Connection conn, Scanner sc) throws SQLException {
+    private static void manageProductsByCategory(ConnectionPool pool, Scanner sc) throws SQLException {
         while (true) { 
             MainDB.clearScreen(); 
-            int categoryId = selectCategory(conn, sc);
+            int categoryId = selectCategory(pool, sc);
             if (categoryId == -1) return; 
 
             while (true) { 
                 MainDB.clearScreen();
-                displayProductsByCategory(conn, categoryId);
+                displayProductsByCategory(CatalogService.productsIn(pool, categoryId));
                 MainDB.pause();
 
                 System.out.println("\n[1] Add Product");
@@ -74,9 +90,9 @@ public class ProductManager {
 
                 String choice = sc.nextLine().trim().toUpperCase();
                 switch (choice) {
-                    case "1" -> addProductToCategory(conn, sc, categoryId);
-                    case "2" -> editProduct(conn, sc, categoryId);
-                    case "3" -> deleteProduct(conn, sc, categoryId);
+                    case "1" -> addProductToCategory(pool, sc, categoryId);
+                    case "2" -> editProduct(pool, sc, categoryId);
+                    case "3" -> deleteProduct(pool, sc, categoryId);
                     case "X" -> {
                         break; 
                     }
@@ -93,19 +109,21 @@ public class ProductManager {
     // ==========================================================
     // PUBLIC VIEW PRODUCTS (Users)
     // ==========================================================
-    public static void viewAllProducts(Connection conn, Scanner sc, int userId, boolean loggedIn) {
+    /** A null session browses as a guest. */
+    public static void viewAllProducts(ConnectionPool pool, Scanner sc, Session session) {
+        boolean loggedIn = session != null;
         do {
             try {
                 MainDB.clearScreen();
 
                 // CATEGORY SELECTION
-                int categoryId = selectCategory(conn, sc);
+                int categoryId = selectCategory(pool, sc);
                 if (categoryId == -1) return; 
 
                 boolean inCategory = true;
                 while (inCategory) {
                     MainDB.clearScreen();
-                    displayProductsByCategory(conn, categoryId);
+                    displayProductsByCategory(CatalogService.productsIn(pool, categoryId));
 
                     System.out.println("\nPress ENTER to continue...");
                     sc.nextLine();
@@ -120,9 +138,9 @@ public class ProductManager {
                         String choice = sc.nextLine().trim().toUpperCase();
 
                         switch (choice) {
-                            case "1" -> CartManager.addToCart(conn, sc, userId);
-                            case "2" -> CartManager.viewCart(conn, sc, userId);
-                            case "3" -> CartManager.submitQuotation(conn, sc, userId, loggedIn);
+                            case "1" -> CartManager.addToCart(pool, sc, session);
+                            case "2" -> CartManager.viewCart(pool, sc, session);
+                            case "3" -> CartManager.submitQuotation(pool, sc, session);
                             case "X" -> inCategory = false; 
                             default -> {
                                 System.out.println(RED + "Invalid choice!" + RESET);
@@ -154,26 +172,21 @@ public class ProductManager {
     // ==========================================================
     // CATEGORY SELECTION
     // ==========================================================
-    private static int selectCategory(Connection conn, Scanner sc) throws SQLException {
-        String sql = "SELECT id, name FROM categories WHERE active_status = 1 ORDER BY id"; // only active categories
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-
-            List<Integer> ids = new ArrayList<>();
-            List<String> names = new ArrayList<>();
+    private static int selectCategory(ConnectionPool pool, Scanner sc) throws SQLException {
+        while (true) {
+            List<CategoryDao.Category> categories = CatalogService.categories(pool); // only active categories
 
             System.out.println("╔══════════════════════════════════════════════════════════╗");
             System.out.println("║                   AVAILABLE CATEGORIES                   ║");
             System.out.println("╚══════════════════════════════════════════════════════════╝");
 
             int index = 1;
-            while (rs.next()) {
-                ids.add(rs.getInt("id"));
-                names.add(rs.getString("name"));
-                System.out.printf("[%d] %s%n", index++, rs.getString("name"));
+            for (CategoryDao.Category category : categories) {
+                System.out.printf("[%d] %-40s %6d in stock%n", index++, category.name(),
+                        CatalogService.categoryStock(pool, category.id()));
             }
 
-            if (ids.isEmpty()) {
+            if (categories.isEmpty()) {
                 System.out.println(YELLOW + "No categories available." + RESET);
                 MainDB.pause();
                 return -1;
@@ -194,74 +207,107 @@ public class ProductManager {
             } catch (NumberFormatException e) {
                 System.out.println(RED + "Invalid input!" + RESET);
                 MainDB.pause();
-                return selectCategory(conn, sc);
+                continue;
             }
 
-            if (choice < 1 || choice > ids.size()) {
+            if (choice < 1 || choice > categories.size()) {
                 System.out.println(RED + "Invalid choice!" + RESET);
                 MainDB.pause();
-                return selectCategory(conn, sc);
+                continue;
             }
 
-            return ids.get(choice - 1);
+            return categories.get(choice - 1).id();
         }
     }
 
-    private static String generateProductCode() {
-        int randomNum = 10000 + (int)(Math.random() * 90000);
-        return "P" + randomNum;
-    }
-
     // ==========================================================
     // DISPLAY PRODUCTS BY CATEGORY
     // ==========================================================
-    private static void displayProductsByCategory(Connection conn, int categoryId) throws SQLException {
-        String sql = "SELECT * FROM products WHERE category_id = ? AND active_status = 1 ORDER BY product_code";
-
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, categoryId);
-            ResultSet rs = ps.executeQuery();
-
-            System.out.println("╔════════════════════════════════════════════════════════════════════════════════════╗");
-            System.out.println("║                                PRODUCT LIST                                        ║");
-            System.out.println("╚════════════════════════════════════════════════════════════════════════════════════╝");
-            System.out.printf("%-12s│ %-35s│ %-9s│ %-5s%n", "ID Code", "Product Name", "Price", "Stock");
-            System.out.println("────────────┼────────────────────────────────────┼──────────┼───────");
+    private static void displayProductsByCategory(List<ProductDao.Product> products) {
+        System.out.println("╔════════════════════════════════════════════════════════════════════════════════════╗");
+        System.out.println("║                                PRODUCT LIST                                        ║");
+        System.out.println("╚════════════════════════════════════════════════════════════════════════════════════╝");
+        System.out.printf("%-12s│ %-35s│ %-9s│ %-5s%n", "ID Code", "Product Name", "Price", "Stock");
+        System.out.println("────────────┼────────────────────────────────────┼──────────┼───────");
 
-            boolean hasProducts = false;
+        boolean hasProducts = false;
 
-            while (rs.next()) {
-                hasProducts = true;
+        for (ProductDao.Product product : products) {
+            hasProducts = true;
 
-                String code = rs.getString("product_code");
-                String name = rs.getString("name");
-                double price = rs.getDouble("price");
-                int totalStock = rs.getInt("stock");
+            String code = product.code();
+            String name = product.name();
+            double price = product.price();
+            int totalStock = product.stock();
 
-                if (name.length() > 35) {
-                    name = name.substring(0, 32) + "...";
-                }
-
-                System.out.printf("%-12s│ %-35s│ ₱%7.2f │ %5d%n",
-                        code, name, price, totalStock);
+            if (name.length() > 35) {
+                name = name.substring(0, 32) + "...";
             }
 
-            if (!hasProducts) {
-                System.out.println(YELLOW + "No products found in this category." + RESET);
-            }
+            System.out.printf("%-12s│ %-35s│ ₱%7.2f │ %5d%n",
+                    code, name, price, totalStock);
+        }
 
-            System.out.println("────────────────────────────────────────────────────────────────────");
+        if (!hasProducts) {
+            System.out.println(YELLOW + "No products found in this category." + RESET);
         }
+
+        System.out.println("────────────────────────────────────────────────────────────────────");
     }
 
 
 
 
 
+    // ==========================================================
+    // SEARCH PRODUCTS (name, code or category; typos allowed)
+    // ==========================================================
+    /** A null session searches as a guest and cannot add to the cart. */
+    public static void searchProducts(ConnectionPool pool, Scanner sc, Session session) {
+        while (true) {
+            MainDB.clearScreen();
+            System.out.println("╔════════════════════════════════════════════════════════════════════════════════════╗");
+            System.out.println("║                                PRODUCT SEARCH                                      ║");
+            System.out.println("╚════════════════════════════════════════════════════════════════════════════════════╝");
+            System.out.print("Search by name, code or category (X to go back) ➤ ");
+            String query = sc.nextLine().trim();
+            if (query.equalsIgnoreCase("X")) return;
+
+            try {
+                List<CatalogService.Found> found = CatalogService.search(pool, query, SEARCH_RESULTS);
+                System.out.printf("%-12s│ %-30s│ %-15s│ %-9s│ %s%n", "ID Code", "Product Name", "Category", "Price", "Stock by size");
+                System.out.println("────────────┼───────────────────────────────┼────────────────┼──────────┼────────────────────");
+                for (CatalogService.Found f : found) {
+                    StringBuilder stock = new StringBuilder();
+                    for (ProductDao.Size size : f.sizes()) {
+                        stock.append(size.size()).append(':').append(size.stock()).append(' ');
+                    }
+                    System.out.printf("%-12s│ %-30s│ %-15s│ ₱%7.2f │ %s%n", f.product().code(), abbreviate(f.product().name(), 30),
+                            abbreviate(f.category(), 15), f.product().price(), stock.isEmpty() ? "-" : stock.toString().trim());
+                }
+                if (found.isEmpty()) System.out.println(YELLOW + "No products match \"" + query + "\"." + RESET);
+                System.out.println("────────────────────────────────────────────────────────────────────");
+            } catch (SQLException e) {
+                System.out.println(RED + "Database error: " + e.getMessage() + RESET);
+            }
+
+            if (session == null) {
+                MainDB.pause();
+                continue;
+            }
+            System.out.print("[1] Add to Cart   [ENTER] Search again ➤ ");
+            if (sc.nextLine().trim().equals("1")) CartManager.addToCart(pool, sc, session);
+        }
+    }
+
+    private static String abbreviate(String text, int width) {
+        return text.length() <= width ? text : text.substring(0, width - 3) + "...";
+    }
+
     // ==========================================================
     // ADD PRODUCT (with log)
     // ==========================================================
-    public static void addProductToCategory(Connection conn, Scanner sc, int categoryId) {
+    public static void addProductToCategory(ConnectionPool pool, Scanner sc, int categoryId) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -293,27 +339,15 @@ public class ProductManager {
                 }
             }
 
-            // Product code
-            String productCode = generateProductCode();
+            ProductDao.Product product = CatalogService.addProduct(pool,
+                    new CatalogService.NewProduct(categoryId, name, price));
 
-            String sql = "INSERT INTO products(product_code, name, price, stock, category_id) VALUES(?, ?, ?, 0, ?)";
-            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                ps.setString(1, productCode);
-                ps.setString(2, name);
-                ps.setDouble(3, price);
-                ps.setInt(4, categoryId);
-                ps.executeUpdate();
+            System.out.println(GREEN + "Product added successfully!" + RESET);
+            System.out.println("Generated Product Code: " + YELLOW + product.code() + RESET);
 
-                System.out.println(GREEN + "Product added successfully!" + RESET);
-                System.out.println("Generated Product Code: " + YELLOW + productCode + RESET);
-
-                ResultSet keys = ps.getGeneratedKeys();
-                if (keys.next()) {
-                    int productId = keys.getInt(1);
-
-                    // 🔥 After creation, ask to create sizes
-                    askCreateSizes(conn, sc, productId);
-                }
+            if (product.id() != -1) {
+                // 🔥 After creation, ask to create sizes
+                askCreateSizes(pool, sc, product.id());
             }
 
             MainDB.pause();
@@ -323,8 +357,8 @@ public class ProductManager {
         }
     }
 
-    
-    private static void askCreateSizes(Connection conn, Scanner sc, int productId) throws SQLException {
+
+    private static void askCreateSizes(ConnectionPool pool, Scanner sc, int productId) {
         while (true) {
             System.out.println("\nWould you like to add sizes for this product? (yes/no)");
             System.out.print("> ");
@@ -336,59 +370,42 @@ public class ProductManager {
                 continue;
             }
 
-            addSizeToProduct(conn, sc, productId);
+            addSizeToProduct(pool, sc, productId);
         }
     }
 
-    
-    private static void addSizeToProduct(Connection conn, Scanner sc, int productId) {
-        try {
-            String size;
 
+    private static void addSizeToProduct(ConnectionPool pool, Scanner sc, int productId) {
+        try {
             while (true) {
                 System.out.print("Enter size label (e.g., S, M, L, 32, 34): ");
-                size = sc.nextLine().trim();
+                String size = sc.nextLine().trim();
 
                 if (size.isEmpty()) {
                     System.out.println(RED + "Size cannot be empty!" + RESET);
                     continue;
                 }
 
-                String checkSql = "SELECT COUNT(*) FROM product_sizes WHERE product_id = ? AND LOWER(size) = LOWER(?)";
-                try (PreparedStatement check = conn.prepareStatement(checkSql)) {
-                    check.setInt(1, productId);
-                    check.setString(2, size);
-                    ResultSet rs = check.executeQuery();
-                    if (rs.next() && rs.getInt(1) > 0) {
-                        System.out.println(RED + "This size already exists for this product!" + RESET);
-                        continue;
+                int critical;
+                while (true) {
+                    System.out.print("Critical stock amount for this size: ");
+                    String input = sc.nextLine().trim();
+                    try {
+                        critical = Integer.parseInt(input);
+                        if (critical < 0) throw new NumberFormatException();
+                        break;
+                    } catch (NumberFormatException e) {
+                        System.out.println(RED + "Invalid number!" + RESET);
                     }
                 }
-                break;
-            }
 
-            int critical;
-            while (true) {
-                System.out.print("Critical stock amount for this size: ");
-                String input = sc.nextLine().trim();
-                try {
-                    critical = Integer.parseInt(input);
-                    if (critical < 0) throw new NumberFormatException();
-                    break;
-                } catch (NumberFormatException e) {
-                    System.out.println(RED + "Invalid number!" + RESET);
+                if (!CatalogService.addSize(pool, new CatalogService.NewSize(productId, size, critical))) {
+                    System.out.println(RED + "This size already exists for this product!" + RESET);
+                    continue;
                 }
-            }
-
-            String sql = "INSERT INTO product_sizes(product_id, size, stock, damaged, critical_stock) VALUES(?, ?, 0, 0, ?)";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, productId);
-                ps.setString(2, size);
-                ps.setInt(3, critical);
-                ps.executeUpdate();
                 System.out.println(GREEN + "Size added successfully!" + RESET);
+                return;
             }
-
         } catch (SQLException e) {
             System.out.println(RED + "Failed to add size: " + e.getMessage() + RESET);
         }
@@ -397,69 +414,110 @@ public class ProductManager {
 
 
 
+    // ==========================================================
+    // IMPORT CATALOG (CSV / TSV)
+    // ==========================================================
+    public static void importCatalog(ConnectionPool pool, Scanner sc) {
+        MainDB.clearScreen();
+        System.out.println("╔══════════════════════════════════════════════════════════╗");
+        System.out.println("║                    IMPORT CATALOG                        ║");
+        System.out.println("╚══════════════════════════════════════════════════════════╝");
+        System.out.println("CSV or TSV with a header row: category, name, price, sizes, critical_stock");
+        System.out.println("Sizes go in one cell separated by | (e.g. S|M|L or S:5|M:10 for per-size critical stock).");
+        System.out.println("Categories must already exist; products already in a category are skipped.\n");
+        System.out.print("File path (or 'back') ➤ ");
+        String input = sc.nextLine().trim();
+        if (input.equalsIgnoreCase("back") || input.isEmpty()) return;
+
+        Path file = Path.of(input.replaceAll("^\"|\"$", ""));
+        if (!Files.isRegularFile(file)) {
+            System.out.println(RED + "File not found: " + file + RESET);
+            MainDB.pause();
+            return;
+        }
+
+        try {
+            System.out.println(YELLOW + "Importing " + file.getFileName() + "..." + RESET);
+            CatalogImport.Result result = CatalogImport.importFile(pool, file);
+
+            double perSecond = result.products() * 1000.0 / Math.max(result.millis(), 1);
+            System.out.println(GREEN + "Imported " + result.products() + " product(s) with " + result.sizes()
+                    + " size(s) from " + result.rows() + " row(s) in " + result.millis() + " ms ("
+                    + String.format("%.0f", perSecond) + " products/s)." + RESET);
+
+            if (!result.errors().isEmpty()) {
+                System.out.println(RED + result.errors().size() + " row(s) were not imported:" + RESET);
+                for (CatalogImport.RowError error : result.errors().subList(0, Math.min(IMPORT_ERRORS_SHOWN, result.errors().size()))) {
+                    System.out.printf("  Line %-6d │ %s%n", error.line(), error.message());
+                }
+                if (result.errors().size() > IMPORT_ERRORS_SHOWN) {
+                    System.out.println("  ... and " + (result.errors().size() - IMPORT_ERRORS_SHOWN) + " more.");
+                }
+                System.out.println("Full report: " + YELLOW + result.errorReport() + RESET);
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(RED + e.getMessage() + RESET);
+        } catch (IOException e) {
+            System.out.println(RED + "Could not read the file: " + e.getMessage() + RESET);
+        } catch (SQLException e) {
+            System.out.println(RED + "Database error while importing: " + e.getMessage() + RESET);
+        }
+        MainDB.pause();
+    }
+
     // ==========================================================
     // EDIT PRODUCT (with log)
     // ==========================================================
-    public static void editProduct(Connection conn, Scanner sc, int categoryId) {
+    public static void editProduct(ConnectionPool pool, Scanner sc, int categoryId) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
             System.out.println("║                     EDIT PRODUCT MENU                    ║");
             System.out.println("╚══════════════════════════════════════════════════════════╝");
 
-            displayProductsByCategory(conn, categoryId);
+            displayProductsByCategory(CatalogService.activeProductsIn(pool, categoryId));
 
             System.out.println(YELLOW + "\nType 'back' to return.\n" + RESET);
             System.out.print("Enter Product Code to edit (e.g P22988): ");
             String code = sc.nextLine().trim();
             if (code.equalsIgnoreCase("back")) return;
 
-            String checkSql = "SELECT * FROM products WHERE product_code = ? AND category_id = ? AND active_status = 1";
-            try (PreparedStatement check = conn.prepareStatement(checkSql)) {
-                check.setString(1, code);
-                check.setInt(2, categoryId);
-                ResultSet rs = check.executeQuery();
-
-                if (!rs.next()) {
-                    System.out.println(RED + "Product not found in this category!" + RESET);
-                    MainDB.pause();
-                    return;
-                }
+            ProductDao.Product product = CatalogService.findInCategory(pool, code, categoryId);
+            if (product == null) {
+                System.out.println(RED + "Product not found in this category!" + RESET);
+                MainDB.pause();
+                return;
+            }
 
-                int id = rs.getInt("id");
-                String currentName = rs.getString("name");
-                double currentPrice = rs.getDouble("price");
+            String currentName = product.name();
+            double currentPrice = product.price();
 
-                System.out.println("\nEditing Product: " + currentName);
-                System.out.print("New name (leave blank to keep '" + currentName + "'): ");
-                String name = sc.nextLine().trim();
-                if (name.isEmpty()) name = currentName;
+            System.out.println("\nEditing Product: " + currentName);
+            System.out.print("New name (leave blank to keep '" + currentName + "'): ");
+            String name = sc.nextLine().trim();
+            if (name.isEmpty()) name = currentName;
 
-                System.out.print("New price (leave blank to keep '" + currentPrice + "'): ");
-                String priceInput = sc.nextLine().trim();
-                double price = currentPrice;
-                if (!priceInput.isEmpty()) {
-                    try {
-                        price = Double.parseDouble(priceInput);
-                    } catch (NumberFormatException e) {
-                        System.out.println(RED + "Invalid price format!" + RESET);
-                        MainDB.pause();
-                        return;
-                    }
+            System.out.print("New price (leave blank to keep '" + currentPrice + "'): ");
+            String priceInput = sc.nextLine().trim();
+            double price = currentPrice;
+            if (!priceInput.isEmpty()) {
+                try {
+                    price = Double.parseDouble(priceInput);
+                } catch (NumberFormatException e) {
+                    System.out.println(RED + "Invalid price format!" + RESET);
+                    MainDB.pause();
+                    return;
                 }
+            }
 
-                String updateSql = "UPDATE products SET name = ?, price = ? WHERE product_code = ?";
-                try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                    ps.setString(1, name);
-                    ps.setDouble(2, price);
-                    ps.setString(3, code);
-                    ps.executeUpdate();
-                    System.out.println(GREEN + "Product updated successfully!" + RESET);
-                }
+            CatalogService.editProduct(pool, new CatalogService.ProductEdit(product.id(), name, price));
+            System.out.println(GREEN + "Product updated successfully!" + RESET);
 
-                editProductSizes(conn, sc, id);
-            }
+            editProductSizes(pool, sc, product.id());
 
+            MainDB.pause();
+        } catch (IllegalArgumentException e) {
+            System.out.println(RED + e.getMessage() + RESET);
             MainDB.pause();
         } catch (SQLException e) {
             System.out.println(RED + "Error editing product: " + e.getMessage() + RESET);
@@ -467,23 +525,18 @@ public class ProductManager {
         }
     }
 
-    
-    private static void editProductSizes(Connection conn, Scanner sc, int productId) {
+
+    private static void editProductSizes(ConnectionPool pool, Scanner sc, int productId) {
         while (true) {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════╗");
             System.out.println("║                      EDIT SIZES                      ║");
             System.out.println("╚══════════════════════════════════════════════════════╝");
 
-            String sql = "SELECT id, size, critical_stock FROM product_sizes WHERE product_id = ? ORDER BY size";
-            
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, productId);
-                ResultSet rs = ps.executeQuery();
-
+            try {
                 System.out.println("\nCurrent Sizes:");
-                while (rs.next()) {
-                    System.out.println("ID: " + rs.getInt("id") + " | Size: " + rs.getString("size") + " | Critical: " + rs.getInt("critical_stock"));
+                for (ProductDao.Size size : CatalogService.currentSizesOf(pool, productId)) {
+                    System.out.println("ID: " + size.id() + " | Size: " + size.size() + " | Critical: " + size.criticalStock());
                 }
             } catch (SQLException e) {
                 System.out.println(RED + "Error loading sizes: " + e.getMessage() + RESET);
@@ -499,8 +552,8 @@ public class ProductManager {
             String choice = sc.nextLine().trim();
 
             if (choice.equals("1")) {
-                addSizeToProduct(conn, sc, productId);
-            } 
+                addSizeToProduct(pool, sc, productId);
+            }
             else if (choice.equals("2")) {
                 System.out.print("Enter Size ID to edit: ");
                 String idInput = sc.nextLine().trim();
@@ -510,35 +563,32 @@ public class ProductManager {
                     System.out.print("New critical stock: ");
                     int critical = Integer.parseInt(sc.nextLine().trim());
 
-                    String update = "UPDATE product_sizes SET critical_stock = ? WHERE id = ?";
-                    try (PreparedStatement ps = conn.prepareStatement(update)) {
-                        ps.setInt(1, critical);
-                        ps.setInt(2, sizeId);
-                        ps.executeUpdate();
+                    if (CatalogService.setCriticalStock(pool, productId, sizeId, critical)) {
                         System.out.println(GREEN + "Updated successfully!" + RESET);
+                    } else {
+                        System.out.println(RED + "Size not found for this product!" + RESET);
                     }
                 } catch (Exception e) {
                     System.out.println(RED + "Invalid input!" + RESET);
                 }
                 MainDB.pause();
-            } 
+            }
             else if (choice.equals("3")) {
                 System.out.print("Enter Size ID to delete: ");
                 String idInput = sc.nextLine().trim();
                 try {
                     int sizeId = Integer.parseInt(idInput);
 
-                    String del = "DELETE FROM product_sizes WHERE id = ?";
-                    try (PreparedStatement ps = conn.prepareStatement(del)) {
-                        ps.setInt(1, sizeId);
-                        ps.executeUpdate();
+                    if (CatalogService.deleteSize(pool, productId, sizeId)) {
                         System.out.println(GREEN + "Size deleted!" + RESET);
+                    } else {
+                        System.out.println(RED + "Size not found for this product!" + RESET);
                     }
                 } catch (Exception e) {
                     System.out.println(RED + "Invalid input!" + RESET);
                 }
                 MainDB.pause();
-            } 
+            }
             else if (choice.equals("4")) {
                 return;
             }
@@ -549,7 +599,7 @@ public class ProductManager {
     // ==========================================================
     // DELETE PRODUCT (with log)
     // ==========================================================
-    public static void deleteProduct(Connection conn, Scanner sc, int categoryId) {
+    public static void deleteProduct(ConnectionPool pool, Scanner sc, int categoryId) {
         try {
             MainDB.clearScreen();
             System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -557,49 +607,33 @@ public class ProductManager {
             System.out.println("╚══════════════════════════════════════════════════════════╝");
 
             // Display only active products in this category
-            displayProductsByCategory(conn, categoryId);
+            displayProductsByCategory(CatalogService.activeProductsIn(pool, categoryId));
 
             System.out.println(YELLOW + "\nType 'back' to return." + RESET);
             System.out.print("Enter Product Code to delete (e.g P22988): ");
             String code = sc.nextLine().trim();
             if (code.equalsIgnoreCase("back")) return;
 
-            String checkSql = "SELECT * FROM products WHERE product_code = ? AND category_id = ? AND active_status = 1";
-            try (PreparedStatement check = conn.prepareStatement(checkSql)) {
-                check.setString(1, code);
-                check.setInt(2, categoryId);
-                ResultSet rs = check.executeQuery();
-
-                if (!rs.next()) {
-                    System.out.println(RED + "Product not found or already deactivated!" + RESET);
-                    MainDB.pause();
-                    return;
-                }
-
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                int stock = rs.getInt("stock");
-
-                System.out.println(YELLOW + "Type CONFIRM DELETE in ALL CAPS to deactivate '" + name + "'." + RESET);
-                System.out.print("Input: ");
-                String confirm = sc.nextLine().trim();
-                if (!confirm.equals("CONFIRM DELETE")) {
-                    System.out.println(YELLOW + "Deactivation canceled." + RESET);
-                    MainDB.pause();
-                    return;
-                }
-
-                // Soft delete: set active_status = 0
-                String updateSql = "UPDATE products SET active_status = 0 WHERE product_code = ?";
-                try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                    ps.setString(1, code);
-                    ps.executeUpdate();
+            ProductDao.Product product = CatalogService.findInCategory(pool, code, categoryId);
+            if (product == null) {
+                System.out.println(RED + "Product not found or already deactivated!" + RESET);
+                MainDB.pause();
+                return;
+            }
 
-                    logInventoryChange(conn, id, "DELETE", 0, stock, 0);
-                    System.out.println(GREEN + "Product deactivated successfully!" + RESET);
-                }
+            System.out.println(YELLOW + "Type CONFIRM DELETE in ALL CAPS to deactivate '" + product.name() + "'." + RESET);
+            System.out.print("Input: ");
+            String confirm = sc.nextLine().trim();
+            if (!confirm.equals("CONFIRM DELETE")) {
+                System.out.println(YELLOW + "Deactivation canceled." + RESET);
+                MainDB.pause();
+                return;
             }
 
+            // Soft delete: active_status = 0, logged in the same transaction
+            CatalogService.deactivateProduct(pool, product);
+            System.out.println(GREEN + "Product deactivated successfully!" + RESET);
+
             MainDB.pause();
         } catch (SQLException e) {
             System.out.println(RED + "Error deactivating product: " + e.getMessage() + RESET);
@@ -607,28 +641,6 @@ public class ProductManager {
         }
     }
 
-    // ==========================================================
-    // LOG HELPER
-    // ==========================================================
-    private static void logInventoryChange(Connection conn, int productId, String type, int qty, int prev, int now) {
-        try {
-            String sql = """
-                INSERT INTO inventory_log (product_id, change_type, quantity, previous_stock, new_stock, created_at)
-                VALUES (?, ?, ?, ?, ?, NOW())
-            """;
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, productId);
-                ps.setString(2, type);
-                ps.setInt(3, qty);
-                ps.setInt(4, prev);
-                ps.setInt(5, now);
-                ps.executeUpdate();
-            }
-        } catch (SQLException e) {
-            System.out.println(RED + "Failed to log inventory change: " + e.getMessage() + RESET);
-        }
-    }
-
     // ==========================================================
     // VIEW PRODUCTS
     // ==========================================================
@@ -670,7 +682,7 @@ public class ProductManager {
         }
     }
 
-    public static void manageRestock(Connection conn, Scanner sc, String username) {
+    public static void manageRestock(ConnectionPool pool, Scanner sc, Session session) {
         String input = "";
         do {
             try {
@@ -678,15 +690,16 @@ public class ProductManager {
                 MainDB.clearScreen();
                 System.out.println("╭──────────────────────────── Options ──────────────────────────╮");
                 System.out.println("│ [1] Restock Dashboard             [2] Restock Products        │");
-                System.out.println("│ [X] Back to Product Management                                │");
+                System.out.println("│ [3] Restock from Manifest         [X] Back to Product Mgmt    │");
                 System.out.println("╰───────────────────────────────────────────────────────────────╯");
                 System.out.print("Enter choice ➤ ");
 
                 input = sc.nextLine().trim().toUpperCase();
 
                 switch (input) {
-                    case "1" -> showRestockDashboard(conn);
-                    case "2" -> restockProducts(conn, sc);
+                    case "1" -> showRestockDashboard(pool, sc);
+                    case "2" -> restockProducts(pool, sc);
+                    case "3" -> restockFromManifest(pool, sc);
                     case "X" -> {} // exit loop
                     default -> {
                         System.out.println(RED + "Invalid choice!" + RESET);
@@ -703,101 +716,138 @@ public class ProductManager {
     // ==========================================================
     // RESTOCK DASHBOARD
     // ==========================================================
-    private static void showRestockDashboard(Connection conn) throws SQLException {
-        MainDB.clearScreen();
-        System.out.println("╔════════════════════════════════════════════════════════════════════════════════════════════════════════╗");
-        System.out.println("║                                         RESTOCK DASHBOARD                                              ║");
-        System.out.println("╚════════════════════════════════════════════════════════════════════════════════════════════════════════╝");
-
-        String sql = """
-            SELECT c.name AS category, p.name AS product, ps.size, ps.stock, ps.damaged, ps.critical_stock
-            FROM products p
-            LEFT JOIN product_sizes ps ON p.id = ps.product_id
-            LEFT JOIN categories c ON p.category_id = c.id
-            WHERE p.active_status = 1
-            ORDER BY ps.stock ASC, c.name, p.name, ps.size
-        """;
-
-        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
-            List<String[]> records = new ArrayList<>();
-            int categoryWidth = 50;
-            int productWidth = 60;
-            int sizeWidth = 8;
-            int stockWidth = 7;
-            int damagedWidth = 9;
-            int statusWidth = 15;
-
-            while (rs.next()) {
-                String category = rs.getString("category");
-                String name = rs.getString("product");
+    private static void showRestockDashboard(ConnectionPool pool, Scanner sc) throws SQLException {
+        int categoryWidth = 50;
+        int productWidth = 60;
+        int sizeWidth = 8;
+        int stockWidth = 7;
+        int damagedWidth = 9;
+        int statusWidth = 15;
+
+        // Only the sizes that need restocking, most urgent first, a page at a time from LowStockIndex
+        int pageSize = 20;
+        int currentPage = 0;
+        Integer categoryId = null;
+        String categoryName = "All";
+        InventoryService.Level level = null;
+        boolean running = true;
+
+        while (running) {
+            LowStockIndex.Page page = LowStockIndex.atRisk(pool, categoryId, level, currentPage * pageSize, pageSize);
+            int totalPages = Math.max(1, (int) Math.ceil((double) page.total() / pageSize));
+            if (currentPage >= totalPages) {
+                currentPage = totalPages - 1;
+                continue;
+            }
+
+            MainDB.clearScreen();
+            System.out.println("╔════════════════════════════════════════════════════════════════════════════════════════════════════════╗");
+            System.out.println("║                                         RESTOCK DASHBOARD                                              ║");
+            System.out.println("╚════════════════════════════════════════════════════════════════════════════════════════════════════════╝");
+            System.out.println("Category: " + categoryName + "   Status: "
+                    + (level == null ? "Out of Stock + Low Stock" : level == InventoryService.Level.OUT ? "Out of Stock" : "Low Stock")
+                    + "   (" + page.total() + " size(s) need restocking)");
+            System.out.println();
+
+            // Header
+            System.out.printf("%-" + categoryWidth + "s │ %-" + productWidth + "s │ %-" + sizeWidth + "s │ %-" + stockWidth + "s │ %-" + damagedWidth + "s │ %-" + statusWidth + "s%n",
+                "Category", "Product Name", "Size", "Stock", "Damaged", "Status");
+            System.out.println("───────────────────────────────────────────────────┼──────────────────────────────────────────────────────────────┼──────────┼─────────┼───────────┼───────────────");
+
+            for (ProductDao.StockLevel row : page.rows()) {
+                String category = row.category() == null ? "-" : row.category();
+                String name = row.product();
                 if (name == null) name = "-";
                 name = name.replace("\n", " ").replace("\r", " ");
-                String size = rs.getString("size") == null ? "-" : rs.getString("size");
-                int stock = rs.getInt("stock");
-                int damaged = rs.getInt("damaged");
-                int critical = rs.getInt("critical_stock");
+                String size = row.size() == null ? "-" : row.size();
 
                 // Truncate if too long
                 if (category.length() > categoryWidth) category = category.substring(0, categoryWidth - 3) + "...";
                 if (name.length() > productWidth) name = name.substring(0, productWidth - 3) + "...";
 
-                String status;
-                if (stock == 0) status = RED + "Out of Stock" + RESET;
-                else if (stock <= critical) status = YELLOW + "Low Stock" + RESET;
-                else status = GREEN + "Safe Stock" + RESET;
+                String status = switch (InventoryService.level(row)) {
+                    case OUT -> RED + "Out of Stock" + RESET;
+                    case LOW -> YELLOW + "Low Stock" + RESET;
+                    case SAFE -> GREEN + "Safe Stock" + RESET;
+                };
 
-                records.add(new String[]{category, name, size, String.valueOf(stock), String.valueOf(damaged), status});
+                System.out.printf("%-" + categoryWidth + "s │ %-" + productWidth + "s │ %-" + sizeWidth + "s │ %-" + stockWidth + "d │ %-" + damagedWidth + "d │ %-" + statusWidth + "s%n",
+                    category, name, size, row.stock(), row.damaged(), status);
             }
-
-            if (records.isEmpty()) {
-                System.out.println(YELLOW + "No products/sizes found." + RESET);
-                MainDB.pause();
-                return;
+            if (page.rows().isEmpty()) {
+                System.out.println(GREEN + "Nothing needs restocking." + RESET);
             }
 
-            Scanner scanner = new Scanner(System.in);
-            int pageSize = 20; // show 20 items per page
-            int currentPage = 0;
-            int totalPages = (int) Math.ceil((double) records.size() / pageSize);
-            boolean running = true;
+            System.out.println("────────────────────────────────────────────────────────────────────────────────────────────────────────────────────────");
+            System.out.printf("📄 Page %d of %d%n", currentPage + 1, totalPages);
 
-            while (running) {
-                MainDB.clearScreen();
+            // Options
+            System.out.println();
+            String options = "[C] ➜ Category   [S] ➜ Status   [X] ➜ Exit";
+            if (currentPage > 0) options = "[B] ➜ Previous Page   " + options;
+            if (currentPage < totalPages - 1) options = "[F] ➜ Next Page   " + options;
+            System.out.println(options);
 
-                // Header
-                System.out.printf("%-" + categoryWidth + "s │ %-" + productWidth + "s │ %-" + sizeWidth + "s │ %-" + stockWidth + "s │ %-" + damagedWidth + "s │ %-" + statusWidth + "s%n",
-                    "Category", "Product Name", "Size", "Stock", "Damaged", "Status");
-                System.out.println("───────────────────────────────────────────────────┼──────────────────────────────────────────────────────────────┼──────────┼─────────┼───────────┼───────────────");
+            System.out.print("Choose option: ");
+            String choice = sc.nextLine().trim().toUpperCase();
 
-                int start = currentPage * pageSize;
-                int end = Math.min(start + pageSize, records.size());
-
-                for (int i = start; i < end; i++) {
-                    String[] r = records.get(i);
-                    System.out.printf("%-" + categoryWidth + "s │ %-" + productWidth + "s │ %-" + sizeWidth + "s │ %-" + stockWidth + "s │ %-" + damagedWidth + "s │ %-" + statusWidth + "s%n",
-                        r[0], r[1], r[2], r[3], r[4], r[5]);
+            switch (choice) {
+                case "F" -> { if (currentPage < totalPages - 1) currentPage++; }
+                case "B" -> { if (currentPage > 0) currentPage--; }
+                case "C" -> {
+                    MainDB.clearScreen();
+                    int selected = selectCategory(pool, sc);
+                    categoryId = selected == -1 ? null : selected;
+                    categoryName = categoryId == null ? "All" : categoryName(pool, categoryId);
+                    currentPage = 0;
                 }
+                case "S" -> {
+                    System.out.print("Show [1] Out of Stock   [2] Low Stock   [3] Both ➤ ");
+                    level = switch (sc.nextLine().trim()) {
+                        case "1" -> InventoryService.Level.OUT;
+                        case "2" -> InventoryService.Level.LOW;
+                        default -> null;
+                    };
+                    currentPage = 0;
+                }
+                case "X" -> running = false;
+                default -> {}
+            }
+        }
+    }
 
-                System.out.println("────────────────────────────────────────────────────────────────────────────────────────────────────────────────────────");
-                System.out.printf("📄 Page %d of %d%n", currentPage + 1, totalPages);
-
-                // Options
-                System.out.println();
-                String options = "[X] ➜ Exit";
-                if (currentPage > 0) options = "[B] ➜ Previous Page   " + options;
-                if (currentPage < totalPages - 1) options = "[F] ➜ Next Page   " + options;
-                System.out.println(options);
+    private static String categoryName(ConnectionPool pool, int categoryId) throws SQLException {
+        for (CategoryDao.Category category : CatalogService.categories(pool)) {
+            if (category.id() == categoryId) return category.name();
+        }
+        return "-";
+    }
 
-                System.out.print("Choose option: ");
-                String choice = scanner.nextLine().trim().toUpperCase();
+    // Shown once when a product manager logs in; says nothing when all stock is above critical
+    public static void showLowStockAlert(ConnectionPool pool) {
+        try {
+            LowStockIndex.Alert alert = LowStockIndex.alert(pool, 5);
+            if (alert.out() == 0 && alert.low() == 0) return;
 
-                switch (choice) {
-                    case "F" -> { if (currentPage < totalPages - 1) currentPage++; }
-                    case "B" -> { if (currentPage > 0) currentPage--; }
-                    case "X" -> running = false;
-                    default -> {}
-                }
+            MainDB.clearScreen();
+            System.out.println("╔══════════════════════════════════════════════════════════╗");
+            System.out.println("║                     LOW STOCK ALERT                      ║");
+            System.out.println("╚══════════════════════════════════════════════════════════╝");
+            System.out.println(RED + alert.out() + " size(s) out of stock" + RESET + ", "
+                    + YELLOW + alert.low() + " at or below critical stock" + RESET + ".");
+            System.out.println();
+            System.out.println("Most urgent:");
+            for (ProductDao.StockLevel row : alert.worst()) {
+                String color = InventoryService.level(row) == InventoryService.Level.OUT ? RED : YELLOW;
+                System.out.printf("  %s%-40s %-8s %5d / %d%s%n", color, row.product(), row.size() == null ? "-" : row.size(),
+                        row.stock(), row.criticalStock(), RESET);
             }
+            System.out.println();
+            System.out.println("See Manage Restock > Restock Dashboard for the full list.");
+            MainDB.pause();
+        } catch (SQLException e) {
+            System.out.println(RED + "Could not check stock levels: " + e.getMessage() + RESET);
+            MainDB.pause();
         }
     }
 
@@ -809,27 +859,87 @@ public class ProductManager {
     // ==========================================================
     // RESTOCK PRODUCTS
     // ==========================================================
-    private static void restockProducts(Connection conn, Scanner sc) throws SQLException {
+    private static void restockFromManifest(ConnectionPool pool, Scanner sc) throws SQLException {
+        MainDB.clearScreen();
+        System.out.println("╔════════════════════════════════════════╗");
+        System.out.println("║         RESTOCK FROM MANIFEST          ║");
+        System.out.println("╚════════════════════════════════════════╝");
+        System.out.println("One line per size: code, size, received, damaged (damaged may be left out).");
+        System.out.println("Enter a file path, or paste the lines and finish with an empty line. BACK to exit.");
+        System.out.print("➤ ");
+        String first = sc.nextLine().trim();
+        if (first.equalsIgnoreCase("BACK") || first.isEmpty()) return;
+
+        List<String> text = new ArrayList<>();
+        Path file = Path.of(first.replaceAll("^\"|\"$", ""));
+        if (Files.isRegularFile(file)) {
+            try {
+                text = Files.readAllLines(file);
+            } catch (IOException e) {
+                System.out.println(RED + "Could not read the file: " + e.getMessage() + RESET);
+                MainDB.pause();
+                return;
+            }
+        } else {
+            text.add(first);
+            String line;
+            while (sc.hasNextLine() && !(line = sc.nextLine()).isBlank()) text.add(line);
+        }
+
+        InventoryService.Manifest manifest = InventoryService.parseManifest(text);
+        if (manifest.errors().isEmpty()) {
+            System.out.print(manifest.lines().size() + " line(s) read. Apply this delivery? (yes/no): ");
+            if (!sc.nextLine().trim().equalsIgnoreCase("yes")) return;
+        }
+
+        InventoryService.ManifestRestocked result;
+        try {
+            result = InventoryService.restock(pool, manifest);
+        } catch (IllegalArgumentException e) {
+            System.out.println(RED + e.getMessage() + RESET);
+            MainDB.pause();
+            return;
+        }
+
+        if (!result.errors().isEmpty()) {
+            System.out.println(RED + "Nothing was restocked; fix these lines and try again:" + RESET);
+            for (InventoryService.ManifestError error : result.errors()) {
+                System.out.printf("  Line %-5d │ %s%n", error.line(), error.message());
+            }
+            MainDB.pause();
+            return;
+        }
+
+        System.out.printf("%n%-10s │ %-28s │ %-6s │ %-15s │ %-15s%n", "Code", "Product", "Size", "Stock", "Damaged");
+        System.out.println("───────────┼──────────────────────────────┼────────┼─────────────────┼────────────────");
+        int good = 0;
+        int damaged = 0;
+        for (InventoryService.Difference d : result.differences()) {
+            System.out.printf("%-10s │ %-28s │ %-6s │ %5d → %-7d │ %5d → %-7d%n", d.code(), abbreviate(d.product(), 28), d.size(),
+                    d.previousStock(), d.newStock(), d.previousDamaged(), d.newDamaged());
+            good += d.newStock() - d.previousStock();
+            damaged += d.newDamaged() - d.previousDamaged();
+        }
+        System.out.println(GREEN + "Restocked " + result.differences().size() + " size(s): +" + good + " good, +"
+                + damaged + " damaged." + RESET);
+        MainDB.pause();
+    }
+
+    private static void restockProducts(ConnectionPool pool, Scanner sc) throws SQLException {
         while (true) {
             MainDB.clearScreen();
             System.out.println("╔════════════════════════════════════════╗");
             System.out.println("║            RESTOCK PRODUCTS            ║");
             System.out.println("╚════════════════════════════════════════╝");
 
-            String sqlCategories = "SELECT id, name FROM categories WHERE active_status = 1 ORDER BY id ASC";
-            List<Integer> categoryIds = new ArrayList<>();
-            List<String> categoryNames = new ArrayList<>();
-            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sqlCategories)) {
-                int idx = 1;
-                System.out.println("\nChoose a category:");
-                while (rs.next()) {
-                    categoryIds.add(rs.getInt("id"));
-                    categoryNames.add(rs.getString("name"));
-                    System.out.printf("%d. %s%n", idx++, rs.getString("name"));
-                }
+            List<CategoryDao.Category> categories = CatalogService.categories(pool);
+            System.out.println("\nChoose a category:");
+            int idx = 1;
+            for (CategoryDao.Category category : categories) {
+                System.out.printf("%d. %s%n", idx++, category.name());
             }
 
-            if (categoryIds.isEmpty()) {
+            if (categories.isEmpty()) {
                 System.out.println(YELLOW + "No categories available." + RESET);
                 MainDB.pause();
                 return;
@@ -842,36 +952,28 @@ public class ProductManager {
             int selectedCategory;
             try {
                 selectedCategory = Integer.parseInt(categoryChoice) - 1;
-                if (selectedCategory < 0 || selectedCategory >= categoryIds.size()) throw new NumberFormatException();
+                if (selectedCategory < 0 || selectedCategory >= categories.size()) throw new NumberFormatException();
             } catch (NumberFormatException e) {
                 System.out.println(RED + "Invalid selection!" + RESET);
                 MainDB.pause();
                 continue; // go back to category selection
             }
-            int categoryId = categoryIds.get(selectedCategory);
+            int categoryId = categories.get(selectedCategory).id();
 
             while (true) { // product selection loop
                 MainDB.clearScreen();
-                String sqlProducts = "SELECT id, name FROM products WHERE category_id = ? AND active_status = 1 ORDER BY name";
-                List<Integer> productIds = new ArrayList<>();
-                List<String> productNames = new ArrayList<>();
-                try (PreparedStatement ps = conn.prepareStatement(sqlProducts)) {
-                    ps.setInt(1, categoryId);
-                    ResultSet rs = ps.executeQuery();
-                    int idx = 1;
-                    System.out.println("╔══════════════════════════════════════╗");
-                    System.out.println("║         PRODUCTS TO RESTOCK          ║");
-                    System.out.println("╚══════════════════════════════════════╝");
-                    System.out.printf("%-4s │ %-30s%n", "No.", "Product Name");
-                    System.out.println("─────┼─────────────────────────────────");
-                    while (rs.next()) {
-                        productIds.add(rs.getInt("id"));
-                        productNames.add(rs.getString("name"));
-                        System.out.printf("%-4d │ %-30s%n", idx++, rs.getString("name"));
-                    }
+                List<ProductDao.Product> products = CatalogService.activeProductsIn(pool, categoryId);
+                System.out.println("╔══════════════════════════════════════╗");
+                System.out.println("║         PRODUCTS TO RESTOCK          ║");
+                System.out.println("╚══════════════════════════════════════╝");
+                System.out.printf("%-4s │ %-30s%n", "No.", "Product Name");
+                System.out.println("─────┼─────────────────────────────────");
+                idx = 1;
+                for (ProductDao.Product product : products) {
+                    System.out.printf("%-4d │ %-30s%n", idx++, product.name());
                 }
 
-                if (productIds.isEmpty()) {
+                if (products.isEmpty()) {
                     System.out.println(YELLOW + "No products in this category." + RESET);
                     MainDB.pause();
                     break; // back to category selection
@@ -884,39 +986,26 @@ public class ProductManager {
                 int selectedProduct;
                 try {
                     selectedProduct = Integer.parseInt(productChoice) - 1;
-                    if (selectedProduct < 0 || selectedProduct >= productIds.size()) throw new NumberFormatException();
+                    if (selectedProduct < 0 || selectedProduct >= products.size()) throw new NumberFormatException();
                 } catch (NumberFormatException e) {
                     System.out.println(RED + "Invalid selection!" + RESET);
                     MainDB.pause();
                     continue; // back to product selection
                 }
-                int productId = productIds.get(selectedProduct);
+                int productId = products.get(selectedProduct).id();
 
                 while (true) { // size selection loop
                     MainDB.clearScreen();
-                    String sqlSizes = "SELECT id, size, stock, damaged FROM product_sizes WHERE product_id = ? ORDER BY size";
-                    List<Integer> sizeIds = new ArrayList<>();
-                    List<Integer> stocks = new ArrayList<>();
-                    List<Integer> damagedList = new ArrayList<>();
-                    List<String> sizes = new ArrayList<>();
-
-                    try (PreparedStatement ps = conn.prepareStatement(sqlSizes)) {
-                        ps.setInt(1, productId);
-                        ResultSet rs = ps.executeQuery();
-                        int idx = 1;
-                        System.out.println("\nAvailable sizes:");
-                        System.out.printf("%-4s │ %-8s │ %-6s │ %-7s%n", "No.", "Size", "Stock", "Damaged");
-                        System.out.println("─────┼──────────┼────────┼────────");
-                        while (rs.next()) {
-                            sizeIds.add(rs.getInt("id"));
-                            sizes.add(rs.getString("size"));
-                            stocks.add(rs.getInt("stock"));
-                            damagedList.add(rs.getInt("damaged"));
-                            System.out.printf("%-4d │ %-8s │ %-6d │ %-7d%n", idx++, rs.getString("size"), rs.getInt("stock"), rs.getInt("damaged"));
-                        }
+                    List<ProductDao.Size> sizes = CatalogService.currentSizesOf(pool, productId);
+                    System.out.println("\nAvailable sizes:");
+                    System.out.printf("%-4s │ %-8s │ %-6s │ %-7s%n", "No.", "Size", "Stock", "Damaged");
+                    System.out.println("─────┼──────────┼────────┼────────");
+                    idx = 1;
+                    for (ProductDao.Size size : sizes) {
+                        System.out.printf("%-4d │ %-8s │ %-6d │ %-7d%n", idx++, size.size(), size.stock(), size.damaged());
                     }
 
-                    if (sizeIds.isEmpty()) {
+                    if (sizes.isEmpty()) {
                         System.out.println(YELLOW + "No sizes available for this product." + RESET);
                         MainDB.pause();
                         break; // back to product selection
@@ -929,7 +1018,7 @@ public class ProductManager {
                     int selectedSize;
                     try {
                         selectedSize = Integer.parseInt(sizeChoice) - 1;
-                        if (selectedSize < 0 || selectedSize >= sizeIds.size()) throw new NumberFormatException();
+                        if (selectedSize < 0 || selectedSize >= sizes.size()) throw new NumberFormatException();
                     } catch (NumberFormatException e) {
                         System.out.println(RED + "Invalid selection!" + RESET);
                         MainDB.pause();
@@ -960,28 +1049,16 @@ public class ProductManager {
                         }
                     }
 
-                    int goodQty = receivedQty - damagedQty;
-                    int selectedSizeId = sizeIds.get(selectedSize);
-                    int prevStock = stocks.get(selectedSize);
-                    int newStock = prevStock + goodQty;
-
-                    String sqlUpdate = "UPDATE product_sizes SET stock = stock + ?, `damaged` = `damaged` + ? WHERE id = ?";
-                    try (PreparedStatement ps = conn.prepareStatement(sqlUpdate)) {
-                        ps.setInt(1, goodQty);
-                        ps.setInt(2, damagedQty);
-                        ps.setInt(3, selectedSizeId);
-                        ps.executeUpdate();
+                    InventoryService.Restocked restocked = InventoryService.restock(pool,
+                            new InventoryService.Restock(productId, sizes.get(selectedSize).id(), receivedQty, damagedQty));
+                    if (restocked == null) {
+                        System.out.println(RED + "This size was removed from the product!" + RESET);
+                    } else {
+                        System.out.println(GREEN + "Restock complete! Good: " + restocked.good() + ", Damaged: " + restocked.damaged() + RESET);
                     }
-
-                    logInventoryChange(conn, selectedSizeId, "RESTOCK", goodQty, prevStock, newStock);
-
-                    System.out.println(GREEN + "Restock complete! Good: " + goodQty + ", Damaged: " + damagedQty + RESET);
                     MainDB.pause();
                 }
             }
         }
     }
-
-
-    
 }
@@ -0,0 +1,145 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The keyboard and screen of one session. The menus read through {@link #in()} and keep printing
+ * to System.out; once {@link #install()} has run, System.out forwards every call to the calling
+ * thread's terminal, so one process can drive many sessions without the menus knowing.
+ *
+ * Threads that never bound a terminal (the console app, background workers) use the process console.
+ * A background worker that has something to tell a session queues it with {@link #notice} on the
+ * terminal it captured, and the session shows it at the top of its next screen.
+ */
+public final class Terminal {
+
+    private static final PrintStream CONSOLE_OUT = System.out;
+    private static final Terminal CONSOLE = new Terminal(System.in, CONSOLE_OUT);
+    private static final ThreadLocal<Terminal> CURRENT = ThreadLocal.withInitial(() -> CONSOLE);
+
+    private final Scanner in;
+    private final PrintStream out;
+    private final Queue<String> notices = new ConcurrentLinkedQueue<>();
+
+    private Terminal(InputStream in, PrintStream out) {
+        this.out = out;
+        // Pending output, prompts included, is flushed whenever the session waits for input
+        this.in = new Scanner(new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                out.flush();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                out.flush();
+                return super.read(b, off, len);
+            }
+        }, StandardCharsets.UTF_8);
+    }
+
+    /** A terminal over a remote connection; a whole screen is buffered and sent when the session next reads. */
+    public static Terminal over(InputStream in, OutputStream out) {
+        return new Terminal(in, new PrintStream(new BufferedOutputStream(out), false, StandardCharsets.UTF_8));
+    }
+
+    public static Terminal current() {
+        return CURRENT.get();
+    }
+
+    /** Input of the calling thread's session. */
+    public static Scanner in() {
+        return CURRENT.get().in;
+    }
+
+    /** Queues a message for this terminal's next screen; safe to call from any thread. */
+    public void notice(String message) {
+        notices.add(message);
+    }
+
+    /** Prints and clears what background work has queued for the calling thread's terminal. */
+    public static void showNotices() {
+        Terminal terminal = CURRENT.get();
+        String message;
+        while ((message = terminal.notices.poll()) != null) terminal.out.println(message);
+    }
+
+    public static void bind(Terminal terminal) {
+        CURRENT.set(terminal);
+    }
+
+    public static void unbind() {
+        CURRENT.get().out.flush();
+        CURRENT.remove();
+    }
+
+    /** Routes System.out through the calling thread's terminal from now on. */
+    public static synchronized void install() {
+        if (!(System.out instanceof Routed)) System.setOut(new Routed());
+    }
+
+    // ==========================================================
+    // ROUTING
+    // ==========================================================
+    // Every call goes straight to the session's own stream, so sessions never share a lock or buffer
+    private static final class Routed extends PrintStream {
+
+        Routed() {
+            super(OutputStream.nullOutputStream());
+        }
+
+        private static PrintStream target() {
+            return CURRENT.get().out;
+        }
+
+        @Override public void flush() { target().flush(); }
+        @Override public void close() { target().flush(); }
+        @Override public boolean checkError() { return target().checkError(); }
+
+        @Override public void write(int b) { target().write(b); }
+        @Override public void write(byte[] buf, int off, int len) { target().write(buf, off, len); }
+        @Override public void write(byte[] buf) throws IOException { target().write(buf); }
+        @Override public void writeBytes(byte[] buf) { target().writeBytes(buf); }
+
+        @Override public void print(boolean b) { target().print(b); }
+        @Override public void print(char c) { target().print(c); }
+        @Override public void print(int i) { target().print(i); }
+        @Override public void print(long l) { target().print(l); }
+        @Override public void print(float f) { target().print(f); }
+        @Override public void print(double d) { target().print(d); }
+        @Override public void print(char[] s) { target().print(s); }
+        @Override public void print(String s) { target().print(s); }
+        @Override public void print(Object obj) { target().print(obj); }
+
+        @Override public void println() { target().println(); }
+        @Override public void println(boolean x) { target().println(x); }
+        @Override public void println(char x) { target().println(x); }
+        @Override public void println(int x) { target().println(x); }
+        @Override public void println(long x) { target().println(x); }
+        @Override public void println(float x) { target().println(x); }
+        @Override public void println(double x) { target().println(x); }
+        @Override public void println(char[] x) { target().println(x); }
+        @Override public void println(String x) { target().println(x); }
+        @Override public void println(Object x) { target().println(x); }
+
+        @Override public PrintStream printf(String format, Object... args) { target().printf(format, args); return this; }
+        @Override public PrintStream printf(Locale l, String format, Object... args) { target().printf(l, format, args); return this; }
+        @Override public PrintStream format(String format, Object... args) { target().format(format, args); return this; }
+        @Override public PrintStream format(Locale l, String format, Object... args) { target().format(l, format, args); return this; }
+
+        @Override public PrintStream append(CharSequence csq) { target().append(csq); return this; }
+        @Override public PrintStream append(CharSequence csq, int start, int end) { target().append(csq, start, end); return this; }
+        @Override public PrintStream append(char c) { target().append(c); return this; }
+    }
+}
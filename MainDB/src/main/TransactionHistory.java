@@ -1,111 +1,102 @@
 package main;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.LocalDate;
 import java.util.Scanner;
+import dao.Keyset;
+import dao.SalesDao;
+import db.ConnectionPool;
 
 public class TransactionHistory {
     static final String RESET = "\u001B[0m";
     static final String RED = "\u001B[31m";
+    static final String YELLOW = "\u001B[33m";
 
-    public static void viewTransactionHistory(Connection conn) {
+    public static void viewTransactionHistory(ConnectionPool pool, Scanner sc) {
         try {
             MainDB.clearScreen();
             System.out.println("╔════════════════════════════════════════════════════════════════════════════════════════════════╗");
             System.out.println("║                                 TRANSACTION HISTORY                                             ║");
             System.out.println("╚════════════════════════════════════════════════════════════════════════════════════════════════╝");
 
-            String sql = """
-                SELECT s.id, 
-                       COALESCE(p.name, 'Deleted Product') AS product, 
-                       s.quantity, 
-                       s.total_price, 
-                       s.payment_method, 
-                       u.username AS sold_by, 
-                       s.sale_date
-                FROM sales s
-                LEFT JOIN products p ON s.product_id = p.id
-                LEFT JOIN users u ON s.user_id = u.id
-                ORDER BY s.sale_date DESC
-            """;
-
-            try (Statement st = conn.createStatement();
-                 ResultSet rs = st.executeQuery(sql)) {
+            SalesDao.Filter[] filter = { SalesDao.Filter.NONE };
+            KeysetPager<SalesDao.Sale> pager = new KeysetPager<>(pool, 10,
+                    s -> new Keyset(s.saleDate(), s.id()),
+                    (conn, after, limit) -> SalesDao.page(conn, filter[0], after, limit));
+            pager.reset(Keyset.NEWEST);
+
+            if (pager.rows().isEmpty()) {
+                System.out.println(RED + "No transactions found." + RESET);
+                System.out.println("─────────────────────────────────────────────────────────────────────────────────────────────────");
+                MainDB.pause();
+                return;
+            }
 
-                List<String[]> records = new ArrayList<>();
-                java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("MMMM dd, yyyy hh:mm a");
+            final String format = "%-5s│ %-25s│ %-6s│ %-10s│ %-15s│ %-15s│ %-25s%n";
+            java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("MMMM dd, yyyy hh:mm a");
+            boolean running = true;
+
+            while (running) {
+                MainDB.clearScreen();
+                System.out.println("╔════════════════════════════════════════════════════════════════════════════════════════════════╗");
+                System.out.println("║                                 TRANSACTION HISTORY                                            ║");
+                System.out.println("╚════════════════════════════════════════════════════════════════════════════════════════════════╝");
+                if (!filter[0].equals(SalesDao.Filter.NONE)) {
+                    System.out.println(YELLOW + "Filter ➜ Cashier: " + LogManager.valueOrAny(filter[0].cashier())
+                            + "   Payment: " + LogManager.valueOrAny(filter[0].paymentMethod()) + RESET);
+                }
 
-                while (rs.next()) {
-                    int id = rs.getInt("id");
-                    String product = rs.getString("product");
-                    int qty = rs.getInt("quantity");
-                    double total = rs.getDouble("total_price");
-                    String payment = rs.getString("payment_method");
-                    String soldBy = rs.getString("sold_by");
-                    Timestamp date = rs.getTimestamp("sale_date");
-                    String formattedDate = (date != null) ? sdf.format(date) : "N/A";
+                System.out.printf(format, "ID", "Product", "Qty", "Total", "Payment", "Sold By", "Date");
+                System.out.println("─────┼──────────────────────────┼───────┼───────────┼────────────────┼────────────────┼───────────────────────────");
 
-                    records.add(new String[]{
-                            String.valueOf(id),
-                            product,
-                            String.valueOf(qty),
-                            String.format("%.2f", total),
-                            payment,
-                            soldBy,
-                            formattedDate
-                    });
+                for (SalesDao.Sale s : pager.rows()) {
+                    String productName = s.productName();
+                    if (productName.length() > 25) productName = productName.substring(0, 22) + "...";
+                    String formattedDate = (s.saleDate() != null) ? sdf.format(s.saleDate()) : "N/A";
+                    System.out.printf(format, s.id(), productName, s.quantity(), String.format("%.2f", s.totalPrice()),
+                            s.paymentMethod(), s.soldBy(), formattedDate);
                 }
 
-                if (records.isEmpty()) {
-                    System.out.println(RED + "No transactions found." + RESET);
-                    System.out.println("─────────────────────────────────────────────────────────────────────────────────────────────────");
-                    MainDB.pause();
-                    return;
+                if (pager.rows().isEmpty()) {
+                    System.out.println(YELLOW + "No transactions match." + RESET);
                 }
 
-                final String format = "%-5s│ %-25s│ %-6s│ %-10s│ %-15s│ %-15s│ %-25s%n";
-                Scanner scanner = new Scanner(System.in);
-                int pageSize = 10;
-                int currentPage = 0;
-                int totalPages = (int) Math.ceil((double) records.size() / pageSize);
-                boolean running = true;
+                System.out.println("──────────────────────────────────────────────────────────────────────────────────────────────────────────────────");
+                System.out.printf("Page %d%n%n", pager.pageNumber());
 
-                while (running) {
-                    MainDB.clearScreen();
-                    System.out.println("╔════════════════════════════════════════════════════════════════════════════════════════════════╗");
-                    System.out.println("║                                 TRANSACTION HISTORY                                            ║");
-                    System.out.println("╚════════════════════════════════════════════════════════════════════════════════════════════════╝");
+                String options = "[X] Exit";
+                if (pager.hasPrevious()) options = "[B] Back   " + options;
+                if (pager.hasNext()) options = "[F] Forward   " + options;
+                System.out.println(options);
+                System.out.println("[D] Jump to Date   [U] Filter Cashier   [M] Filter Payment   [C] Clear Filters");
 
-                    System.out.printf(format, "ID", "Product", "Qty", "Total", "Payment", "Sold By", "Date");
-                    System.out.println("─────┼──────────────────────────┼───────┼───────────┼────────────────┼────────────────┼───────────────────────────");
+                System.out.print("Choose option ➤ ");
+                String choice = sc.nextLine().trim().toUpperCase();
 
-                    int start = currentPage * pageSize;
-                    int end = Math.min(start + pageSize, records.size());
-
-                    for (int i = start; i < end; i++) {
-                        String[] r = records.get(i);
-                        String productName = r[1];
-                        if (productName.length() > 25) productName = productName.substring(0, 22) + "...";
-                        System.out.printf(format, r[0], productName, r[2], r[3], r[4], r[5], r[6]);
+                switch (choice) {
+                    case "F" -> pager.next();
+                    case "B" -> pager.previous();
+                    case "D" -> {
+                        LocalDate day = LogManager.readDate(sc);
+                        if (day != null) pager.reset(Keyset.endOf(day));
                     }
-
-                    System.out.println("──────────────────────────────────────────────────────────────────────────────────────────────────────────────────");
-                    System.out.printf("Page %d of %d%n%n", currentPage + 1, totalPages);
-
-                    String options = "[X] Exit";
-                    if (currentPage > 0) options = "[B] Back   " + options;
-                    if (currentPage < totalPages - 1) options = "[F] Forward   " + options;
-                    System.out.println(options);
-
-                    System.out.print("Choose option ➤ ");
-                    String choice = scanner.nextLine().trim().toUpperCase();
-
-                    switch (choice) {
-                        case "F" -> { if (currentPage < totalPages - 1) currentPage++; }
-                        case "B" -> { if (currentPage > 0) currentPage--; }
-                        case "X" -> running = false;
-                        default -> {}
+                    case "U" -> {
+                        System.out.print("Cashier username (blank for any): ");
+                        String cashier = sc.nextLine().trim();
+                        filter[0] = new SalesDao.Filter(cashier.isEmpty() ? null : cashier, filter[0].paymentMethod());
+                        pager.reset(Keyset.NEWEST);
+                    }
+                    case "M" -> {
+                        System.out.print("Payment method (Cash/GCash, blank for any): ");
+                        String method = sc.nextLine().trim();
+                        filter[0] = new SalesDao.Filter(filter[0].cashier(), method.isEmpty() ? null : method);
+                        pager.reset(Keyset.NEWEST);
+                    }
+                    case "C" -> {
+                        filter[0] = SalesDao.Filter.NONE;
+                        pager.reset(Keyset.NEWEST);
                     }
+                    case "X" -> running = false;
+                    default -> {}
                 }
             }
 
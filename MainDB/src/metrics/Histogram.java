@@ -0,0 +1,107 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in the HDR style: microsecond buckets that are exact below 64 µs and
+ * then split every power of two into 32 steps, so any percentile is within about 3% of the real
+ * value while the whole histogram stays a fixed array of counters. Recording never allocates.
+ */
+public final class Histogram implements Metrics.LatencyMXBean {
+
+    private static final int LINEAR = 64;
+    private static final int STEPS = 32;
+    private static final int STEP_BITS = 5;
+    private static final int MAX_EXPONENT = 40; // ~12 days in microseconds
+    // One extra bucket at the end catches anything slower
+    private static final int BUCKETS = LINEAR + (MAX_EXPONENT - 6) * STEPS + 1;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    Histogram(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(nanos / 1000, 0);
+        counts.incrementAndGet(bucketOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /** Records the time since a System.nanoTime() taken when the operation started. */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < LINEAR) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) return BUCKETS - 1;
+        int step = (int) (micros >>> (exponent - STEP_BITS)) - STEPS;
+        return LINEAR + (exponent - 6) * STEPS + step;
+    }
+
+    // Midpoint of the bucket, the best single guess at the values that landed in it
+    static long valueOf(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int exponent = 6 + (bucket - LINEAR) / STEPS;
+        long lower = (long) (STEPS + (bucket - LINEAR) % STEPS) << (exponent - STEP_BITS);
+        return lower + (1L << (exponent - STEP_BITS)) / 2;
+    }
+
+    /** The latency in microseconds that the given fraction of recordings (0.5, 0.99...) did not exceed. */
+    public long percentileMicros(double fraction) {
+        long total = count.sum();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(valueOf(i), maxMicros.get());
+        }
+        return maxMicros.get();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long total = count.sum();
+        return total == 0 ? 0 : totalMicros.sum() / 1000.0 / total;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentileMicros(0.50) / 1000.0;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileMicros(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return percentileMicros(0.999) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+}
@@ -0,0 +1,148 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters, gauges and latency histograms, looked up by name. Everything registered
+ * here is also published as a platform MBean under the "usms" domain (type=Latency, Counter or
+ * Gauge) so jconsole or any JMX scraper can read p50/p99 from a running till or server.
+ *
+ * Callers keep the returned metric in a static field; only the first lookup of a name allocates.
+ */
+public final class Metrics {
+
+    public interface LatencyMXBean {
+        long getCount();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP99Millis();
+        double getP999Millis();
+        double getMaxMillis();
+    }
+
+    public interface CounterMXBean {
+        long getValue();
+    }
+
+    public interface GaugeMXBean {
+        long getValue();
+    }
+
+    public static final class Counter implements CounterMXBean {
+        private final String name;
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        @Override
+        public long getValue() {
+            return value.sum();
+        }
+    }
+
+    public static final class Gauge implements GaugeMXBean {
+        private final String name;
+        private volatile LongSupplier source;
+
+        Gauge(String name, LongSupplier source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public long getValue() {
+            return source.getAsLong();
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    private static final Counter errors = counter("errors");
+
+    private Metrics() {}
+
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> publish("Latency", n, new Histogram(n)));
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> publish("Counter", n, new Counter(n)));
+    }
+
+    /** Registers a gauge, or points an existing one at a new source (a reopened pool, say). */
+    public static Gauge gauge(String name, LongSupplier source) {
+        Gauge gauge = gauges.computeIfAbsent(name, n -> publish("Gauge", n, new Gauge(n, source)));
+        gauge.source = source;
+        return gauge;
+    }
+
+    /** Counts a failure that was reported to the user and otherwise swallowed. */
+    public static void error(String where) {
+        errors.increment();
+        counter("errors." + where).increment();
+    }
+
+    // ==========================================================
+    // SNAPSHOTS (admin screen)
+    // ==========================================================
+    public static List<Histogram> histograms() {
+        List<Histogram> list = new ArrayList<>(histograms.values());
+        list.sort(Comparator.comparing(Histogram::name));
+        return list;
+    }
+
+    public static List<Counter> counters() {
+        List<Counter> list = new ArrayList<>(counters.values());
+        list.sort(Comparator.comparing(Counter::name));
+        return list;
+    }
+
+    public static List<Gauge> gauges() {
+        List<Gauge> list = new ArrayList<>(gauges.values());
+        list.sort(Comparator.comparing(Gauge::name));
+        return list;
+    }
+
+    // ==========================================================
+    // JMX
+    // ==========================================================
+    private static <T> T publish(String type, String name, T metric) {
+        try {
+            ObjectName objectName = new ObjectName("usms:type=" + type + ",name=" + ObjectName.quote(name));
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(objectName)) server.registerMBean(metric, objectName);
+        } catch (JMException e) {
+            // Still usable from the admin screen, just not visible over JMX
+            System.err.println("Metric " + name + " not published over JMX: " + e.getMessage());
+        }
+        return metric;
+    }
+}
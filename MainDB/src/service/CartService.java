@@ -0,0 +1,61 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import dao.CartDao;
+import dao.ProductDao;
+import db.ConnectionPool;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * A shopper's cart. Adding checks the product, size and cached stock before touching the cart;
+ * stock is only reserved at checkout, so the check here is advisory.
+ */
+public final class CartService {
+
+    public record AddToCart(int userId, String productCode, String size, int quantity) {}
+
+    public enum AddStatus { ADDED, INVALID_CODE, UNKNOWN_PRODUCT, UNKNOWN_SIZE, INVALID_QUANTITY, NOT_ENOUGH_STOCK }
+
+    /** Outcome of an add; available is the stock seen for the size, or 0 when it was never looked up. */
+    public record AddResult(AddStatus status, int available) {}
+
+    private static final Histogram ADD_TO_CART = Metrics.histogram("addToCart");
+
+    private CartService() {}
+
+    public static AddResult add(ConnectionPool pool, AddToCart request) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String code = request.productCode() == null ? "" : request.productCode().trim().toUpperCase();
+            if (!code.startsWith("P")) return new AddResult(AddStatus.INVALID_CODE, 0);
+            if (request.quantity() <= 0) return new AddResult(AddStatus.INVALID_QUANTITY, 0);
+
+            ProductDao.Product product = CatalogCache.product(pool, code);
+            if (product == null) return new AddResult(AddStatus.UNKNOWN_PRODUCT, 0);
+
+            String size = request.size() == null ? "" : request.size().trim().toUpperCase();
+            boolean known = false;
+            for (ProductDao.Size s : CatalogCache.sizesOf(pool, product.id())) {
+                if (s.size().equals(size)) known = true;
+            }
+            if (!known) return new AddResult(AddStatus.UNKNOWN_SIZE, 0);
+
+            int available = Math.max(CatalogCache.sizeStock(pool, product.id(), size), 0);
+            if (request.quantity() > available) return new AddResult(AddStatus.NOT_ENOUGH_STOCK, available);
+
+            pool.run(conn -> CartDao.addQuantity(conn, request.userId(), product.id(), size, request.quantity()));
+            return new AddResult(AddStatus.ADDED, available);
+        } finally {
+            ADD_TO_CART.recordSince(start);
+        }
+    }
+
+    public static List<CartDao.Line> lines(ConnectionPool pool, int userId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return CartDao.linesOf(conn, userId);
+        }
+    }
+}
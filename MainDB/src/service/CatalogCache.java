@@ -0,0 +1,297 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import dao.CategoryDao;
+import dao.ProductDao;
+import db.ConnectionPool;
+
+/**
+ * Read-through cache of the browsable catalog: active categories, products and their sizes.
+ *
+ * Entries are loaded on first use and kept until a write path invalidates them, so a cache hit
+ * never borrows a connection. Size stock is held in its own counters which reservations and
+ * restocks adjust in place rather than dropping the whole product; the same adjustment moves the
+ * product's total and its category's total, so listings show current totals without summing sizes.
+ *
+ * A transaction that moves stock is bracketed by {@link #stockChanging} before its commit and
+ * {@link #stockChanged} after its {@link #adjustStock} calls. A load that overlaps the bracket
+ * may already have read the committed stock, so it is not kept. Otherwise the delta would be
+ * added on top of it a second time.
+ */
+public final class CatalogCache {
+
+    private record SizeKey(int productId, String size) {}
+
+    @FunctionalInterface
+    private interface Loader<T> {
+        T load(Connection conn) throws SQLException;
+    }
+
+    private static volatile List<CategoryDao.Category> categories;
+    private static final Map<Integer, List<ProductDao.Product>> productsByCategory = new ConcurrentHashMap<>();
+    private static final Map<Integer, ProductDao.Product> productsById = new ConcurrentHashMap<>();
+    private static final Map<String, ProductDao.Product> productsByCode = new ConcurrentHashMap<>();
+    private static final Map<Integer, List<ProductDao.Size>> sizesByProduct = new ConcurrentHashMap<>();
+    private static final Map<SizeKey, AtomicInteger> sizeStock = new ConcurrentHashMap<>();
+    // Present for every product in productsById, and for every category in productsByCategory
+    private static final Map<Integer, AtomicInteger> productStock = new ConcurrentHashMap<>();
+    private static final Map<Integer, AtomicInteger> categoryStock = new ConcurrentHashMap<>();
+
+    // Bumped by every write; a load that raced with one is returned but not kept
+    private static final AtomicLong generation = new AtomicLong();
+    // Stock transactions between stockChanging() and stockChanged()
+    private static final AtomicInteger stockWriters = new AtomicInteger();
+
+    private CatalogCache() {}
+
+    // ==========================================================
+    // READS
+    // ==========================================================
+    public static List<CategoryDao.Category> categories(ConnectionPool pool) throws SQLException {
+        List<CategoryDao.Category> cached = categories;
+        if (cached != null) return cached;
+
+        long gen = generation.get();
+        List<CategoryDao.Category> loaded = List.copyOf(load(pool, CategoryDao::findActive));
+        if (generation.get() == gen) categories = loaded;
+        return loaded;
+    }
+
+    /** Active products of a category, each carrying its current stock total. */
+    public static List<ProductDao.Product> productsIn(ConnectionPool pool, int categoryId) throws SQLException {
+        List<ProductDao.Product> cached = productsByCategory.get(categoryId);
+        if (cached != null) return withStock(cached);
+
+        long gen = stockGeneration();
+        List<ProductDao.Product> loaded = List.copyOf(load(pool, conn -> ProductDao.findActiveByCategory(conn, categoryId)));
+        if (keep(gen)) {
+            int total = 0;
+            for (ProductDao.Product product : loaded) {
+                cacheProduct(product);
+                total += product.stock();
+            }
+            categoryStock.put(categoryId, new AtomicInteger(total));
+            productsByCategory.put(categoryId, loaded);
+        }
+        return loaded;
+    }
+
+    /** Units in stock over every active product of the category. */
+    public static int categoryStock(ConnectionPool pool, int categoryId) throws SQLException {
+        AtomicInteger total = categoryStock.get(categoryId);
+        if (total != null) return total.get();
+
+        // A load that raced with a write is not kept, so its total is summed here instead
+        int sum = 0;
+        for (ProductDao.Product product : productsIn(pool, categoryId)) sum += product.stock();
+        return sum;
+    }
+
+    /** Active product with this code, or null. */
+    public static ProductDao.Product product(ConnectionPool pool, String code) throws SQLException {
+        ProductDao.Product cached = productsByCode.get(code);
+        if (cached != null) return withStock(cached);
+
+        long gen = stockGeneration();
+        ProductDao.Product loaded = load(pool, conn -> ProductDao.findActiveByCode(conn, code));
+        if (loaded != null && keep(gen)) cacheProduct(loaded);
+        return loaded;
+    }
+
+    /** Product with this id whatever its status, or null. */
+    public static ProductDao.Product product(ConnectionPool pool, int productId) throws SQLException {
+        ProductDao.Product cached = productsById.get(productId);
+        if (cached != null) return withStock(cached);
+
+        long gen = stockGeneration();
+        ProductDao.Product loaded = load(pool, conn -> ProductDao.findById(conn, productId));
+        if (loaded != null && keep(gen)) {
+            productStock.put(productId, new AtomicInteger(loaded.stock()));
+            productsById.put(productId, loaded);
+        }
+        return loaded;
+    }
+
+    // The counter goes in before the product, so a cached product always has one
+    private static void cacheProduct(ProductDao.Product product) {
+        productStock.put(product.id(), new AtomicInteger(product.stock()));
+        productsById.put(product.id(), product);
+        productsByCode.put(product.code(), product);
+    }
+
+    private static ProductDao.Product withStock(ProductDao.Product product) {
+        AtomicInteger stock = productStock.get(product.id());
+        if (stock == null || stock.get() == product.stock()) return product;
+        return new ProductDao.Product(product.id(), product.code(), product.name(), product.price(), stock.get(),
+                product.categoryId());
+    }
+
+    private static List<ProductDao.Product> withStock(List<ProductDao.Product> products) {
+        List<ProductDao.Product> current = new ArrayList<>(products.size());
+        for (ProductDao.Product product : products) current.add(withStock(product));
+        return current;
+    }
+
+    /** Sizes of a product carrying their current stock counts. */
+    public static List<ProductDao.Size> sizesOf(ConnectionPool pool, int productId) throws SQLException {
+        List<ProductDao.Size> sizes = sizesByProduct.get(productId);
+        if (sizes == null) {
+            long gen = stockGeneration();
+            sizes = List.copyOf(load(pool, conn -> ProductDao.sizesOf(conn, productId)));
+            if (!keep(gen)) return sizes;
+            for (ProductDao.Size size : sizes) {
+                sizeStock.put(new SizeKey(productId, size.size()), new AtomicInteger(size.stock()));
+            }
+            sizesByProduct.put(productId, sizes);
+        }
+
+        List<ProductDao.Size> current = new ArrayList<>(sizes.size());
+        for (ProductDao.Size size : sizes) {
+            AtomicInteger stock = sizeStock.get(new SizeKey(productId, size.size()));
+            current.add(stock == null ? size : new ProductDao.Size(size.id(), size.productId(), size.size(),
+                    stock.get(), size.damaged(), size.criticalStock()));
+        }
+        return current;
+    }
+
+    /** Loads the sizes of every active product in one query, so no shopper pays for the first lookup. */
+    public static void preloadSizes(ConnectionPool pool) throws SQLException {
+        long gen = stockGeneration();
+        Map<Integer, List<ProductDao.Size>> all = load(pool, ProductDao::allSizes);
+        if (!keep(gen)) return;
+        all.forEach((productId, sizes) -> {
+            for (ProductDao.Size size : sizes) {
+                sizeStock.putIfAbsent(new SizeKey(productId, size.size()), new AtomicInteger(size.stock()));
+            }
+            sizesByProduct.putIfAbsent(productId, List.copyOf(sizes));
+        });
+    }
+
+    /** Current stock of one size, or -1 when the product has no such size. */
+    public static int sizeStock(ConnectionPool pool, int productId, String size) throws SQLException {
+        AtomicInteger stock = sizeStock.get(new SizeKey(productId, size));
+        if (stock != null) return stock.get();
+
+        for (ProductDao.Size s : sizesOf(pool, productId)) {
+            if (s.size().equals(size)) return s.stock();
+        }
+        return -1;
+    }
+
+    // The generation before the writer count: a writer that opens after the read bumps it again.
+    // -1 means a stock transaction was open, so whatever is loaded now must not be kept.
+    private static long stockGeneration() {
+        long gen = generation.get();
+        return stockWriters.get() == 0 ? gen : -1;
+    }
+
+    private static boolean keep(long gen) {
+        return gen != -1 && generation.get() == gen;
+    }
+
+    // ==========================================================
+    // WRITE-PATH UPDATES (call after the change is committed)
+    // ==========================================================
+    /** Call before committing a transaction that moves size stock; always pair with {@link #stockChanged}. */
+    public static void stockChanging() {
+        stockWriters.incrementAndGet();
+        generation.incrementAndGet();
+    }
+
+    /** Call once the transaction's adjustStock calls are made, or once it has rolled back. */
+    public static void stockChanged() {
+        generation.incrementAndGet();
+        stockWriters.decrementAndGet();
+    }
+
+    public static void adjustStock(int productId, String size, int delta) {
+        generation.incrementAndGet();
+        AtomicInteger stock = sizeStock.get(new SizeKey(productId, size));
+        if (stock != null) stock.addAndGet(delta);
+
+        AtomicInteger total = productStock.get(productId);
+        if (total != null) total.addAndGet(delta);
+        ProductDao.Product product = productsById.get(productId);
+        AtomicInteger categoryTotal = product == null ? null : categoryStock.get(product.categoryId());
+        if (categoryTotal != null) categoryTotal.addAndGet(delta);
+    }
+
+    public static void invalidateCategories() {
+        generation.incrementAndGet();
+        categories = null;
+    }
+
+    public static void invalidateCategory(int categoryId) {
+        generation.incrementAndGet();
+        List<ProductDao.Product> products = productsByCategory.remove(categoryId);
+        categoryStock.remove(categoryId);
+        if (products == null) return;
+        for (ProductDao.Product product : products) {
+            productsById.remove(product.id());
+            productsByCode.remove(product.code());
+            productStock.remove(product.id());
+        }
+    }
+
+    public static void invalidateProduct(int productId) {
+        generation.incrementAndGet();
+        ProductDao.Product cached = productsById.remove(productId);
+        productsByCode.values().removeIf(p -> p.id() == productId);
+        productStock.remove(productId);
+        if (cached != null) {
+            productsByCategory.remove(cached.categoryId());
+            categoryStock.remove(cached.categoryId());
+        } else {
+            productsByCategory.entrySet().removeIf(e -> {
+                boolean holds = e.getValue().stream().anyMatch(p -> p.id() == productId);
+                if (holds) categoryStock.remove(e.getKey());
+                return holds;
+            });
+        }
+        invalidateSizes(productId);
+    }
+
+    public static void invalidateSizes(int productId) {
+        generation.incrementAndGet();
+        sizesByProduct.remove(productId);
+        sizeStock.keySet().removeIf(key -> key.productId() == productId);
+    }
+
+    /** Drops every cached stock count, for bulk updates that touch many products at once. */
+    public static void invalidateStock() {
+        generation.incrementAndGet();
+        sizesByProduct.clear();
+        sizeStock.clear();
+        // Totals are reloaded with their products
+        productsByCategory.clear();
+        productsById.clear();
+        productsByCode.clear();
+        productStock.clear();
+        categoryStock.clear();
+    }
+
+    public static void clear() {
+        generation.incrementAndGet();
+        categories = null;
+        productsByCategory.clear();
+        productsById.clear();
+        productsByCode.clear();
+        sizesByProduct.clear();
+        sizeStock.clear();
+        productStock.clear();
+        categoryStock.clear();
+    }
+
+    private static <T> T load(ConnectionPool pool, Loader<T> loader) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return loader.load(conn);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import dao.CategoryDao;
+import dao.ProductDao;
+import db.ConnectionPool;
+import db.IdAllocator;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * Bulk-loads products and their sizes from a CSV or TSV file with a header row naming the columns
+ * category, name, price and optionally sizes and critical_stock, in any order. Sizes are listed in
+ * one cell separated by | or ; and may carry their own critical stock, e.g. "S|M|L" or "S:5|M:10".
+ *
+ * The file is streamed: every row is validated in memory against the categories (resolved once by
+ * name) and the products already in them, then written in chunks of -Dusms.import.chunkSize (500)
+ * rows, each chunk one transaction of batched product and size inserts. A row that fails is
+ * reported with its line number and the rest carry on; the full list is also written next to the
+ * file as name.errors.csv.
+ */
+public final class CatalogImport {
+
+    public record RowError(long line, String message) {}
+
+    /** errorReport is null when every row went in. */
+    public record Result(long rows, int products, int sizes, List<RowError> errors, Path errorReport, long millis) {}
+
+    static final int CHUNK_SIZE = Integer.getInteger("usms.import.chunkSize", 500);
+
+    // Column limits of products and product_sizes
+    static final int MAX_NAME = 150;
+    static final int MAX_SIZE = 10;
+
+    private static final String[] REQUIRED = { "category", "name", "price" };
+
+    private record SizeSpec(String size, int criticalStock) {}
+
+    private record Row(long line, int categoryId, String category, String name, double price, List<SizeSpec> sizes) {}
+
+    private static final Histogram IMPORT_CATALOG = Metrics.histogram("importCatalog");
+
+    private CatalogImport() {}
+
+    public static Result importFile(ConnectionPool pool, Path file) throws IOException, SQLException {
+        long start = System.nanoTime();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Records records = new Records(in);
+            List<String> header = records.header();
+            if (header == null) throw new IllegalArgumentException("The file is empty.");
+            if (records.unterminated()) throw new IllegalArgumentException("The header row has an unterminated quoted field.");
+            Map<String, Integer> columns = columns(header);
+
+            Map<String, CategoryDao.Category> categories = new HashMap<>();
+            for (CategoryDao.Category category : CatalogCache.categories(pool)) {
+                categories.putIfAbsent(key(category.name()), category);
+            }
+            Map<Integer, Set<String>> namesByCategory = new HashMap<>();
+
+            long rows = 0;
+            int products = 0;
+            int sizes = 0;
+            List<RowError> errors = new ArrayList<>();
+            List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+            List<String> fields;
+            while ((fields = records.next()) != null) {
+                if (fields.size() == 1 && fields.get(0).isBlank()) continue;
+                rows++;
+                if (records.unterminated()) {
+                    // Everything up to the end of the file was swallowed into this record
+                    errors.add(new RowError(records.line(), "Unterminated quoted field; the rest of the file was read as part of this row."));
+                    continue;
+                }
+                try {
+                    chunk.add(row(pool, records.line(), fields, columns, categories, namesByCategory));
+                } catch (IllegalArgumentException e) {
+                    errors.add(new RowError(records.line(), e.getMessage()));
+                }
+                if (chunk.size() >= CHUNK_SIZE) {
+                    int[] written = write(pool, chunk, errors, namesByCategory);
+                    products += written[0];
+                    sizes += written[1];
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                int[] written = write(pool, chunk, errors, namesByCategory);
+                products += written[0];
+                sizes += written[1];
+            }
+
+            Path report = errors.isEmpty() ? null : writeReport(file, errors);
+            return new Result(rows, products, sizes, errors, report, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            IMPORT_CATALOG.recordSince(start);
+        }
+    }
+
+    // ==========================================================
+    // VALIDATION
+    // ==========================================================
+    private static Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT).replace(' ', '_'), i);
+        }
+        for (String name : REQUIRED) {
+            if (!columns.containsKey(name)) {
+                throw new IllegalArgumentException("Missing column '" + name + "'; expected category, name, price, sizes, critical_stock.");
+            }
+        }
+        return columns;
+    }
+
+    private static Row row(ConnectionPool pool, long line, List<String> fields, Map<String, Integer> columns,
+                           Map<String, CategoryDao.Category> categories, Map<Integer, Set<String>> namesByCategory)
+            throws SQLException {
+        String categoryName = field(fields, columns, "category");
+        CategoryDao.Category category = categories.get(key(categoryName));
+        if (category == null) throw new IllegalArgumentException("Unknown category '" + categoryName + "'.");
+
+        String name = field(fields, columns, "name");
+        if (name.isEmpty()) throw new IllegalArgumentException("Product name cannot be empty!");
+        if (name.length() > MAX_NAME) throw new IllegalArgumentException("Product name is longer than " + MAX_NAME + " characters.");
+
+        double price;
+        try {
+            price = Double.parseDouble(field(fields, columns, "price"));
+        } catch (NumberFormatException e) {
+            price = -1;
+        }
+        if (price < 0 || Double.isNaN(price) || Double.isInfinite(price)) throw new IllegalArgumentException("Invalid price!");
+
+        int defaultCritical = number(field(fields, columns, "critical_stock"), 0);
+        List<SizeSpec> sizes = sizes(field(fields, columns, "sizes"), defaultCritical);
+
+        // Names already in the category are loaded once per category, then kept up to date here
+        Set<String> names = namesByCategory.get(category.id());
+        if (names == null) {
+            names = new HashSet<>();
+            for (ProductDao.Product product : CatalogCache.productsIn(pool, category.id())) names.add(key(product.name()));
+            namesByCategory.put(category.id(), names);
+        }
+        if (!names.add(key(name))) {
+            throw new IllegalArgumentException("'" + name + "' already exists in " + category.name() + ".");
+        }
+        return new Row(line, category.id(), category.name(), name, price, sizes);
+    }
+
+    private static List<SizeSpec> sizes(String cell, int defaultCritical) {
+        Map<String, SizeSpec> sizes = new LinkedHashMap<>();
+        if (cell.isEmpty()) return List.of();
+        for (String part : cell.split("[|;]")) {
+            String spec = part.trim();
+            if (spec.isEmpty()) continue;
+
+            int colon = spec.indexOf(':');
+            String size = (colon < 0 ? spec : spec.substring(0, colon)).trim();
+            int critical = colon < 0 ? defaultCritical : number(spec.substring(colon + 1).trim(), defaultCritical);
+            if (size.isEmpty()) throw new IllegalArgumentException("Size cannot be empty!");
+            if (size.length() > MAX_SIZE) throw new IllegalArgumentException("Size '" + size + "' is longer than " + MAX_SIZE + " characters.");
+            if (sizes.putIfAbsent(key(size), new SizeSpec(size, critical)) != null) {
+                throw new IllegalArgumentException("Size '" + size + "' is listed twice.");
+            }
+        }
+        return List.copyOf(sizes.values());
+    }
+
+    private static int number(String text, int blank) {
+        if (text.isEmpty()) return blank;
+        try {
+            int n = Integer.parseInt(text);
+            if (n < 0) throw new NumberFormatException();
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid critical stock '" + text + "'.");
+        }
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= fields.size() ? "" : fields.get(index).trim();
+    }
+
+    private static String key(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ==========================================================
+    // WRITING
+    // ==========================================================
+    // One transaction per chunk; returns {products, sizes} written, or reports every row of a failed chunk
+    // and forgets its names, so a later row may use them again
+    private static int[] write(ConnectionPool pool, List<Row> chunk, List<RowError> errors,
+                               Map<Integer, Set<String>> namesByCategory) throws SQLException {
+        // Codes are drawn before a connection is borrowed; a block refill needs one of its own
+        List<ProductDao.ProductRow> products = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            products.add(new ProductDao.ProductRow(IdAllocator.next(pool, IdAllocator.Sequence.PRODUCT_CODE),
+                    row.name(), row.price(), row.categoryId()));
+        }
+
+        int[] ids;
+        List<ProductDao.SizeRow> sizes = new ArrayList<>();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                ids = ProductDao.insertAll(conn, products);
+                for (int i = 0; i < chunk.size(); i++) {
+                    for (SizeSpec size : chunk.get(i).sizes()) {
+                        sizes.add(new ProductDao.SizeRow(ids[i], size.size(), size.criticalStock()));
+                    }
+                }
+                if (!sizes.isEmpty()) ProductDao.insertSizes(conn, sizes);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                for (Row row : chunk) {
+                    errors.add(new RowError(row.line(), "Not saved: " + e.getMessage()));
+                    namesByCategory.get(row.categoryId()).remove(key(row.name()));
+                }
+                return new int[] { 0, 0 };
+            } catch (RuntimeException e) {
+                // Rolled back before the finally turns autocommit on, which would commit the half-written chunk
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        Set<Integer> touched = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Row row = chunk.get(i);
+            ProductDao.ProductRow p = products.get(i);
+            SearchIndex.put(new ProductDao.Product(ids[i], p.code(), p.name(), p.price(), 0, p.categoryId()), row.category());
+            LowStockIndex.put(ids[i], newStockLevels(ids[i], row));
+            touched.add(row.categoryId());
+        }
+        for (int categoryId : touched) CatalogCache.invalidateCategory(categoryId);
+        return new int[] { chunk.size(), sizes.size() };
+    }
+
+    // What the dashboard query would return for the new product: every size empty, or one sizeless row
+    private static List<ProductDao.StockLevel> newStockLevels(int productId, Row row) {
+        if (row.sizes().isEmpty()) {
+            return List.of(new ProductDao.StockLevel(productId, row.categoryId(), row.category(), row.name(), null, 0, 0, 0));
+        }
+        List<ProductDao.StockLevel> levels = new ArrayList<>(row.sizes().size());
+        for (SizeSpec size : row.sizes()) {
+            levels.add(new ProductDao.StockLevel(productId, row.categoryId(), row.category(), row.name(), size.size(), 0, 0,
+                    size.criticalStock()));
+        }
+        return levels;
+    }
+
+    private static Path writeReport(Path file, List<RowError> errors) throws IOException {
+        Path report = file.resolveSibling(file.getFileName() + ".errors.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            out.write("line,error");
+            out.newLine();
+            for (RowError error : errors) {
+                out.write(error.line() + ",\"" + error.message().replace("\"", "\"\"") + "\"");
+                out.newLine();
+            }
+        }
+        return report;
+    }
+
+    // ==========================================================
+    // CSV / TSV RECORDS
+    // ==========================================================
+    /** RFC 4180 records: quoted fields may hold the delimiter, doubled quotes and line breaks. */
+    static final class Records {
+        private final BufferedReader in;
+        private char delimiter = ',';
+        private long line;
+        private long startLine;
+        private boolean unterminated;
+
+        Records(BufferedReader in) {
+            this.in = in;
+        }
+
+        /** Reads the header row, taking a tab anywhere in its first line to mean the file is a TSV. */
+        List<String> header() throws IOException {
+            String text = in.readLine();
+            if (text == null) return null;
+            if (text.startsWith("\uFEFF")) text = text.substring(1);
+            if (text.indexOf('\t') >= 0) delimiter = '\t';
+            return parse(text);
+        }
+
+        /** Line number the last record started on, counting the header as line 1. */
+        long line() {
+            return startLine;
+        }
+
+        /** True when the last record hit the end of the file inside a quoted field. */
+        boolean unterminated() {
+            return unterminated;
+        }
+
+        List<String> next() throws IOException {
+            String text = in.readLine();
+            return text == null ? null : parse(text);
+        }
+
+        private List<String> parse(String text) throws IOException {
+            startLine = ++line;
+            unterminated = false;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == text.length()) {
+                    if (!quoted) break;
+                    // A line break inside quotes belongs to the field
+                    String more = in.readLine();
+                    if (more == null) {
+                        unterminated = true;
+                        break;
+                    }
+                    line++;
+                    field.append('\n');
+                    text = more;
+                    i = 0;
+                    continue;
+                }
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c != '"') field.append(c);
+                    else if (i < text.length() && text.charAt(i) == '"') field.append(text.charAt(i++));
+                    else quoted = false;
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import dao.CategoryDao;
+import dao.InventoryLogDao;
+import dao.ProductDao;
+import db.ConnectionPool;
+import db.IdAllocator;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * Categories, products and sizes. Shopper-facing reads go through {@link CatalogCache}; the
+ * management screens read the database directly and every write invalidates what it touched.
+ * Invalid input is rejected with an IllegalArgumentException carrying a message for the user.
+ */
+public final class CatalogService {
+
+    public record NewProduct(int categoryId, String name, double price) {}
+
+    public record ProductEdit(int productId, String name, double price) {}
+
+    public record NewSize(int productId, String size, int criticalStock) {}
+
+    /** A search hit with the current stock of each of its sizes. */
+    public record Found(ProductDao.Product product, String category, List<ProductDao.Size> sizes) {}
+
+    private static final Histogram SEARCH = Metrics.histogram("search");
+
+    private CatalogService() {}
+
+    // ==========================================================
+    // READS
+    // ==========================================================
+    public static List<CategoryDao.Category> categories(ConnectionPool pool) throws SQLException {
+        return CatalogCache.categories(pool);
+    }
+
+    public static List<ProductDao.Product> productsIn(ConnectionPool pool, int categoryId) throws SQLException {
+        return CatalogCache.productsIn(pool, categoryId);
+    }
+
+    /** Active product by code, or null. */
+    public static ProductDao.Product product(ConnectionPool pool, String code) throws SQLException {
+        return CatalogCache.product(pool, code);
+    }
+
+    public static List<ProductDao.Size> sizesOf(ConnectionPool pool, int productId) throws SQLException {
+        return CatalogCache.sizesOf(pool, productId);
+    }
+
+    public static int categoryStock(ConnectionPool pool, int categoryId) throws SQLException {
+        return CatalogCache.categoryStock(pool, categoryId);
+    }
+
+    /** Uncached listing for the management screens, which must see their own edits at once. */
+    public static List<ProductDao.Product> activeProductsIn(ConnectionPool pool, int categoryId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return ProductDao.findActiveByCategory(conn, categoryId);
+        }
+    }
+
+    public static ProductDao.Product findInCategory(ConnectionPool pool, String code, int categoryId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return ProductDao.findActiveInCategory(conn, code, categoryId);
+        }
+    }
+
+    /** Ranked products matching a free-text query by name, code or category, typos allowed. */
+    public static List<Found> search(ConnectionPool pool, String query, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<Found> found = new ArrayList<>();
+            for (SearchIndex.Hit hit : SearchIndex.search(query, limit)) {
+                found.add(new Found(hit.product(), hit.category(), CatalogCache.sizesOf(pool, hit.product().id())));
+            }
+            return found;
+        } finally {
+            SEARCH.recordSince(start);
+        }
+    }
+
+    public static List<ProductDao.Size> currentSizesOf(ConnectionPool pool, int productId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return ProductDao.sizesOf(conn, productId);
+        }
+    }
+
+    // ==========================================================
+    // PRODUCTS
+    // ==========================================================
+    /** Adds a product under a freshly generated code and returns it. */
+    public static ProductDao.Product addProduct(ConnectionPool pool, NewProduct request) throws SQLException {
+        String name = request.name() == null ? "" : request.name().trim();
+        if (name.isEmpty()) throw new IllegalArgumentException("Product name cannot be empty!");
+        if (request.price() < 0) throw new IllegalArgumentException("Invalid price!");
+
+        String code = IdAllocator.next(pool, IdAllocator.Sequence.PRODUCT_CODE);
+        int productId;
+        try (Connection conn = pool.getConnection()) {
+            productId = ProductDao.insert(conn, code, name, request.price(), request.categoryId());
+        }
+        CatalogCache.invalidateCategory(request.categoryId());
+        ProductDao.Product product = new ProductDao.Product(productId, code, name, request.price(), 0, request.categoryId());
+        SearchIndex.put(product, categoryName(pool, request.categoryId()));
+        LowStockIndex.refresh(pool, productId);
+        return product;
+    }
+
+    public static void editProduct(ConnectionPool pool, ProductEdit request) throws SQLException {
+        String name = request.name() == null ? "" : request.name().trim();
+        if (name.isEmpty()) throw new IllegalArgumentException("Product name cannot be empty!");
+        if (request.price() < 0) throw new IllegalArgumentException("Invalid price!");
+
+        try (Connection conn = pool.getConnection()) {
+            ProductDao.updateDetails(conn, request.productId(), name, request.price());
+        }
+        CatalogCache.invalidateProduct(request.productId());
+        SearchIndex.refresh(pool, request.productId());
+        LowStockIndex.refresh(pool, request.productId());
+    }
+
+    /** Soft-deletes a product and logs it through the {@link InventoryJournal}. */
+    public static void deactivateProduct(ConnectionPool pool, ProductDao.Product product) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                ProductDao.setActiveStatus(conn, product.id(), 0);
+                List<InventoryLogDao.Stamped> deferred = InventoryJournal.write(conn,
+                        List.of(new InventoryLogDao.Change(product.id(), "DELETE", 0, product.stock(), 0)));
+                conn.commit();
+                InventoryJournal.committed(deferred);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        CatalogCache.invalidateProduct(product.id());
+        SearchIndex.remove(product.id());
+        LowStockIndex.remove(product.id());
+    }
+
+    /** Marks a deactivated product as pending recovery until an admin approves it. */
+    public static void requestProductRecovery(ConnectionPool pool, int productId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            ProductDao.setActiveStatus(conn, productId, 2);
+        }
+    }
+
+    public static void approveProductRecovery(ConnectionPool pool, int productId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            ProductDao.setActiveStatus(conn, productId, 1);
+        }
+        CatalogCache.invalidateProduct(productId);
+        SearchIndex.refresh(pool, productId);
+        LowStockIndex.refresh(pool, productId);
+    }
+
+    private static String categoryName(ConnectionPool pool, int categoryId) throws SQLException {
+        for (CategoryDao.Category category : CatalogCache.categories(pool)) {
+            if (category.id() == categoryId) return category.name();
+        }
+        return "";
+    }
+
+    // ==========================================================
+    // SIZES
+    // ==========================================================
+    /** Returns false, adding nothing, when the product already has this size. */
+    public static boolean addSize(ConnectionPool pool, NewSize request) throws SQLException {
+        String size = request.size() == null ? "" : request.size().trim();
+        if (size.isEmpty()) throw new IllegalArgumentException("Size cannot be empty!");
+        if (request.criticalStock() < 0) throw new IllegalArgumentException("Invalid number!");
+
+        try (Connection conn = pool.getConnection()) {
+            if (ProductDao.sizeExists(conn, request.productId(), size)) return false;
+            ProductDao.insertSize(conn, request.productId(), size, request.criticalStock());
+        }
+        CatalogCache.invalidateSizes(request.productId());
+        LowStockIndex.refresh(pool, request.productId());
+        return true;
+    }
+
+    public static boolean setCriticalStock(ConnectionPool pool, int productId, int sizeId, int criticalStock)
+            throws SQLException {
+        if (criticalStock < 0) throw new IllegalArgumentException("Invalid number!");
+        boolean updated;
+        try (Connection conn = pool.getConnection()) {
+            updated = ProductDao.setCriticalStock(conn, productId, sizeId, criticalStock);
+        }
+        CatalogCache.invalidateSizes(productId);
+        if (updated) LowStockIndex.refresh(pool, productId);
+        return updated;
+    }
+
+    public static boolean deleteSize(ConnectionPool pool, int productId, int sizeId) throws SQLException {
+        boolean deleted;
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Product row before the size, as checkout takes them
+                ProductDao.lockProducts(conn, List.of(productId));
+                deleted = ProductDao.deleteSize(conn, productId, sizeId);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        // The size's units leave the product and category totals with it
+        CatalogCache.invalidateProduct(productId);
+        if (deleted) LowStockIndex.refresh(pool, productId);
+        return deleted;
+    }
+
+    // ==========================================================
+    // CATEGORIES
+    // ==========================================================
+    public static void addCategory(ConnectionPool pool, String name) throws SQLException {
+        String trimmed = name == null ? "" : name.trim();
+        if (trimmed.isEmpty()) throw new IllegalArgumentException("Category name cannot be empty!");
+        try (Connection conn = pool.getConnection()) {
+            CategoryDao.insert(conn, trimmed);
+        }
+        CatalogCache.invalidateCategories();
+    }
+
+    public static boolean renameCategory(ConnectionPool pool, int categoryId, String name) throws SQLException {
+        String trimmed = name == null ? "" : name.trim();
+        if (trimmed.isEmpty()) throw new IllegalArgumentException("Name cannot be empty!");
+        boolean renamed = setCategory(pool, conn -> CategoryDao.rename(conn, categoryId, trimmed));
+        if (renamed) {
+            SearchIndex.renameCategory(categoryId, trimmed);
+            LowStockIndex.renameCategory(categoryId, trimmed);
+        }
+        return renamed;
+    }
+
+    /** Soft-deletes a category; its products stay as they are. */
+    public static boolean deactivateCategory(ConnectionPool pool, int categoryId) throws SQLException {
+        return setCategory(pool, conn -> CategoryDao.setActiveStatus(conn, categoryId, 0));
+    }
+
+    public static boolean requestCategoryRecovery(ConnectionPool pool, int categoryId) throws SQLException {
+        return setCategory(pool, conn -> CategoryDao.setActiveStatus(conn, categoryId, 2));
+    }
+
+    public static boolean approveCategoryRecovery(ConnectionPool pool, int categoryId) throws SQLException {
+        return setCategory(pool, conn -> CategoryDao.setActiveStatus(conn, categoryId, 1));
+    }
+
+    @FunctionalInterface
+    private interface CategoryWrite {
+        boolean apply(Connection conn) throws SQLException;
+    }
+
+    private static boolean setCategory(ConnectionPool pool, CategoryWrite write) throws SQLException {
+        boolean changed;
+        try (Connection conn = pool.getConnection()) {
+            changed = write.apply(conn);
+        }
+        CatalogCache.invalidateCategories();
+        return changed;
+    }
+}
@@ -0,0 +1,151 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import dao.CartDao;
+import dao.ProductDao;
+import dao.QuotationDao;
+import db.IdAllocator;
+
+/**
+ * Turns cart lines into a PENDING quotation in a single transaction.
+ *
+ * Stock is taken with guarded updates (stock >= qty), so a size can never be oversold; if any
+ * line is short the whole checkout is rolled back and every short line is reported. The cart lines
+ * are deleted in the same transaction, and a checkout that finds any of them already gone (a second
+ * submit of the same cart) rolls back with an IllegalArgumentException. Only after the
+ * quotation rows are written are the products locked in id order and then their sizes in
+ * (product_id, size) order. The product_sizes stock triggers write the product row, so taking it
+ * first is what keeps this checkout, the expiry sweep and restocks from deadlocking each other;
+ * hot rows stay locked only briefly.
+ * Invoice numbers come from the caller's {@link IdAllocator.Source} and are unique in the database;
+ * should one still collide with an older row, a fresh number is drawn once the attempt has rolled
+ * back (so the source may use this connection) and the checkout tried again.
+ */
+public final class CheckoutEngine {
+
+    /** A line that could not be reserved, with the stock that was left at the time. */
+    public record Shortfall(CartDao.Line line, int available) {}
+
+    public record Result(int quotationId, String invoiceNumber, double totalAmount, List<Shortfall> shortfalls) {
+        public boolean succeeded() {
+            return shortfalls.isEmpty();
+        }
+    }
+
+    static final int MAX_ATTEMPTS = Integer.getInteger("usms.checkout.maxAttempts", 3);
+
+    // MySQL: 1213 = deadlock victim, 1205 = lock wait timeout, 1062 = duplicate key
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_DUP_ENTRY = 1062;
+
+    private static final Comparator<CartDao.Line> LOCK_ORDER =
+            Comparator.comparingInt(CartDao.Line::productId).thenComparing(CartDao.Line::size);
+
+    private CheckoutEngine() {}
+
+    public static Result checkout(Connection conn, int userId, IdAllocator.Source invoiceNumbers, List<CartDao.Line> lines)
+            throws SQLException {
+        List<CartDao.Line> ordered = new ArrayList<>(lines);
+        ordered.sort(LOCK_ORDER);
+        List<Integer> productIds = new ArrayList<>(ordered.size());
+        for (CartDao.Line line : ordered) productIds.add(line.productId());
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        CatalogCache.stockChanging();
+        LowStockIndex.changing(productIds);
+        try {
+            String invoiceNumber = invoiceNumbers.next();
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return attempt(conn, userId, invoiceNumber, ordered);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    if (attempt >= MAX_ATTEMPTS) throw e;
+                    if (e.getErrorCode() == ER_DUP_ENTRY) {
+                        invoiceNumber = invoiceNumbers.next();
+                    } else if (isRetryable(e)) {
+                        backoff(attempt);
+                    } else {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            LowStockIndex.changed(productIds);
+            CatalogCache.stockChanged();
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static Result attempt(Connection conn, int userId, String invoiceNumber, List<CartDao.Line> lines)
+            throws SQLException {
+        double totalAmount = 0;
+        List<QuotationDao.Item> items = new ArrayList<>(lines.size());
+        List<Integer> cartRowIds = new ArrayList<>(lines.size());
+        List<Integer> productIds = new ArrayList<>(lines.size());
+        for (CartDao.Line line : lines) {
+            totalAmount += line.total();
+            items.add(new QuotationDao.Item(line.productId(), line.size(), line.quantity(), line.total()));
+            cartRowIds.add(line.id());
+            productIds.add(line.productId());
+        }
+
+        int quotationId = QuotationDao.insert(conn, userId, totalAmount, invoiceNumber);
+        QuotationDao.insertItems(conn, quotationId, items);
+        // The delete locks the lines, so of two submits of one cart only the first finds them all
+        if (CartDao.deleteLines(conn, userId, cartRowIds) != cartRowIds.size()) {
+            conn.rollback();
+            throw new IllegalArgumentException("Your cart changed while it was being submitted. Check it and try again.");
+        }
+
+        // Contended rows go last so their locks are held only until the commit
+        ProductDao.lockProducts(conn, productIds);
+        List<CartDao.Line> unavailable = new ArrayList<>();
+        for (CartDao.Line line : lines) {
+            if (!ProductDao.reserveSizeStock(conn, line.productId(), line.size(), line.quantity())) {
+                unavailable.add(line);
+            }
+        }
+
+        if (!unavailable.isEmpty()) {
+            conn.rollback();
+            List<Shortfall> shortfalls = new ArrayList<>(unavailable.size());
+            for (CartDao.Line line : unavailable) {
+                int available = Math.max(ProductDao.sizeStock(conn, line.productId(), line.size()), 0);
+                shortfalls.add(new Shortfall(line, available));
+            }
+            conn.commit();
+            return new Result(-1, invoiceNumber, totalAmount, shortfalls);
+        }
+
+        conn.commit();
+        for (CartDao.Line line : lines) {
+            CatalogCache.adjustStock(line.productId(), line.size(), -line.quantity());
+            LowStockIndex.adjust(line.productId(), line.size(), -line.quantity(), 0);
+        }
+        return new Result(quotationId, invoiceNumber, totalAmount, List.of());
+    }
+
+    private static boolean isRetryable(SQLException e) {
+        return e instanceof SQLTransactionRollbackException
+                || e.getErrorCode() == ER_LOCK_DEADLOCK
+                || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT;
+    }
+
+    private static void backoff(int attempt) throws SQLException {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(10, 50) * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying checkout", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package service;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import dao.CartDao;
+import db.ConnectionPool;
+import db.IdAllocator;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * Turns cart lines into a pending quotation through {@link CheckoutEngine} and queues the invoice
+ * image once it has committed.
+ */
+public final class CheckoutService {
+
+    /** Cart line ids to submit; an empty list submits the whole cart. */
+    public record SubmitQuotation(Session session, List<Integer> cartLineIds) {}
+
+    /** invoice is null when nothing was submitted, see {@link CheckoutEngine.Result#succeeded()}. */
+    public record Submitted(CheckoutEngine.Result result, String username, List<CartDao.Line> lines,
+                            CompletableFuture<File> invoice) {}
+
+    private static final Histogram SUBMIT_QUOTATION = Metrics.histogram("submitQuotation");
+
+    private CheckoutService() {}
+
+    public static Submitted submit(ConnectionPool pool, SubmitQuotation request) throws SQLException {
+        long start = System.nanoTime();
+        String firstInvoice = IdAllocator.next(pool, IdAllocator.Sequence.INVOICE);
+        try (Connection conn = pool.getConnection()) {
+            List<CartDao.Line> lines = new ArrayList<>();
+            int userId = request.session().userId();
+            for (CartDao.Line line : CartDao.linesOf(conn, userId)) {
+                if (request.cartLineIds().isEmpty() || request.cartLineIds().contains(line.id())) lines.add(line);
+            }
+            if (lines.isEmpty()) throw new IllegalArgumentException("Your cart is empty.");
+
+            CheckoutEngine.Result result = CheckoutEngine.checkout(conn, userId,
+                    invoiceNumbers(firstInvoice, conn), lines);
+            if (!result.succeeded()) return new Submitted(result, null, lines, null);
+
+            String username = request.session().username();
+
+            List<ReceiptRenderer.InvoiceLine> invoiceLines = new ArrayList<>();
+            for (CartDao.Line line : lines) {
+                invoiceLines.add(new ReceiptRenderer.InvoiceLine(line.name(), line.size(), line.quantity(), line.price(), line.total()));
+            }
+            ReceiptRenderer.Invoice invoice = new ReceiptRenderer.Invoice(result.invoiceNumber(), username,
+                    new Timestamp(System.currentTimeMillis()), invoiceLines, result.totalAmount());
+            return new Submitted(result, username, lines, ReceiptRenderer.renderInvoice(invoice));
+        } finally {
+            SUBMIT_QUOTATION.recordSince(start);
+        }
+    }
+
+    // The first number is drawn before a connection is borrowed: refilling the allocator's block
+    // takes a connection of its own, and should not wait on the pool while holding one. A retry
+    // after a collision refills on the checkout's own connection instead, which CheckoutEngine has
+    // just rolled back.
+    static IdAllocator.Source invoiceNumbers(String first, Connection conn) {
+        boolean[] used = { false };
+        return () -> {
+            if (used[0]) return IdAllocator.next(conn, IdAllocator.Sequence.INVOICE);
+            used[0] = true;
+            return first;
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import dao.ProductDao;
+import dao.QuotationDao;
+import db.ConnectionPool;
+
+/**
+ * Expires pending quotations older than the configured TTL and gives their reserved stock back.
+ *
+ * Runs in the background from startup on, in chunks of at most usms.expiry.chunkSize quotations.
+ * Each chunk locks its quotations once and uses that same id set for both the stock return and the
+ * status flip, in one transaction, so a quotation is never returned twice or expired without its
+ * stock coming back. The cutoff is a plain created_at range rather than DATE(created_at), so an
+ * index on (status, created_at) can serve it; it is reckoned in SQL from NOW(), the clock that
+ * stamped created_at, not from the JVM's.
+ */
+public final class ExpiryScheduler {
+
+    static final String RESET = "\u001B[0m";
+    static final String YELLOW = "\u001B[33m";
+
+    /** What one sweep reclaimed. */
+    public record Run(Timestamp finishedAt, int quotations, int units, int chunks, long millis) {}
+
+    public record Stats(Run lastRun, long totalQuotations, long totalUnits, long failures) {}
+
+    static final long TTL_MINUTES = Long.getLong("usms.expiry.ttlMinutes", 24 * 60L);
+    static final long INTERVAL_MS = Long.getLong("usms.expiry.intervalMs", 5 * 60_000L);
+    static final int CHUNK_SIZE = Integer.getInteger("usms.expiry.chunkSize", 200);
+
+    private static ScheduledExecutorService scheduler;
+    private static volatile Run lastRun;
+    private static final AtomicLong totalQuotations = new AtomicLong();
+    private static final AtomicLong totalUnits = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+
+    private ExpiryScheduler() {}
+
+    /** Starts sweeping right away and then every usms.expiry.intervalMs, without blocking the caller. */
+    public static synchronized void start(ConnectionPool pool) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "usms-quotation-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                Run run = sweep(pool);
+                if (run.quotations() > 0) {
+                    // No cashier asked for this sweep, so its count goes to the operator's log
+                    System.err.println(YELLOW + "Expired " + run.quotations() + " quotation(s), returned "
+                            + run.units() + " unit(s) to stock." + RESET);
+                }
+            } catch (SQLException | RuntimeException e) {
+                failures.incrementAndGet();
+                System.err.println(YELLOW + "Quotation expiry sweep failed: " + e.getMessage() + RESET);
+            }
+        }, 0, INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /** Expires everything past the TTL, one chunk per transaction, until a chunk comes back short. */
+    public static Run sweep(ConnectionPool pool) throws SQLException {
+        long start = System.currentTimeMillis();
+        int quotations = 0;
+        int units = 0;
+        int chunks = 0;
+
+        while (true) {
+            int[] chunk;
+            try (Connection conn = pool.getConnection()) {
+                chunk = expireChunk(conn);
+            }
+            if (chunk[0] == 0) break;
+            quotations += chunk[0];
+            units += chunk[1];
+            chunks++;
+            if (chunk[0] < CHUNK_SIZE) break;
+        }
+
+        totalQuotations.addAndGet(quotations);
+        totalUnits.addAndGet(units);
+        Run run = new Run(new Timestamp(System.currentTimeMillis()), quotations, units, chunks,
+                System.currentTimeMillis() - start);
+        lastRun = run;
+        return run;
+    }
+
+    // Returns {quotations expired, units returned}
+    private static int[] expireChunk(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        CatalogCache.stockChanging();
+        List<Integer> productIds = new ArrayList<>();
+        try {
+            List<Integer> ids = QuotationDao.lockExpired(conn, TTL_MINUTES, CHUNK_SIZE);
+            if (ids.isEmpty()) {
+                conn.commit();
+                return new int[] { 0, 0 };
+            }
+
+            List<QuotationDao.Item> reserved = QuotationDao.reservedBy(conn, ids);
+            for (QuotationDao.Item item : reserved) productIds.add(item.productId());
+            LowStockIndex.changing(productIds);
+            // Product rows before their sizes, as checkout takes them
+            ProductDao.lockProducts(conn, productIds);
+            ProductDao.returnSizeStock(conn, reserved);
+            int expired = QuotationDao.markExpired(conn, ids);
+            conn.commit();
+
+            int units = 0;
+            for (QuotationDao.Item item : reserved) {
+                units += item.quantity();
+                CatalogCache.adjustStock(item.productId(), item.size(), item.quantity());
+                LowStockIndex.adjust(item.productId(), item.size(), item.quantity(), 0);
+            }
+            return new int[] { expired, units };
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            LowStockIndex.changed(productIds);
+            CatalogCache.stockChanged();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    public static Stats stats() {
+        return new Stats(lastRun, totalQuotations.get(), totalUnits.get(), failures.get());
+    }
+}
@@ -0,0 +1,337 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+import dao.InventoryLogDao;
+import dao.QuotationDao;
+import dao.SalesDao;
+import db.ConnectionPool;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * Writes sales, quotations with their items, or the inventory log for a date range to CSV or JSON
+ * Lines, optionally gzipped, under -Dusms.export.dir (exports).
+ *
+ * Rows are streamed from the server one at a time and encoded straight into a fixed buffer that is
+ * drained to the file channel (through gzip when asked), so memory use does not depend on how many
+ * rows there are. In JSON Lines a quotation is one object with its items nested; in CSV it is one
+ * row per item. Progress is reported every -Dusms.export.progressRows (100000) rows.
+ *
+ * The file is written as name.part and renamed into place once it is complete, so a failed export
+ * never leaves a truncated file under the final name.
+ */
+public final class ExportService {
+
+    public enum Dataset { SALES, QUOTATIONS, INVENTORY_LOG }
+
+    public enum Format { CSV, JSONL }
+
+    /** Both dates are inclusive. */
+    public record ExportRequest(Dataset dataset, Format format, LocalDate from, LocalDate to, boolean gzip) {}
+
+    /** bytes counts what has been encoded so far, before compression; the last report has the file size. */
+    public record Progress(long rows, long bytes, long millis) {
+        public double rowsPerSecond() {
+            return millis == 0 ? 0 : rows * 1000.0 / millis;
+        }
+    }
+
+    /** bytes is the size of the file on disk, after compression. */
+    public record Exported(Path file, long rows, long bytes, long millis) {}
+
+    @FunctionalInterface
+    private interface Query {
+        ResultSet open(Connection conn, Timestamp from, Timestamp to) throws SQLException;
+    }
+
+    static final Path DIR = Path.of(System.getProperty("usms.export.dir", "exports"));
+    static final long PROGRESS_ROWS = Long.getLong("usms.export.progressRows", 100_000L);
+    static final int BUFFER_BYTES = 1 << 18;
+
+    // The server gives up on a client that stops reading a streamed result for this long
+    static final int NET_WRITE_TIMEOUT_SEC = Integer.getInteger("usms.export.netWriteTimeoutSec", 3600);
+
+    private static final Histogram EXPORT = Metrics.histogram("export");
+
+    private ExportService() {}
+
+    public static Exported export(ConnectionPool pool, ExportRequest request, Consumer<Progress> progress)
+            throws SQLException, IOException {
+        if (request.from().isAfter(request.to())) throw new IllegalArgumentException("The start date is after the end date!");
+        Query query = switch (request.dataset()) {
+            case SALES -> SalesDao::export;
+            case QUOTATIONS -> QuotationDao::export;
+            case INVENTORY_LOG -> InventoryLogDao::export;
+        };
+        int parentColumns = request.dataset() == Dataset.QUOTATIONS ? QuotationDao.EXPORT_QUOTATION_COLUMNS : 0;
+
+        Files.createDirectories(DIR);
+        Path file = DIR.resolve(fileName(request));
+        Path part = DIR.resolve(fileName(request) + ".part");
+        long start = System.nanoTime();
+        long rows = 0;
+        boolean complete = false;
+        try (Connection conn = pool.getConnection();
+             FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            setNetWriteTimeout(conn, NET_WRITE_TIMEOUT_SEC);
+            try (Output out = new Output(request.gzip()
+                    ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES))
+                    : channel);
+                 ResultSet rs = query.open(conn, Timestamp.valueOf(request.from().atStartOfDay()),
+                         Timestamp.valueOf(request.to().plusDays(1).atStartOfDay()))) {
+                RowWriter writer = request.format() == Format.CSV ? new CsvWriter(out, rs.getMetaData())
+                        : new JsonWriter(out, rs.getMetaData(), parentColumns);
+                while (rs.next()) {
+                    writer.row(rs);
+                    if (++rows % PROGRESS_ROWS == 0) {
+                        progress.accept(new Progress(rows, out.bytes, (System.nanoTime() - start) / 1_000_000));
+                    }
+                }
+                writer.finish();
+            } finally {
+                setNetWriteTimeout(conn, -1);
+            }
+            // Closing the gzip stream closed the channel as well, so the size comes from the file
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            complete = true;
+            long bytes = Files.size(file);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            progress.accept(new Progress(rows, bytes, millis));
+            return new Exported(file, rows, bytes, millis);
+        } finally {
+            if (!complete) deleteQuietly(part);
+            EXPORT.recordSince(start);
+        }
+    }
+
+    static String fileName(ExportRequest request) {
+        return request.dataset().name().toLowerCase().replace('_', '-') + "-" + request.from() + "-to-" + request.to()
+                + (request.format() == Format.CSV ? ".csv" : ".jsonl") + (request.gzip() ? ".gz" : "");
+    }
+
+    // Cleanup after a failure must not hide the exception that caused it
+    private static void deleteQuietly(Path part) {
+        try {
+            Files.deleteIfExists(part);
+        } catch (IOException ignored) {
+            // Left behind as name.part; the next export of the same range truncates it
+        }
+    }
+
+    // -1 puts the session back on the server default before the connection returns to the pool
+    private static void setNetWriteTimeout(Connection conn, int seconds) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("SET SESSION net_write_timeout = " + (seconds < 0 ? "DEFAULT" : String.valueOf(seconds)));
+        }
+    }
+
+    // ==========================================================
+    // OUTPUT (encoder -> fixed buffer -> channel)
+    // ==========================================================
+    private static final class Output implements AutoCloseable {
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private long bytes;
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, false);
+                if (result.isOverflow()) drain();
+                else if (result.isUnderflow()) return;
+                else result.throwException();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            bytes += buffer.remaining();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            encoder.encode(CharBuffer.allocate(0), buffer, true);
+            drain();
+            // Closes the gzip stream too, which writes its trailer; the file channel is closed by the caller
+            if (!(channel instanceof FileChannel)) channel.close();
+        }
+    }
+
+    // ==========================================================
+    // FORMATS
+    // ==========================================================
+    private interface RowWriter {
+        void row(ResultSet rs) throws SQLException, IOException;
+
+        default void finish() throws IOException {}
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private final Output out;
+        private final int columns;
+        private final StringBuilder line = new StringBuilder(256);
+
+        CsvWriter(Output out, ResultSetMetaData meta) throws SQLException, IOException {
+            this.out = out;
+            this.columns = meta.getColumnCount();
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) line.append(',');
+                line.append(meta.getColumnLabel(i));
+            }
+            out.write(line.append('\n'));
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            line.setLength(0);
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) line.append(',');
+                String value = rs.getString(i);
+                if (value != null) quote(line, value);
+            }
+            out.write(line.append('\n'));
+        }
+
+        private static void quote(StringBuilder line, String value) {
+            boolean needs = false;
+            for (int i = 0; i < value.length() && !needs; i++) {
+                char c = value.charAt(i);
+                needs = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!needs) {
+                line.append(value);
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') line.append('"');
+                line.append(c);
+            }
+            line.append('"');
+        }
+    }
+
+    /**
+     * One object per row. With parentColumns > 0, consecutive rows sharing the first column are one
+     * object whose remaining columns become entries of an "items" array.
+     */
+    private static final class JsonWriter implements RowWriter {
+        private final Output out;
+        private final int parentColumns;
+        private final String[] names;
+        private final boolean[] numeric;
+        private final StringBuilder line = new StringBuilder(256);
+        private String currentParent;
+
+        JsonWriter(Output out, ResultSetMetaData meta, int parentColumns) throws SQLException {
+            this.out = out;
+            this.parentColumns = parentColumns;
+            int columns = meta.getColumnCount();
+            names = new String[columns + 1];
+            numeric = new boolean[columns + 1];
+            for (int i = 1; i <= columns; i++) {
+                names[i] = meta.getColumnLabel(i);
+                numeric[i] = switch (meta.getColumnType(i)) {
+                    case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT, Types.DECIMAL, Types.NUMERIC,
+                         Types.FLOAT, Types.REAL, Types.DOUBLE -> true;
+                    default -> false;
+                };
+            }
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            if (parentColumns == 0) {
+                line.setLength(0);
+                fields(rs, 1, names.length - 1);
+                out.write(line.append('\n'));
+                return;
+            }
+
+            String parent = rs.getString(1);
+            if (!Objects.equals(parent, currentParent)) {
+                finish();
+                currentParent = parent;
+                line.setLength(0);
+                fields(rs, 1, parentColumns);
+                line.setLength(line.length() - 1);
+                line.append(",\"items\":[");
+            }
+            if (rs.getString(parentColumns + 1) != null || rs.getString(parentColumns + 2) != null) {
+                if (line.charAt(line.length() - 1) == '}') line.append(',');
+                fields(rs, parentColumns + 1, names.length - 1);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (currentParent == null) return;
+            out.write(line.append("]}\n"));
+            currentParent = null;
+        }
+
+        private void fields(ResultSet rs, int from, int to) throws SQLException {
+            line.append('{');
+            for (int i = from; i <= to; i++) {
+                if (i > from) line.append(',');
+                line.append('"').append(names[i]).append("\":");
+                String value = rs.getString(i);
+                if (value == null) line.append("null");
+                else if (numeric[i]) line.append(value);
+                else string(value);
+            }
+            line.append('}');
+        }
+
+        private void string(String value) {
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> line.append("\\\"");
+                    case '\\' -> line.append("\\\\");
+                    case '\n' -> line.append("\\n");
+                    case '\r' -> line.append("\\r");
+                    case '\t' -> line.append("\\t");
+                    default -> {
+                        if (c < 0x20) line.append(String.format("\\u%04x", (int) c));
+                        else line.append(c);
+                    }
+                }
+            }
+            line.append('"');
+        }
+    }
+}
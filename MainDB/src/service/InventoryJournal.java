@@ -0,0 +1,233 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import dao.InventoryLogDao;
+import db.ConnectionPool;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * Every inventory_log write goes through here, in one of two durability modes chosen with
+ * -Dusms.journal.durability:
+ *
+ * SYNC writes the transaction's changes as one multi-row INSERT inside the business transaction,
+ * so a stock movement and its log line commit or roll back together.
+ *
+ * ASYNC (the default) keeps the log off the critical path: the changes are stamped with the
+ * database clock inside the transaction and, once it has committed, queued in a bounded ring of -Dusms.journal.capacity
+ * (8192) entries. One background thread group-commits them as multi-row INSERTs of up to
+ * -Dusms.journal.batchSize (500) rows, at the latest -Dusms.journal.flushMs (200) after the first
+ * one was queued. A crash can lose what is still queued. When the ring is full the caller waits
+ * briefly and then writes its own changes, so a log line is never dropped to make room.
+ *
+ * Callers use the pair {@link #write} before commit and {@link #committed} after it; each is a
+ * no-op in the mode that does not need it. Until {@link #start} the journal behaves as SYNC.
+ */
+public final class InventoryJournal {
+
+    static final String RESET = "\u001B[0m";
+    static final String YELLOW = "\u001B[33m";
+
+    public enum Durability { SYNC, ASYNC }
+
+    public record Stats(Durability durability, int queued, long appended, long written, long flushes,
+                        long callerWrites, long failures) {}
+
+    static final Durability DURABILITY = "sync".equalsIgnoreCase(System.getProperty("usms.journal.durability", "async").trim())
+            ? Durability.SYNC : Durability.ASYNC;
+    static final int CAPACITY = Integer.getInteger("usms.journal.capacity", 8192);
+    static final int BATCH_SIZE = Integer.getInteger("usms.journal.batchSize", 500);
+    static final long FLUSH_MS = Long.getLong("usms.journal.flushMs", 200L);
+
+    // How long a caller waits for room in a full ring before writing its changes itself
+    static final long OFFER_WAIT_MS = 50;
+    static final long MAX_RETRY_MS = 5_000;
+
+    private static final BlockingQueue<InventoryLogDao.Stamped> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private static final AtomicLong appended = new AtomicLong();
+    private static final AtomicLong written = new AtomicLong();
+    private static final AtomicLong flushes = new AtomicLong();
+    private static final AtomicLong callerWrites = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+    private static final Histogram FLUSH = Metrics.histogram("journalFlush");
+
+    private static volatile Durability durability = Durability.SYNC;
+    private static volatile boolean stopping;
+    private static volatile int inFlight;
+    private static ConnectionPool pool;
+    private static Thread flusher;
+
+    private InventoryJournal() {}
+
+    /** Switches to the configured durability; in ASYNC mode starts the flusher thread. */
+    public static synchronized void start(ConnectionPool pool) {
+        if (flusher != null || DURABILITY == Durability.SYNC) return;
+        InventoryJournal.pool = pool;
+        stopping = false;
+        flusher = new Thread(InventoryJournal::flushLoop, "usms-inventory-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+        durability = Durability.ASYNC;
+        Metrics.gauge("journal.queued", queue::size);
+    }
+
+    /**
+     * Goes back to SYNC and waits for the flusher to write what is queued; returns how many log
+     * lines were left unwritten.
+     */
+    public static synchronized int stop(long timeoutMs) {
+        if (flusher == null) return 0;
+        durability = Durability.SYNC;
+        stopping = true;
+        try {
+            flusher.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int left = 0;
+        if (flusher.isAlive()) {
+            // Still retrying against a database that is not answering; give up on its batch
+            flusher.interrupt();
+            left = inFlight;
+        }
+        flusher = null;
+        left += queue.size();
+        queue.clear();
+        return left;
+    }
+
+    public static Durability durability() {
+        return durability;
+    }
+
+    /**
+     * Call inside the business transaction, before commit. In SYNC mode the changes are written
+     * now, as part of it, and nothing is returned; in ASYNC mode nothing is written and the changes
+     * come back stamped with the database clock, to be handed to {@link #committed} once the commit
+     * has gone through.
+     */
+    public static List<InventoryLogDao.Stamped> write(Connection conn, List<InventoryLogDao.Change> changes)
+            throws SQLException {
+        if (changes.isEmpty()) return List.of();
+        return write(conn, changes, durability == Durability.ASYNC ? InventoryLogDao.now(conn) : null);
+    }
+
+    /** Like {@link #write(Connection, List)} for a caller that has already read the database clock in this transaction. */
+    public static List<InventoryLogDao.Stamped> write(Connection conn, List<InventoryLogDao.Change> changes, Timestamp at)
+            throws SQLException {
+        if (changes.isEmpty()) return List.of();
+        if (durability == Durability.ASYNC) {
+            List<InventoryLogDao.Stamped> stamped = new ArrayList<>(changes.size());
+            for (InventoryLogDao.Change change : changes) stamped.add(new InventoryLogDao.Stamped(change, at));
+            return stamped;
+        }
+        InventoryLogDao.insertAll(conn, changes);
+        return List.of();
+    }
+
+    /** Queues changes whose transaction has committed; never throws, a failed write is reported and counted. */
+    public static void committed(List<InventoryLogDao.Stamped> changes) {
+        if (changes.isEmpty()) return;
+        int queued = 0;
+        try {
+            while (queued < changes.size() && !stopping
+                    && queue.offer(changes.get(queued), OFFER_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                queued++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appended.addAndGet(queued);
+        if (queued == changes.size()) return;
+
+        // The ring is full or the flusher is gone: this caller pays for its own round trip
+        List<InventoryLogDao.Stamped> overflow = changes.subList(queued, changes.size());
+        try (Connection conn = pool.getConnection()) {
+            InventoryLogDao.insertStamped(conn, overflow);
+            callerWrites.incrementAndGet();
+            written.addAndGet(overflow.size());
+        } catch (SQLException e) {
+            failures.incrementAndGet();
+            System.err.println(YELLOW + overflow.size() + " inventory log line(s) not written: " + e.getMessage() + RESET);
+        }
+    }
+
+    public static Stats stats() {
+        return new Stats(durability, queue.size(), appended.get(), written.get(), flushes.get(),
+                callerWrites.get(), failures.get());
+    }
+
+    // ==========================================================
+    // FLUSHER THREAD
+    // ==========================================================
+    private static void flushLoop() {
+        List<InventoryLogDao.Stamped> batch = new ArrayList<>(BATCH_SIZE);
+        int attempts = 0;
+        while (true) {
+            try {
+                if (batch.isEmpty() && !fill(batch)) return;
+                inFlight = batch.size();
+                flush(batch);
+                batch.clear();
+                inFlight = 0;
+                attempts = 0;
+            } catch (InterruptedException e) {
+                return;
+            } catch (SQLException | RuntimeException e) {
+                // Keep the batch and try again, backing off; nothing is lost until stop() gives up
+                failures.incrementAndGet();
+                if (attempts++ == 0) {
+                    System.err.println(YELLOW + "Inventory log flush failed, retrying: " + e.getMessage() + RESET);
+                }
+                try {
+                    Thread.sleep(Math.min(MAX_RETRY_MS, FLUSH_MS * attempts));
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the first entry, then gathers more until the batch is full or FLUSH_MS has passed
+     * since that first entry. Returns false once stopping with nothing left to write.
+     */
+    private static boolean fill(List<InventoryLogDao.Stamped> batch) throws InterruptedException {
+        InventoryLogDao.Stamped first = null;
+        while (first == null) {
+            if (stopping && queue.isEmpty()) return false;
+            first = queue.poll(FLUSH_MS, TimeUnit.MILLISECONDS);
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_MS);
+        while (batch.size() < BATCH_SIZE) {
+            queue.drainTo(batch, BATCH_SIZE - batch.size());
+            long left = deadline - System.nanoTime();
+            if (batch.size() >= BATCH_SIZE || left <= 0 || stopping) break;
+            InventoryLogDao.Stamped next = queue.poll(left, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+        return true;
+    }
+
+    private static void flush(List<InventoryLogDao.Stamped> batch) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = pool.getConnection()) {
+            InventoryLogDao.insertStamped(conn, batch);
+            flushes.incrementAndGet();
+            written.addAndGet(batch.size());
+        } finally {
+            FLUSH.recordSince(start);
+        }
+    }
+}
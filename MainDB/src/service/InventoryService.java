@@ -0,0 +1,238 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import dao.InventoryLogDao;
+import dao.ProductDao;
+import db.ConnectionPool;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * Stock intake and the restock dashboard. A restock locks the size row, adds the good units and
+ * records the damaged ones in one transaction, and logs the change through {@link InventoryJournal}.
+ *
+ * A delivery manifest does the same for any number of sizes at once: the SKUs are resolved and
+ * locked in one query, then every stock update and log row goes out as a batch, all in a single
+ * transaction. A manifest with any line that does not resolve is refused as a whole.
+ *
+ * The dashboard itself reads from {@link LowStockIndex}, which every committed change here updates.
+ */
+public final class InventoryService {
+
+    public record Restock(int productId, int sizeId, int received, int damaged) {}
+
+    public record Restocked(ProductDao.Size size, int previousStock, int newStock, int good, int damaged) {}
+
+    public enum Level { OUT, LOW, SAFE }
+
+    /** One delivery line as read from the manifest; line is its 1-based position for error reports. */
+    public record ManifestLine(int line, String code, String size, int received, int damaged) {}
+
+    public record ManifestError(int line, String message) {}
+
+    public record Manifest(List<ManifestLine> lines, List<ManifestError> errors) {}
+
+    /** How one size changed; lines naming the same size are added up into one. */
+    public record Difference(String code, String product, String size, int previousStock, int newStock,
+                             int previousDamaged, int newDamaged) {}
+
+    /** Nothing was applied when errors is not empty. */
+    public record ManifestRestocked(List<Difference> differences, List<ManifestError> errors) {}
+
+    private static final Histogram RESTOCK = Metrics.histogram("restock");
+    private static final Histogram RESTOCK_MANIFEST = Metrics.histogram("restockManifest");
+
+    private InventoryService() {}
+
+    /** Returns null when the size no longer belongs to the product. */
+    public static Restocked restock(ConnectionPool pool, Restock request) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (request.received() <= 0) throw new IllegalArgumentException("Quantity must be a positive number!");
+            if (request.damaged() < 0 || request.damaged() > request.received()) {
+                throw new IllegalArgumentException("Damaged quantity must be between 0 and received quantity!");
+            }
+            int good = request.received() - request.damaged();
+
+            // Held open across the commit and the cache update, so no cache load can count the units twice
+            CatalogCache.stockChanging();
+            LowStockIndex.changing(List.of(request.productId()));
+            try {
+                Restocked restocked;
+                try (Connection conn = pool.getConnection()) {
+                    conn.setAutoCommit(false);
+                    try {
+                        // Product row before the size, as checkout takes them
+                        ProductDao.lockProducts(conn, List.of(request.productId()));
+                        ProductDao.Size size = ProductDao.lockSize(conn, request.productId(), request.sizeId());
+                        if (size == null) {
+                            conn.rollback();
+                            return null;
+                        }
+                        ProductDao.restockSize(conn, size.id(), good, request.damaged());
+                        List<InventoryLogDao.Stamped> deferred = InventoryJournal.write(conn,
+                                List.of(new InventoryLogDao.Change(request.productId(), "RESTOCK", good, size.stock(), size.stock() + good)));
+                        conn.commit();
+                        InventoryJournal.committed(deferred);
+                        restocked = new Restocked(size, size.stock(), size.stock() + good, good, request.damaged());
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+                }
+                CatalogCache.adjustStock(request.productId(), restocked.size().size(), good);
+                LowStockIndex.adjust(request.productId(), restocked.size().size(), good, request.damaged());
+                return restocked;
+            } finally {
+                LowStockIndex.changed(List.of(request.productId()));
+                CatalogCache.stockChanged();
+            }
+        } finally {
+            RESTOCK.recordSince(start);
+        }
+    }
+
+    // ==========================================================
+    // DELIVERY MANIFESTS
+    // ==========================================================
+    /**
+     * Reads "code, size, received[, damaged]" lines, separated by commas, tabs, semicolons or spaces.
+     * Blank lines, # comments and a header line starting with "code" are skipped.
+     */
+    public static Manifest parseManifest(List<String> text) {
+        List<ManifestLine> lines = new ArrayList<>();
+        List<ManifestError> errors = new ArrayList<>();
+        for (int n = 1; n <= text.size(); n++) {
+            String raw = text.get(n - 1).strip();
+            if (raw.isEmpty() || raw.startsWith("#")) continue;
+
+            String[] fields = raw.split("[,;\\s]+");
+            if (fields[0].equalsIgnoreCase("code")) continue;
+            if (fields.length < 3 || fields.length > 4) {
+                errors.add(new ManifestError(n, "Expected code, size, received[, damaged]: " + raw));
+                continue;
+            }
+            try {
+                int received = Integer.parseInt(fields[2]);
+                int damaged = fields.length == 4 ? Integer.parseInt(fields[3]) : 0;
+                if (received <= 0) throw new IllegalArgumentException("Quantity must be a positive number!");
+                if (damaged < 0 || damaged > received) {
+                    throw new IllegalArgumentException("Damaged quantity must be between 0 and received quantity!");
+                }
+                lines.add(new ManifestLine(n, fields[0].toUpperCase(Locale.ROOT), fields[1], received, damaged));
+            } catch (NumberFormatException e) {
+                errors.add(new ManifestError(n, "Quantities must be whole numbers: " + raw));
+            } catch (IllegalArgumentException e) {
+                errors.add(new ManifestError(n, e.getMessage()));
+            }
+        }
+        return new Manifest(lines, errors);
+    }
+
+    /** Applies a parsed manifest in one transaction, or nothing at all if any line is unknown. */
+    public static ManifestRestocked restock(ConnectionPool pool, Manifest manifest) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!manifest.errors().isEmpty()) return new ManifestRestocked(List.of(), manifest.errors());
+            if (manifest.lines().isEmpty()) throw new IllegalArgumentException("The manifest has no lines.");
+
+            // Repeated SKUs are added up so each size is updated and logged once
+            Map<String, ManifestLine> bySku = new LinkedHashMap<>();
+            for (ManifestLine line : manifest.lines()) {
+                bySku.merge(skuKey(line.code(), line.size()), line, (a, b) -> new ManifestLine(a.line(), a.code(), a.size(),
+                        a.received() + b.received(), a.damaged() + b.damaged()));
+            }
+            List<ProductDao.Sku> skus = new ArrayList<>(bySku.size());
+            for (ManifestLine line : bySku.values()) skus.add(new ProductDao.Sku(line.code(), line.size()));
+
+            CatalogCache.stockChanging();
+            List<Integer> productIds = new ArrayList<>();
+            try {
+                List<Difference> differences = new ArrayList<>(bySku.size());
+                List<ProductDao.SkuSize> found = new ArrayList<>();
+                try (Connection conn = pool.getConnection()) {
+                    conn.setAutoCommit(false);
+                    try {
+                        // Product rows before their sizes, as checkout takes them
+                        List<String> codes = new ArrayList<>(skus.size());
+                        for (ProductDao.Sku sku : skus) codes.add(sku.code());
+                        productIds.addAll(ProductDao.productIdsByCode(conn, codes));
+                        LowStockIndex.changing(productIds);
+                        ProductDao.lockProducts(conn, productIds);
+
+                        Map<String, ProductDao.SkuSize> locked = new HashMap<>();
+                        for (ProductDao.SkuSize s : ProductDao.lockSkus(conn, skus)) {
+                            locked.put(skuKey(s.code(), s.size().size()), s);
+                        }
+
+                        List<ManifestError> unknown = new ArrayList<>();
+                        List<ProductDao.SizeRestock> restocks = new ArrayList<>(bySku.size());
+                        List<InventoryLogDao.Change> changes = new ArrayList<>(bySku.size());
+                        for (Map.Entry<String, ManifestLine> e : bySku.entrySet()) {
+                            ManifestLine line = e.getValue();
+                            ProductDao.SkuSize s = locked.get(e.getKey());
+                            if (s == null) {
+                                unknown.add(new ManifestError(line.line(), "No active product " + line.code() + " in size " + line.size()));
+                                continue;
+                            }
+                            ProductDao.Size size = s.size();
+                            int good = line.received() - line.damaged();
+                            restocks.add(new ProductDao.SizeRestock(size.id(), good, line.damaged()));
+                            changes.add(new InventoryLogDao.Change(size.productId(), "RESTOCK", good, size.stock(), size.stock() + good));
+                            differences.add(new Difference(s.code(), s.productName(), size.size(), size.stock(), size.stock() + good,
+                                    size.damaged(), size.damaged() + line.damaged()));
+                            found.add(s);
+                        }
+                        if (!unknown.isEmpty()) {
+                            conn.rollback();
+                            return new ManifestRestocked(List.of(), unknown);
+                        }
+
+                        ProductDao.restockSizes(conn, restocks);
+                        List<InventoryLogDao.Stamped> deferred = InventoryJournal.write(conn, changes);
+                        conn.commit();
+                        InventoryJournal.committed(deferred);
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+                }
+
+                for (int i = 0; i < found.size(); i++) {
+                    Difference d = differences.get(i);
+                    int productId = found.get(i).size().productId();
+                    CatalogCache.adjustStock(productId, d.size(), d.newStock() - d.previousStock());
+                    LowStockIndex.adjust(productId, d.size(), d.newStock() - d.previousStock(), d.newDamaged() - d.previousDamaged());
+                }
+                return new ManifestRestocked(differences, List.of());
+            } finally {
+                LowStockIndex.changed(productIds);
+                CatalogCache.stockChanged();
+            }
+        } finally {
+            RESTOCK_MANIFEST.recordSince(start);
+        }
+    }
+
+    // Codes and sizes compare case-insensitively, as the database collation does
+    private static String skuKey(String code, String size) {
+        return code.toUpperCase(Locale.ROOT) + "|" + size.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public static Level level(ProductDao.StockLevel row) {
+        if (row.stock() == 0) return Level.OUT;
+        if (row.stock() <= row.criticalStock()) return Level.LOW;
+        return Level.SAFE;
+    }
+}
@@ -0,0 +1,267 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import dao.ProductDao;
+import db.ConnectionPool;
+
+/**
+ * In-memory index of the sizes that are out of stock or at or below their critical stock, most
+ * urgent first: out of stock, then by stock as a fraction of critical_stock. Every size of every
+ * active product is held (a few ints and names each) so a stock change can be placed without a
+ * query; only the at-risk ones are kept in the ordered set the restock dashboard pages through.
+ *
+ * Built once at startup. Stock movements update it in place after their commit; edits to products,
+ * sizes and critical stock reload the one product they touched, as the search index does.
+ *
+ * A stock movement is bracketed by {@link #changing} before its commit and {@link #changed} after
+ * its {@link #adjust} calls. A load (the build or a product reload) that overlaps a bracket for a
+ * product may or may not have read that commit, so neither its rows nor the delta can be trusted
+ * for it. The rows are installed but the product is marked stale, and reads reload stale products
+ * once no movement is in flight for them.
+ */
+public final class LowStockIndex {
+
+    /** One page of at-risk sizes; total counts every match of the filter. */
+    public record Page(List<ProductDao.StockLevel> rows, int total) {}
+
+    /** What a product manager is told at login. */
+    public record Alert(int out, int low, List<ProductDao.StockLevel> worst) {}
+
+    private static final Comparator<String> TEXT = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+
+    // Ties on urgency fall back to the old dashboard's category, product, size order; the product id
+    // and exact size keep two distinct sizes from ever comparing equal
+    private static final Comparator<ProductDao.StockLevel> URGENCY = Comparator
+            .comparing(InventoryService::level)
+            .thenComparing(LowStockIndex::fillRatio)
+            .thenComparing(ProductDao.StockLevel::criticalStock, Comparator.reverseOrder())
+            .thenComparing(ProductDao.StockLevel::category, TEXT)
+            .thenComparing(ProductDao.StockLevel::product, TEXT)
+            .thenComparing(ProductDao.StockLevel::size, TEXT)
+            .thenComparingInt(ProductDao.StockLevel::productId)
+            .thenComparing(ProductDao.StockLevel::size, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final Map<Integer, Map<String, ProductDao.StockLevel>> byProduct = new HashMap<>();
+    private static final TreeSet<ProductDao.StockLevel> atRisk = new TreeSet<>(URGENCY);
+    private static int out;
+    private static int low;
+    private static boolean built;
+    // Stock movements in flight per product, between changing() and changed()
+    private static final Map<Integer, Integer> pending = new HashMap<>();
+    // One set per running load: the products a movement or edit touched while it ran
+    private static final List<Set<Integer>> loads = new ArrayList<>();
+    // Products whose rows came from a load that raced with a movement
+    private static final Set<Integer> stale = new HashSet<>();
+
+    private LowStockIndex() {}
+
+    // ==========================================================
+    // BUILD / UPDATE
+    // ==========================================================
+    /** Indexes every size of every active product; returns how many are at risk. */
+    public static int build(ConnectionPool pool) throws SQLException {
+        Set<Integer> raced = startLoad();
+        try {
+            List<ProductDao.StockLevel> levels;
+            try (Connection conn = pool.getConnection()) {
+                levels = ProductDao.stockLevels(conn);
+            }
+            synchronized (LowStockIndex.class) {
+                byProduct.clear();
+                atRisk.clear();
+                out = 0;
+                low = 0;
+                for (ProductDao.StockLevel level : levels) add(level);
+                stale.clear();
+                stale.addAll(raced);
+                built = true;
+                return atRisk.size();
+            }
+        } finally {
+            endLoad(raced);
+        }
+    }
+
+    /** Call before committing a transaction that moves these products' stock; always pair with {@link #changed}. */
+    static synchronized void changing(Collection<Integer> productIds) {
+        for (int productId : productIds) {
+            pending.merge(productId, 1, Integer::sum);
+            touched(productId);
+        }
+    }
+
+    /** Call once the transaction's adjust calls are made, or once it has rolled back. */
+    static synchronized void changed(Collection<Integer> productIds) {
+        for (int productId : productIds) pending.computeIfPresent(productId, (id, n) -> n == 1 ? null : n - 1);
+    }
+
+    /** Moves one size's stock and damaged counts by a committed change. */
+    static synchronized void adjust(int productId, String size, int stockDelta, int damagedDelta) {
+        Map<String, ProductDao.StockLevel> sizes = byProduct.get(productId);
+        ProductDao.StockLevel current = sizes == null ? null : sizes.get(key(size));
+        // A stale product is reloaded whole before it is read again
+        if (current == null || stale.contains(productId)) return;
+        removeLevel(current);
+        add(new ProductDao.StockLevel(current.productId(), current.categoryId(), current.category(), current.product(),
+                current.size(), current.stock() + stockDelta, current.damaged() + damagedDelta, current.criticalStock()));
+    }
+
+    /** Reloads a product's sizes, or drops it when it is no longer active. */
+    static void refresh(ConnectionPool pool, int productId) throws SQLException {
+        Set<Integer> raced = startLoad();
+        try {
+            List<ProductDao.StockLevel> levels;
+            try (Connection conn = pool.getConnection()) {
+                levels = ProductDao.stockLevels(conn, productId);
+            }
+            synchronized (LowStockIndex.class) {
+                drop(productId);
+                for (ProductDao.StockLevel level : levels) add(level);
+                if (raced.contains(productId)) stale.add(productId);
+                else stale.remove(productId);
+            }
+        } finally {
+            endLoad(raced);
+        }
+    }
+
+    /** Replaces everything held for a product with these rows. */
+    static synchronized void put(int productId, List<ProductDao.StockLevel> levels) {
+        touched(productId);
+        drop(productId);
+        for (ProductDao.StockLevel level : levels) add(level);
+    }
+
+    static synchronized void remove(int productId) {
+        touched(productId);
+        drop(productId);
+    }
+
+    private static void drop(int productId) {
+        Map<String, ProductDao.StockLevel> sizes = byProduct.remove(productId);
+        if (sizes == null) return;
+        for (ProductDao.StockLevel level : sizes.values()) forget(level);
+    }
+
+    static synchronized void renameCategory(int categoryId, String name) {
+        List<ProductDao.StockLevel> renamed = new ArrayList<>();
+        for (Map<String, ProductDao.StockLevel> sizes : byProduct.values()) {
+            for (ProductDao.StockLevel level : sizes.values()) {
+                if (level.categoryId() == categoryId) renamed.add(level);
+            }
+        }
+        for (ProductDao.StockLevel level : renamed) {
+            removeLevel(level);
+            add(new ProductDao.StockLevel(level.productId(), level.categoryId(), name, level.product(), level.size(),
+                    level.stock(), level.damaged(), level.criticalStock()));
+        }
+    }
+
+    // A running load may have read this product before the change, so it must not be trusted for it
+    private static void touched(int productId) {
+        for (Set<Integer> raced : loads) raced.add(productId);
+    }
+
+    private static synchronized Set<Integer> startLoad() {
+        // A movement already in flight may commit before or after the load reads
+        Set<Integer> raced = new HashSet<>(pending.keySet());
+        loads.add(raced);
+        return raced;
+    }
+
+    private static synchronized void endLoad(Set<Integer> raced) {
+        loads.removeIf(load -> load == raced);
+    }
+
+    private static void add(ProductDao.StockLevel level) {
+        byProduct.computeIfAbsent(level.productId(), id -> new HashMap<>()).put(key(level.size()), level);
+        switch (InventoryService.level(level)) {
+            case OUT -> out++;
+            case LOW -> low++;
+            case SAFE -> { return; }
+        }
+        atRisk.add(level);
+    }
+
+    private static void removeLevel(ProductDao.StockLevel level) {
+        Map<String, ProductDao.StockLevel> sizes = byProduct.get(level.productId());
+        if (sizes != null) sizes.remove(key(level.size()));
+        forget(level);
+    }
+
+    private static void forget(ProductDao.StockLevel level) {
+        if (!atRisk.remove(level)) return;
+        if (InventoryService.level(level) == InventoryService.Level.OUT) out--;
+        else low--;
+    }
+
+    // Sizes compare case-insensitively, as the database collation does; a product without sizes has one row
+    private static String key(String size) {
+        return size == null ? "" : size.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static double fillRatio(ProductDao.StockLevel level) {
+        return (double) level.stock() / Math.max(1, level.criticalStock());
+    }
+
+    // ==========================================================
+    // READS
+    // ==========================================================
+    /**
+     * At-risk sizes, most urgent first. A null category or level matches all; level SAFE matches
+     * nothing, since safe sizes are not in the index.
+     */
+    public static Page atRisk(ConnectionPool pool, Integer categoryId, InventoryService.Level level, int offset, int limit)
+            throws SQLException {
+        ensureBuilt(pool);
+        synchronized (LowStockIndex.class) {
+            List<ProductDao.StockLevel> rows = new ArrayList<>(limit);
+            int total = 0;
+            for (ProductDao.StockLevel row : atRisk) {
+                if (categoryId != null && row.categoryId() != categoryId) continue;
+                if (level != null && InventoryService.level(row) != level) continue;
+                if (total >= offset && rows.size() < limit) rows.add(row);
+                total++;
+            }
+            return new Page(rows, total);
+        }
+    }
+
+    public static Alert alert(ConnectionPool pool, int worst) throws SQLException {
+        ensureBuilt(pool);
+        synchronized (LowStockIndex.class) {
+            List<ProductDao.StockLevel> top = new ArrayList<>(worst);
+            for (ProductDao.StockLevel row : atRisk) {
+                if (top.size() == worst) break;
+                top.add(row);
+            }
+            return new Alert(out, low, top);
+        }
+    }
+
+    // A process that skipped the startup build (a tool, a failed build) builds on first read; stale
+    // products are reloaded once no movement is in flight for them, the rest wait for a later read
+    private static void ensureBuilt(ConnectionPool pool) throws SQLException {
+        boolean build;
+        List<Integer> reload = new ArrayList<>();
+        synchronized (LowStockIndex.class) {
+            build = !built;
+            for (int productId : stale) {
+                if (!pending.containsKey(productId)) reload.add(productId);
+            }
+        }
+        if (build) build(pool);
+        for (int productId : reload) refresh(pool, productId);
+    }
+}
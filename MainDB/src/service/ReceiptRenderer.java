@@ -0,0 +1,286 @@
+package service;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ * Renders invoice and receipt PNGs into ~/Downloads on a small worker pool so checkout and
+ * sale screens return as soon as the database work has committed.
+ *
+ * The queue is bounded; when it is full the submitting thread renders the image itself, which
+ * slows the caller down instead of piling up work. Call {@link #shutdown} on exit so queued
+ * images are still written.
+ */
+public final class ReceiptRenderer {
+
+    public record InvoiceLine(String productName, String size, int quantity, double price, double total) {}
+
+    public record Invoice(String invoiceNumber, String username, Timestamp issuedAt,
+                          List<InvoiceLine> lines, double totalAmount) {}
+
+    public record Stats(int queued, int rendering, long completed, long failed, long avgMillis, long maxMillis) {}
+
+    // Font instances are immutable and safe to share between render threads
+    private static final Font INVOICE_FONT = new Font("Monospaced", Font.PLAIN, 14);
+    private static final Font INVOICE_CAPTION = INVOICE_FONT.deriveFont(Font.ITALIC, 12f);
+    private static final Font RECEIPT_TITLE = new Font("Arial", Font.BOLD, 22);
+    private static final Font RECEIPT_FONT = new Font("Arial", Font.PLAIN, 14);
+    private static final Font RECEIPT_BOLD = RECEIPT_FONT.deriveFont(Font.BOLD);
+    private static final Font RECEIPT_TOTAL = RECEIPT_FONT.deriveFont(Font.BOLD, 16f);
+
+    private static final Color TITLE_BLUE = new Color(30, 144, 255);
+    private static final Color TITLE_YELLOW = new Color(248, 238, 53);
+    private static final Color FOOTER_GREEN = new Color(34, 139, 34);
+
+    private static final int THREADS = Integer.getInteger("usms.render.threads", 2);
+    private static final int QUEUE_SIZE = Integer.getInteger("usms.render.queueSize", 64);
+
+    private static final AtomicInteger threadIds = new AtomicInteger();
+    private static final ThreadPoolExecutor workers = new ThreadPoolExecutor(THREADS, THREADS,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+                Thread t = new Thread(r, "usms-render-" + threadIds.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private static final AtomicInteger rendering = new AtomicInteger();
+    private static final AtomicLong completed = new AtomicLong();
+    private static final AtomicLong failed = new AtomicLong();
+    private static final AtomicLong totalNanos = new AtomicLong();
+    private static final AtomicLong maxNanos = new AtomicLong();
+
+    private ReceiptRenderer() {}
+
+    /** Where an invoice or receipt image ends up, known before it has been rendered. */
+    public static File fileFor(String prefix, String invoiceNumber) {
+        String downloadsPath = System.getProperty("user.home") + File.separator + "Downloads";
+        return new File(downloadsPath, prefix + "_" + invoiceNumber + ".png");
+    }
+
+    public static CompletableFuture<File> renderInvoice(Invoice invoice) {
+        return submit(fileFor("invoice", invoice.invoiceNumber()), () -> drawInvoice(invoice));
+    }
+
+    public static CompletableFuture<File> renderReceipt(String invoiceNumber, String paymentMethod,
+                                                        SaleCommitPipeline.Receipt receipt) {
+        return submit(fileFor("receipt", invoiceNumber), () -> drawReceipt(invoiceNumber, paymentMethod, receipt));
+    }
+
+    @FunctionalInterface
+    private interface Drawing {
+        BufferedImage draw();
+    }
+
+    private static CompletableFuture<File> submit(File target, Drawing drawing) {
+        long queuedAt = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            rendering.incrementAndGet();
+            try {
+                BufferedImage image = drawing.draw();
+                target.getParentFile().mkdirs();
+                ImageIO.write(image, "png", target);
+                record(System.nanoTime() - queuedAt);
+                return target;
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                throw e;
+            } finally {
+                rendering.decrementAndGet();
+            }
+        }, workers);
+    }
+
+    // ==========================================================
+    // INVOICE (student checkout)
+    // ==========================================================
+    private static BufferedImage drawInvoice(Invoice invoice) {
+        int padding = 20;
+        int lineHeight = 25;
+        int imageWidth = 700;
+        int estimatedLines = invoice.lines().size() * 2 + 8;
+        int imageHeight = padding * 2 + lineHeight * estimatedLines;
+
+        BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, imageWidth, imageHeight);
+
+        g.setColor(Color.BLACK);
+        g.setFont(INVOICE_FONT);
+
+        int y = padding;
+        g.drawString("INVOICE", padding, y); y += lineHeight;
+        g.drawString("Invoice No : " + invoice.invoiceNumber(), padding, y); y += lineHeight;
+        g.drawString("User       : " + invoice.username(), padding, y); y += lineHeight;
+        g.drawString("Date       : " + invoice.issuedAt(), padding, y); y += lineHeight;
+        g.drawLine(padding, y, imageWidth - padding, y); y += lineHeight;
+
+        // Table header
+        g.drawString("PRODUCT / (SIZE)", padding, y);
+        g.drawString("QTY", imageWidth - 200, y);
+        g.drawString("PRICE", imageWidth - 140, y);
+        g.drawString("TOTAL", imageWidth - 80, y);
+        y += lineHeight;
+        g.drawLine(padding, y, imageWidth - padding, y); y += lineHeight;
+
+        for (InvoiceLine line : invoice.lines()) {
+            List<String> wrappedLines = wrap(line.productName() + " (" + line.size() + ")", 50);
+            for (int j = 0; j < wrappedLines.size(); j++) {
+                g.drawString(wrappedLines.get(j), padding, y);
+                if (j == 0) {
+                    g.drawString(String.valueOf(line.quantity()), imageWidth - 200, y);
+                    g.drawString(String.format("%.2f", line.price()), imageWidth - 140, y);
+                    g.drawString(String.format("%.2f", line.total()), imageWidth - 80, y);
+                }
+                y += lineHeight;
+            }
+        }
+
+        g.drawLine(padding, y, imageWidth - padding, y);
+        y += lineHeight;
+
+        g.drawString("GRAND TOTAL: " + String.format("%.2f", invoice.totalAmount()), padding, y);
+        y += lineHeight; // move down for caption
+
+        g.setFont(INVOICE_CAPTION);
+        g.drawString("This invoice is valid only on the date of issue.", padding, y);
+
+        g.dispose();
+        return image;
+    }
+
+    // ==========================================================
+    // RECEIPT (cashier completes a sale)
+    // ==========================================================
+    private static BufferedImage drawReceipt(String invoiceNumber, String paymentMethod, SaleCommitPipeline.Receipt receipt) {
+        int width = 500;
+        int padding = 20;
+        int lineHeight = 25;
+
+        int estimatedProductLines = 0;
+        for (SaleCommitPipeline.Line line : receipt.lines()) {
+            estimatedProductLines += (int) Math.ceil(line.productName().length() / 32.0);
+        }
+        int totalLines = 15 + estimatedProductLines;
+        int height = padding * 2 + lineHeight * totalLines;
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        // Title
+        g.setColor(TITLE_BLUE);
+        g.setFont(RECEIPT_TITLE);
+        g.drawString("UNITRACK ", padding, padding + lineHeight);
+        g.setColor(TITLE_YELLOW);
+        g.drawString("STI College ProWare", padding, padding + lineHeight * 2);
+
+        int y = padding + lineHeight * 3;
+        g.setColor(Color.BLACK);
+        g.setFont(RECEIPT_FONT);
+
+        // Info
+        g.drawString("Receipt No : " + invoiceNumber, padding, y); y += lineHeight;
+        g.drawString("Customer   : " + receipt.customer(), padding, y); y += lineHeight;
+        g.drawString("Cashier    : " + receipt.cashier(), padding, y); y += lineHeight;
+        SimpleDateFormat sdf = new SimpleDateFormat("MMMM d, yyyy  hh:mm a");
+        g.drawString("Date       : " + sdf.format(receipt.createdAt()), padding, y); y += lineHeight + 5;
+
+        // Table header
+        g.drawLine(padding, y, width - padding, y); y += lineHeight;
+        g.setFont(RECEIPT_BOLD);
+        g.drawString("Product Name / (Size)", padding, y);
+        g.drawString("Qty", width - 160, y);
+        g.drawString("Amount", width - 80, y); y += lineHeight;
+        g.drawLine(padding, y, width - padding, y); y += lineHeight;
+
+        // Products
+        g.setFont(RECEIPT_FONT);
+        for (SaleCommitPipeline.Line line : receipt.lines()) {
+            List<String> chunks = wrap(line.productName() + " (" + line.size() + ")", 32);
+            for (int j = 0; j < chunks.size() - 1; j++) {
+                g.drawString(chunks.get(j), padding, y); y += lineHeight;
+            }
+            g.drawString(chunks.get(chunks.size() - 1), padding, y);
+            g.drawString(String.valueOf(line.quantity()), width - 150, y);
+            g.drawString("₱" + String.format("%.2f", line.total()), width - 80, y);
+            y += lineHeight;
+        }
+
+        g.drawLine(padding, y, width - padding, y); y += lineHeight;
+
+        // Payment + total
+        g.drawString("Payment Method: " + paymentMethod, padding, y); y += lineHeight;
+        g.drawLine(padding, y, width - padding, y); y += lineHeight;
+        g.setFont(RECEIPT_TOTAL);
+        g.drawString("TOTAL DUE:", padding, y);
+        g.drawString("₱" + String.format("%.2f", receipt.grandTotal()), width - 120, y); y += lineHeight * 2;
+
+        // Footer
+        g.setFont(RECEIPT_FONT);
+        g.setColor(FOOTER_GREEN);
+        g.drawString("We appreciate your purchase", padding, y);
+
+        g.dispose();
+        return image;
+    }
+
+    private static List<String> wrap(String text, int maxChars) {
+        List<String> lines = new ArrayList<>();
+        while (text.length() > maxChars) {
+            lines.add(text.substring(0, maxChars));
+            text = text.substring(maxChars);
+        }
+        lines.add(text);
+        return lines;
+    }
+
+    // ==========================================================
+    // STATS + SHUTDOWN
+    // ==========================================================
+    private static void record(long nanos) {
+        completed.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public static Stats stats() {
+        long n = completed.get();
+        return new Stats(workers.getQueue().size(), rendering.get(), n, failed.get(),
+                n == 0 ? 0 : totalNanos.get() / n / 1_000_000, maxNanos.get() / 1_000_000);
+    }
+
+    /** Stops taking new work and waits for queued images to be written; returns how many were left unwritten. */
+    public static int shutdown(long timeoutMs) {
+        workers.shutdown();
+        try {
+            if (workers.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return workers.shutdownNow().size() + rendering.get();
+    }
+}
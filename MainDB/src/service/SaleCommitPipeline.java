@@ -0,0 +1,133 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import dao.InventoryLogDao;
+import dao.QuotationDao;
+import dao.SalesDao;
+import dao.SalesRollupDao;
+
+/**
+ * Completes a pending quotation as a sale in one transaction with a fixed number of round trips:
+ * one joined load, one batch each for sales, inventory_log and the two sales rollups, the guarded
+ * status flip and the commit. A failure anywhere rolls the whole sale back. Stock is not touched:
+ * checkout already took the units off their product_sizes rows when the quotation was made.
+ * With an ASYNC {@link InventoryJournal} the log batch leaves the transaction and is queued after
+ * the commit instead.
+ */
+public final class SaleCommitPipeline {
+
+    public record Line(String productName, String size, int quantity, double total) {}
+
+    public record Receipt(int quotationId, String customer, String cashier, Timestamp createdAt,
+                          List<Line> lines, double grandTotal) {}
+
+    public record Stats(long commits, long aborted, long avgMicros, long maxMicros, double avgRoundTrips) {}
+
+    private static final AtomicLong commits = new AtomicLong();
+    private static final AtomicLong aborted = new AtomicLong();
+    private static final AtomicLong totalNanos = new AtomicLong();
+    private static final AtomicLong maxNanos = new AtomicLong();
+    private static final AtomicLong totalRoundTrips = new AtomicLong();
+
+    private SaleCommitPipeline() {}
+
+    /** Sells every line of the quotation. Returns null when the quotation is no longer pending. */
+    public static Receipt commit(Connection conn, String invoiceNumber, String paymentMethod, Session cashier)
+            throws SQLException {
+        long start = System.nanoTime();
+        int roundTrips = 0;
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            List<QuotationDao.SaleLine> lines = QuotationDao.loadForSale(conn, invoiceNumber);
+            roundTrips++;
+            if (lines.isEmpty()) {
+                conn.rollback();
+                aborted.incrementAndGet();
+                return null;
+            }
+
+            // The reserved units left products.stock at checkout; the log counts each product down
+            // from its stock before that reservation to where it stands now
+            Map<Integer, Integer> stockLeft = new HashMap<>();
+            for (QuotationDao.SaleLine line : lines) {
+                stockLeft.merge(line.productId(), line.stock() + line.quantity(), (stock, ignored) -> stock + line.quantity());
+            }
+
+            List<SalesDao.NewSale> sales = new ArrayList<>(lines.size());
+            List<InventoryLogDao.Change> changes = new ArrayList<>(lines.size());
+            List<Line> receiptLines = new ArrayList<>(lines.size());
+            double grandTotal = 0;
+            for (QuotationDao.SaleLine line : lines) {
+                int stock = stockLeft.get(line.productId());
+                int newStock = stock - line.quantity();
+                double total = line.price() * line.quantity();
+
+                stockLeft.put(line.productId(), newStock);
+                sales.add(new SalesDao.NewSale(line.productId(), line.quantity(), total));
+                changes.add(new InventoryLogDao.Change(line.productId(), "SALE", line.quantity(), stock, newStock));
+                receiptLines.add(new Line(line.name(), line.size(), line.quantity(), total));
+                grandTotal += total;
+            }
+
+            QuotationDao.SaleLine first = lines.get(0);
+            SalesDao.insertAll(conn, sales, paymentMethod, cashier.userId(), first.soldAt());
+            // Part of this transaction in SYNC mode; handed back for after the commit in ASYNC
+            List<InventoryLogDao.Stamped> deferred = InventoryJournal.write(conn, changes, Timestamp.valueOf(first.soldAt()));
+
+            // Dashboard rollups move with the sale, on the day it is recorded under, so they can never drift from it
+            LocalDate day = first.soldAt().toLocalDate();
+            SalesRollupDao.addProductSales(conn, day, sales);
+            SalesRollupDao.addPaymentSales(conn, day, paymentMethod, sales.size(), grandTotal);
+            roundTrips += deferred.isEmpty() ? 4 : 3;
+
+            // Usually a directory hit; a miss is one plain read that takes no locks
+            String customer = UserDirectory.nameOf(conn, first.customerId());
+            boolean completed = QuotationDao.markCompleted(conn, first.quotationId());
+            roundTrips++;
+            if (!completed) {
+                conn.rollback();
+                aborted.incrementAndGet();
+                return null;
+            }
+
+            conn.commit();
+            roundTrips++;
+            InventoryJournal.committed(deferred);
+
+            record(System.nanoTime() - start, roundTrips);
+            return new Receipt(first.quotationId(), customer, cashier.username(), first.createdAt(),
+                    receiptLines, grandTotal);
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            aborted.incrementAndGet();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void record(long nanos, int roundTrips) {
+        commits.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        totalRoundTrips.addAndGet(roundTrips);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public static Stats stats() {
+        long n = commits.get();
+        return new Stats(n, aborted.get(),
+                n == 0 ? 0 : totalNanos.get() / n / 1_000,
+                maxNanos.get() / 1_000,
+                n == 0 ? 0 : (double) totalRoundTrips.get() / n);
+    }
+}
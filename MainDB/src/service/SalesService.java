@@ -0,0 +1,90 @@
+package service;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import dao.QuotationDao;
+import dao.SalesRollupDao;
+import db.ConnectionPool;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * The cashier side: pending quotations, completing one as a sale through
+ * {@link SaleCommitPipeline} and the dashboard figures kept by the sales rollups.
+ */
+public final class SalesService {
+
+    public record CompleteSale(String invoiceNumber, String paymentMethod, Session cashier) {}
+
+    public record Completed(SaleCommitPipeline.Receipt receipt, CompletableFuture<File> receiptImage) {}
+
+    public record Dashboard(double week, double month, double year, List<SalesRollupDao.TopProduct> topProducts) {}
+
+    static final int TOP_PRODUCTS = 5;
+
+    private static final Histogram PROCESS_QUOTATION = Metrics.histogram("processPendingQuotation");
+    private static final Histogram DASHBOARD = Metrics.histogram("dashboard");
+
+    private SalesService() {}
+
+    public static List<QuotationDao.Pending> pending(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return QuotationDao.pending(conn);
+        }
+    }
+
+    /** Returns null when the quotation is no longer pending. */
+    public static Completed complete(ConnectionPool pool, CompleteSale request) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String method = request.paymentMethod() == null ? "" : request.paymentMethod().trim();
+            if (!method.equalsIgnoreCase("Cash") && !method.equalsIgnoreCase("GCash")) {
+                throw new IllegalArgumentException("Invalid input! Enter Cash or GCash.");
+            }
+
+            SaleCommitPipeline.Receipt receipt;
+            try (Connection conn = pool.getConnection()) {
+                receipt = SaleCommitPipeline.commit(conn, request.invoiceNumber(), method, request.cashier());
+            }
+            if (receipt == null) return null;
+            return new Completed(receipt, ReceiptRenderer.renderReceipt(request.invoiceNumber(), method, receipt));
+        } finally {
+            PROCESS_QUOTATION.recordSince(start);
+        }
+    }
+
+    public static Dashboard dashboard(ConnectionPool pool) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = pool.getConnection()) {
+            Map<SalesRollupDao.Grain, Double> revenue = SalesRollupDao.revenueNow(conn);
+            return new Dashboard(
+                    revenue.getOrDefault(SalesRollupDao.Grain.WEEK, 0.0),
+                    revenue.getOrDefault(SalesRollupDao.Grain.MONTH, 0.0),
+                    revenue.getOrDefault(SalesRollupDao.Grain.YEAR, 0.0),
+                    SalesRollupDao.topProducts(conn, TOP_PRODUCTS));
+        } finally {
+            DASHBOARD.recordSince(start);
+        }
+    }
+
+    /** Fills the dashboard rollups from existing sales the first time; returns whether it did. */
+    public static boolean prepareRollups(Connection conn) throws SQLException {
+        if (SalesRollupDao.isPopulated(conn)) return false;
+
+        conn.setAutoCommit(false);
+        try {
+            SalesRollupDao.backfill(conn);
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import dao.ProductDao;
+import db.ConnectionPool;
+
+/**
+ * In-memory inverted index over active products. Names and category names are split into
+ * lower-case words and product codes kept whole; each token points at a sorted int array of
+ * postings, the product id and the weight of the field it came from packed together. A query matches a product when every query term matches one of its
+ * tokens exactly or as a prefix, or (words of four letters or more) within one typo: a wrong,
+ * missing, extra or swapped letter. Typos are found through a table of every word with one letter
+ * deleted, so a lookup never scans the vocabulary.
+ *
+ * Queries score and intersect those arrays without touching the products themselves; only the
+ * few that make the top of the list are looked up, so even a term as common as "polo" stays a
+ * matter of merging plain arrays.
+ *
+ * Built once at startup and kept current by the catalog write paths. Reads take no locks; writers
+ * are serialised and swap in fresh posting arrays, so a reader sees each token either before or
+ * after a change.
+ */
+public final class SearchIndex {
+
+    /** A product that matched; higher scores rank exact code and name matches above prefix and fuzzy ones. */
+    public record Hit(ProductDao.Product product, String category, int score) {}
+
+    // A posting is id << FIELD_BITS | field weight
+    private static final int FIELD_BITS = 3;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+    private static final int CODE = 6;
+    private static final int NAME = 3;
+    private static final int CATEGORY = 1;
+
+    private static final int EXACT = 4;
+    private static final int PREFIX = 2;
+    private static final int FUZZY = 1;
+
+    private static final int MIN_PREFIX = 2;
+    private static final int MIN_FUZZY = 4;
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingInt(Hit::score).reversed()
+            .thenComparing(hit -> hit.product().name(), String.CASE_INSENSITIVE_ORDER);
+
+    /** One indexed product: its tokens and the weight of the field each came from. */
+    private record Doc(ProductDao.Product product, String category, String[] tokens, int[] weights) {}
+
+    /** Products one query term matched, ascending by id, with the term's score for each. */
+    private record Matches(int[] ids, int[] scores) {}
+
+    private static final int[] NONE = new int[0];
+
+    private static volatile Doc[] docs = new Doc[1024];
+    private static volatile int count;
+    private static final ConcurrentSkipListMap<String, int[]> words = new ConcurrentSkipListMap<>();
+    private static final ConcurrentSkipListMap<String, int[]> codes = new ConcurrentSkipListMap<>();
+    private static final Map<String, String[]> deletions = new ConcurrentHashMap<>();
+
+    private SearchIndex() {}
+
+    // ==========================================================
+    // BUILD / UPDATE
+    // ==========================================================
+    /** Indexes every active product; returns how many. */
+    public static synchronized int build(ConnectionPool pool) throws SQLException {
+        List<ProductDao.Searchable> products;
+        try (Connection conn = pool.getConnection()) {
+            products = ProductDao.searchable(conn);
+        }
+
+        int maxId = 0;
+        for (ProductDao.Searchable p : products) maxId = Math.max(maxId, p.product().id());
+        Doc[] built = new Doc[Math.max(1024, maxId + 1)];
+        Map<String, List<Integer>> wordPostings = new HashMap<>();
+        Map<String, List<Integer>> codePostings = new HashMap<>();
+        for (ProductDao.Searchable p : products) {
+            Doc doc = doc(p.product(), p.category());
+            built[p.product().id()] = doc;
+            for (int i = 0; i < doc.tokens().length; i++) {
+                Map<String, List<Integer>> target = doc.weights()[i] == CODE ? codePostings : wordPostings;
+                target.computeIfAbsent(doc.tokens()[i], t -> new ArrayList<>()).add(posting(p.product().id(), doc.weights()[i]));
+            }
+        }
+
+        words.clear();
+        codes.clear();
+        deletions.clear();
+        wordPostings.forEach((token, postings) -> words.put(token, sorted(postings)));
+        codePostings.forEach((token, postings) -> codes.put(token, sorted(postings)));
+        for (String word : words.keySet()) rememberDeletions(word);
+        docs = built;
+        count = products.size();
+        return count;
+    }
+
+    /** Indexes a product again, or drops it when it is no longer active. */
+    static void refresh(ConnectionPool pool, int productId) throws SQLException {
+        ProductDao.Searchable current;
+        try (Connection conn = pool.getConnection()) {
+            current = ProductDao.searchable(conn, productId);
+        }
+        if (current == null) remove(productId);
+        else put(current.product(), current.category());
+    }
+
+    static synchronized void put(ProductDao.Product product, String category) {
+        remove(product.id());
+        Doc doc = doc(product, category);
+        for (int i = 0; i < doc.tokens().length; i++) {
+            String token = doc.tokens()[i];
+            NavigableMap<String, int[]> target = doc.weights()[i] == CODE ? codes : words;
+            int[] postings = target.getOrDefault(token, NONE);
+            if (postings.length == 0 && target == words) rememberDeletions(token);
+            target.put(token, with(postings, posting(product.id(), doc.weights()[i])));
+        }
+
+        Doc[] current = docs;
+        if (product.id() >= current.length) current = Arrays.copyOf(current, Math.max(current.length * 2, product.id() + 1));
+        current[product.id()] = doc;
+        docs = current;
+        count++;
+    }
+
+    static synchronized void remove(int productId) {
+        Doc[] current = docs;
+        Doc doc = productId < current.length ? current[productId] : null;
+        if (doc == null) return;
+
+        for (int i = 0; i < doc.tokens().length; i++) {
+            String token = doc.tokens()[i];
+            NavigableMap<String, int[]> target = doc.weights()[i] == CODE ? codes : words;
+            int[] postings = without(target.getOrDefault(token, NONE), posting(productId, doc.weights()[i]));
+            if (postings.length > 0) {
+                target.put(token, postings);
+            } else {
+                target.remove(token);
+                if (target == words) forgetDeletions(token);
+            }
+        }
+        current[productId] = null;
+        count--;
+    }
+
+    static synchronized void renameCategory(int categoryId, String name) {
+        for (Doc doc : docs) {
+            if (doc != null && doc.product().categoryId() == categoryId) put(doc.product(), name);
+        }
+    }
+
+    public static int size() {
+        return count;
+    }
+
+    private static Doc doc(ProductDao.Product product, String category) {
+        // Weakest field first so a word in both the category and the name counts as a name word
+        Map<String, Integer> fields = new HashMap<>();
+        for (String token : tokenize(category)) fields.put(token, CATEGORY);
+        for (String token : tokenize(product.name())) fields.put(token, NAME);
+        fields.put(product.code().toLowerCase(), CODE);
+
+        String[] tokens = new String[fields.size()];
+        int[] weights = new int[fields.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> e : fields.entrySet()) {
+            tokens[i] = e.getKey();
+            weights[i++] = e.getValue();
+        }
+        return new Doc(product, category == null ? "" : category, tokens, weights);
+    }
+
+    private static void rememberDeletions(String word) {
+        if (word.length() < MIN_FUZZY - 1) return;
+        for (String variant : deletionsOf(word)) {
+            deletions.merge(variant, new String[] { word }, (old, add) -> {
+                for (String w : old) if (w.equals(word)) return old;
+                String[] grown = Arrays.copyOf(old, old.length + 1);
+                grown[old.length] = word;
+                return grown;
+            });
+        }
+    }
+
+    private static void forgetDeletions(String word) {
+        if (word.length() < MIN_FUZZY - 1) return;
+        for (String variant : deletionsOf(word)) {
+            deletions.computeIfPresent(variant, (v, old) -> {
+                String[] kept = Arrays.stream(old).filter(w -> !w.equals(word)).toArray(String[]::new);
+                return kept.length == 0 ? null : kept;
+            });
+        }
+    }
+
+    // ==========================================================
+    // QUERY
+    // ==========================================================
+    public static List<Hit> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) return List.of();
+
+        // Every term has to match and the scores add up; the smallest list goes first so each
+        // merge only gets cheaper
+        List<Matches> perTerm = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Matches matches = matches(term);
+            if (matches.ids().length == 0) return List.of();
+            perTerm.add(matches);
+        }
+        perTerm.sort(Comparator.comparingInt(m -> m.ids().length));
+        Matches result = perTerm.get(0);
+        for (int i = 1; i < perTerm.size() && result.ids().length > 0; i++) result = intersect(result, perTerm.get(i));
+
+        // Top hits by score, then lowest id, kept as packed longs in a min-heap so the thousands of
+        // matches a common word brings in cost no allocation and no name comparisons
+        int[] ids = result.ids();
+        int[] scores = result.scores();
+        long[] heap = new long[Math.min(limit, ids.length)];
+        int size = 0;
+        for (int i = 0; i < ids.length; i++) {
+            long key = (long) scores[i] << 32 | (Integer.MAX_VALUE - ids[i]);
+            if (size < heap.length) {
+                heap[size] = key;
+                siftUp(heap, size++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, size);
+            }
+        }
+
+        Doc[] snapshot = docs;
+        List<Hit> hits = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int id = Integer.MAX_VALUE - (int) heap[i];
+            Doc doc = id < snapshot.length ? snapshot[id] : null;
+            if (doc != null) hits.add(new Hit(doc.product(), doc.category(), (int) (heap[i] >>> 32)));
+        }
+        hits.sort(RANKING);
+        return hits;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent] <= heap[i]) return;
+            long t = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = t;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) smallest = left;
+            if (right < size && heap[right] < heap[smallest]) smallest = right;
+            if (smallest == i) return;
+            long t = heap[smallest];
+            heap[smallest] = heap[i];
+            heap[i] = t;
+            i = smallest;
+        }
+    }
+
+    // Every product the term matches, scored by its best token: exact, prefix or typo times the field weight
+    private static Matches matches(String term) {
+        List<int[]> lists = new ArrayList<>();
+        List<Integer> kinds = new ArrayList<>();
+        addIfPresent(lists, kinds, words.get(term), EXACT);
+        addIfPresent(lists, kinds, codes.get(term), EXACT);
+        if (term.length() >= MIN_PREFIX) {
+            for (int[] postings : words.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                addIfPresent(lists, kinds, postings, PREFIX);
+            }
+            for (int[] postings : codes.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                addIfPresent(lists, kinds, postings, PREFIX);
+            }
+        }
+        if (term.length() >= MIN_FUZZY) {
+            for (String word : typoNeighbours(term)) addIfPresent(lists, kinds, words.get(word), FUZZY);
+        }
+        if (lists.isEmpty()) return new Matches(NONE, NONE);
+
+        if (lists.size() == 1) {
+            int[] postings = lists.get(0);
+            int kind = kinds.get(0);
+            int[] ids = new int[postings.length];
+            int[] scores = new int[postings.length];
+            for (int i = 0; i < postings.length; i++) {
+                ids[i] = postings[i] >>> FIELD_BITS;
+                scores[i] = kind * (postings[i] & FIELD_MASK);
+            }
+            return new Matches(ids, scores);
+        }
+
+        // Several tokens: id and score packed into one long, so a single sort lines up each
+        // product's entries with its best score last
+        int total = 0;
+        for (int[] postings : lists) total += postings.length;
+        long[] packed = new long[total];
+        int at = 0;
+        for (int l = 0; l < lists.size(); l++) {
+            int kind = kinds.get(l);
+            for (int posting : lists.get(l)) {
+                packed[at++] = (long) (posting >>> FIELD_BITS) << 32 | kind * (posting & FIELD_MASK);
+            }
+        }
+        Arrays.sort(packed);
+
+        int[] ids = new int[total];
+        int[] scores = new int[total];
+        int n = 0;
+        for (long p : packed) {
+            int id = (int) (p >>> 32);
+            if (n == 0 || ids[n - 1] != id) ids[n++] = id;
+            scores[n - 1] = (int) p;
+        }
+        return new Matches(Arrays.copyOf(ids, n), Arrays.copyOf(scores, n));
+    }
+
+    private static Matches intersect(Matches a, Matches b) {
+        int[] ids = new int[Math.min(a.ids().length, b.ids().length)];
+        int[] scores = new int[ids.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.ids().length && j < b.ids().length) {
+            int x = a.ids()[i];
+            int y = b.ids()[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                ids[n] = x;
+                scores[n++] = a.scores()[i++] + b.scores()[j++];
+            }
+        }
+        return new Matches(Arrays.copyOf(ids, n), Arrays.copyOf(scores, n));
+    }
+
+    private static List<String> typoNeighbours(String term) {
+        List<String> found = new ArrayList<>();
+        addAll(found, deletions.get(term));
+        for (String variant : deletionsOf(term)) {
+            if (words.containsKey(variant)) found.add(variant);
+            addAll(found, deletions.get(variant));
+        }
+        // Exact and prefix matches are already counted at a better score
+        found.removeIf(word -> word.startsWith(term) || !withinOneEdit(term, word));
+        return found.stream().distinct().toList();
+    }
+
+    // ==========================================================
+    // TOKENS, POSTINGS AND EDIT DISTANCE
+    // ==========================================================
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        for (String part : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!part.isEmpty()) tokens.add(part);
+        }
+        return tokens;
+    }
+
+    private static List<String> deletionsOf(String token) {
+        List<String> variants = new ArrayList<>(token.length());
+        for (int i = 0; i < token.length(); i++) {
+            variants.add(token.substring(0, i) + token.substring(i + 1));
+        }
+        return variants;
+    }
+
+    // One substitution, insertion, deletion or swap of neighbouring letters
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) return false;
+
+        int i = 0;
+        while (i < Math.min(la, lb) && a.charAt(i) == b.charAt(i)) i++;
+        if (i == la && i == lb) return true;
+
+        if (la == lb) {
+            if (a.regionMatches(i + 1, b, i + 1, la - i - 1)) return true;
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.regionMatches(i + 2, b, i + 2, la - i - 2);
+        }
+        return la > lb ? a.regionMatches(i + 1, b, i, lb - i) : a.regionMatches(i, b, i + 1, la - i);
+    }
+
+    private static int posting(int productId, int weight) {
+        return productId << FIELD_BITS | weight;
+    }
+
+    private static int[] sorted(List<Integer> postings) {
+        int[] sorted = postings.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static int[] with(int[] postings, int posting) {
+        int at = Arrays.binarySearch(postings, posting);
+        if (at >= 0) return postings;
+        at = -at - 1;
+        int[] grown = new int[postings.length + 1];
+        System.arraycopy(postings, 0, grown, 0, at);
+        grown[at] = posting;
+        System.arraycopy(postings, at, grown, at + 1, postings.length - at);
+        return grown;
+    }
+
+    private static int[] without(int[] postings, int posting) {
+        int at = Arrays.binarySearch(postings, posting);
+        if (at < 0) return postings;
+        int[] shrunk = new int[postings.length - 1];
+        System.arraycopy(postings, 0, shrunk, 0, at);
+        System.arraycopy(postings, at + 1, shrunk, at, postings.length - at - 1);
+        return shrunk;
+    }
+
+    private static void addIfPresent(List<int[]> lists, List<Integer> kinds, int[] postings, int kind) {
+        if (postings == null) return;
+        lists.add(postings);
+        kinds.add(kind);
+    }
+
+    private static void addAll(List<String> into, String[] from) {
+        if (from != null) into.addAll(Arrays.asList(from));
+    }
+}
@@ -0,0 +1,18 @@
+package service;
+
+import dao.UserDao;
+
+/**
+ * Who is at the terminal, fixed at login and handed to every menu and service that acts for them,
+ * so nothing has to look the user up again. Roles are always upper case.
+ */
+public record Session(int userId, String username, String role) {
+
+    public Session {
+        role = role.toUpperCase();
+    }
+
+    static Session of(UserDao.User user) {
+        return new Session(user.id(), user.username(), user.role());
+    }
+}
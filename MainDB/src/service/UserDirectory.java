@@ -0,0 +1,40 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import dao.UserDao;
+
+/**
+ * Usernames by id for receipts and invoices. Logins fill it, a miss costs one primary-key lookup
+ * and user edits drop the entry. Bounded by -Dusms.users.cacheSize; once full it simply starts over.
+ */
+public final class UserDirectory {
+
+    static final int MAX_ENTRIES = Integer.getInteger("usms.users.cacheSize", 5_000);
+
+    private static final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+    private UserDirectory() {}
+
+    /** Username for an id, or "Unknown User" when there is no such user. */
+    public static String nameOf(Connection conn, int userId) throws SQLException {
+        String cached = names.get(userId);
+        if (cached != null) return cached;
+
+        String loaded = UserDao.usernameOf(conn, userId);
+        if (loaded == null) return "Unknown User";
+        remember(userId, loaded);
+        return loaded;
+    }
+
+    static void remember(int userId, String username) {
+        if (names.size() >= MAX_ENTRIES) names.clear();
+        names.put(userId, username);
+    }
+
+    static void forget(int userId) {
+        names.remove(userId);
+    }
+}
@@ -0,0 +1,107 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import dao.UserDao;
+import db.ConnectionPool;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * Logins, password changes and the admin's user maintenance. Expected refusals come back as enum
+ * outcomes; malformed input is rejected with an IllegalArgumentException.
+ */
+public final class UserService {
+
+    public record ChangePassword(int userId, String current, String next, String confirmation) {}
+
+    public enum PasswordChange { CHANGED, USER_NOT_FOUND, WRONG_PASSWORD, MISMATCH, TOO_SHORT }
+
+    public record NewUser(String username, String password, String role) {}
+
+    /** Blank fields keep their current value. */
+    public record UserEdit(int userId, String username, String password, String role) {}
+
+    public enum Deactivation { DEACTIVATED, SELF, WRONG_PASSWORD }
+
+    static final int MIN_PASSWORD_LENGTH = 6;
+    static final String ROLES = "USER|PRODUCTMANAGER|SALESMANAGER|ADMIN";
+
+    private static final Histogram LOGIN = Metrics.histogram("login");
+
+    private UserService() {}
+
+    /** The session of the active user with these credentials, or null. */
+    public static Session login(ConnectionPool pool, String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = pool.getConnection()) {
+            UserDao.User user = UserDao.authenticate(conn, username, password);
+            if (user == null) return null;
+            UserDirectory.remember(user.id(), user.username());
+            return Session.of(user);
+        } finally {
+            LOGIN.recordSince(start);
+        }
+    }
+
+    public static PasswordChange changePassword(ConnectionPool pool, ChangePassword request) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            String stored = UserDao.passwordOf(conn, request.userId());
+            if (stored == null) return PasswordChange.USER_NOT_FOUND;
+            if (!stored.equals(request.current())) return PasswordChange.WRONG_PASSWORD;
+            if (!request.next().equals(request.confirmation())) return PasswordChange.MISMATCH;
+            if (request.next().length() < MIN_PASSWORD_LENGTH) return PasswordChange.TOO_SHORT;
+
+            return UserDao.updatePassword(conn, request.userId(), request.next())
+                    ? PasswordChange.CHANGED : PasswordChange.USER_NOT_FOUND;
+        }
+    }
+
+    public static void addUser(ConnectionPool pool, NewUser request) throws SQLException {
+        if (request.username() == null || request.username().isBlank()) {
+            throw new IllegalArgumentException("Username cannot be empty!");
+        }
+        if (request.password() == null || request.password().isBlank()) {
+            throw new IllegalArgumentException("Password cannot be empty!");
+        }
+        if (request.role() == null || !request.role().matches(ROLES)) throw new IllegalArgumentException("Invalid role!");
+
+        try (Connection conn = pool.getConnection()) {
+            UserDao.insert(conn, request.username(), request.password(), request.role());
+        }
+    }
+
+    /** Returns false when no such user exists. */
+    public static boolean editUser(ConnectionPool pool, UserEdit request) throws SQLException {
+        String role = request.role() == null ? "" : request.role();
+        if (!role.isEmpty() && !role.matches(ROLES)) throw new IllegalArgumentException("Invalid role!");
+
+        try (Connection conn = pool.getConnection()) {
+            UserDirectory.forget(request.userId());
+            return UserDao.update(conn, request.userId(), nullToBlank(request.username()),
+                    nullToBlank(request.password()), role);
+        }
+    }
+
+    /** Soft-deletes a user once the acting admin's password checks out; admins cannot remove themselves. */
+    public static Deactivation deactivate(ConnectionPool pool, int adminId, String adminPassword, int userId)
+            throws SQLException {
+        if (userId == adminId) return Deactivation.SELF;
+        try (Connection conn = pool.getConnection()) {
+            String stored = UserDao.passwordOf(conn, adminId);
+            if (stored == null || !stored.equals(adminPassword)) return Deactivation.WRONG_PASSWORD;
+            UserDao.setActiveStatus(conn, userId, 0);
+            return Deactivation.DEACTIVATED;
+        }
+    }
+
+    public static boolean recover(ConnectionPool pool, int userId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return UserDao.setActiveStatus(conn, userId, 1);
+        }
+    }
+
+    private static String nullToBlank(String value) {
+        return value == null ? "" : value;
+    }
+}
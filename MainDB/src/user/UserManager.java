@@ -1,23 +1,21 @@
 package user;
 
 import java.sql.*;
-import java.util.Scanner;
+import db.ConnectionPool;
+import main.Terminal;
+import service.Session;
+import service.UserService;
 
 public class UserManager {
-    static Scanner sc = new Scanner(System.in);
     static final String RESET = "\u001B[0m";
     static final String GREEN = "\u001B[32m";
     static final String RED = "\u001B[31m";
     static final String YELLOW = "\u001B[33m";
     static final String CYAN = "\u001B[36m";
 
-    public static Object[] login(Connection conn) {
-        boolean loggedIn = false;
-        int userId = 0;
-        String loggedUser = "";
-        String userRole = "";
-
-        while (!loggedIn) {
+    /** Prompts until the credentials check out; null when the user backs out. */
+    public static Session login(ConnectionPool pool) {
+        while (true) {
             clearScreen();
             System.out.println("╔════════════════════════════════════════════════════╗");
             System.out.println("║                   ACCOUNT LOGIN                    ║");
@@ -27,38 +25,30 @@ public class UserManager {
 
             
             System.out.print("Enter username ➤ ");
-            String username = sc.nextLine().trim();
+            String username = Terminal.in().nextLine().trim();
             if (username.equalsIgnoreCase("back")) return null;
 
             System.out.print("Enter password ➤ ");
-            String password = sc.nextLine().trim();
+            String password = Terminal.in().nextLine().trim();
             if (password.equalsIgnoreCase("back")) return null;
 
             System.out.println(CYAN + "\nVerifying credentials..." + RESET);
 
-            String sql = "SELECT * FROM users WHERE username=? AND password=? AND active_status=1";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, username);
-                ps.setString(2, password);
-                ResultSet rs = ps.executeQuery();
+            try {
+                Session session = UserService.login(pool, username, password);
 
-                if (rs.next()) {
-                    loggedIn = true;
-                    userId = rs.getInt("id");
-                    loggedUser = rs.getString("username");
-                    userRole = rs.getString("role");
-                    System.out.println(GREEN + "\nLogin successful! Welcome, " + loggedUser + RESET);
-                } else {
-                    System.out.println(RED + "\nInvalid username or password!" + RESET);
+                if (session != null) {
+                    System.out.println(GREEN + "\nLogin successful! Welcome, " + session.username() + RESET);
+                    pause();
+                    return session;
                 }
+                System.out.println(RED + "\nInvalid username or password!" + RESET);
                 pause();
             } catch (SQLException e) {
                 System.out.println(RED + "Database error: " + e.getMessage() + RESET);
                 pause();
             }
         }
-
-        return new Object[] { userId, loggedUser, userRole, true };
     }
 
     public static void userMenu(Connection conn, int loggedUserId, String loggedUserRole) {
@@ -76,7 +66,7 @@ public class UserManager {
             System.out.println("[X] Back");
             System.out.print("\nEnter choice ➤ ");
 
-            input = sc.nextLine().trim().toUpperCase();
+            input = Terminal.in().nextLine().trim().toUpperCase();
 
             switch (input) {
                 case "2" -> addUser(conn);
@@ -116,11 +106,11 @@ public class UserManager {
             System.out.println(YELLOW + "Type 'back' at any time to go back.\n" + RESET);
 
             System.out.print("Username: ");
-            String username = sc.nextLine().trim();
+            String username = Terminal.in().nextLine().trim();
             if (username.equalsIgnoreCase("back")) return;
 
             System.out.print("Password: ");
-            String password = sc.nextLine().trim();
+            String password = Terminal.in().nextLine().trim();
             if (password.equalsIgnoreCase("back")) return;
 
             String role = "";
@@ -131,7 +121,7 @@ public class UserManager {
                 System.out.println("3. SALESMANAGER");
                 System.out.println("4. USER");
                 System.out.print("Enter choice (1-4): ");
-                String input = sc.nextLine().trim();
+                String input = Terminal.in().nextLine().trim();
                 if (input.equalsIgnoreCase("back")) return;
 
                 switch (input) {
@@ -227,7 +217,7 @@ public class UserManager {
             }
 
             System.out.print("\nEnter user ID to edit: ");
-            String input = sc.nextLine().trim();
+            String input = Terminal.in().nextLine().trim();
             if (input.equalsIgnoreCase("back")) return;
 
             int id;
@@ -250,7 +240,7 @@ public class UserManager {
 
                     // ADMIN verification
                     System.out.print("Enter YOUR ADMIN password to continue: ");
-                    String adminPass = sc.nextLine().trim();
+                    String adminPass = Terminal.in().nextLine().trim();
                     String adminVerifySql = "SELECT id FROM users WHERE id=? AND password=? AND role='ADMIN' AND active_status=1";
                     try (PreparedStatement adminPs = conn.prepareStatement(adminVerifySql)) {
                         adminPs.setInt(1, adminId);
@@ -265,15 +255,15 @@ public class UserManager {
 
                     // EDIT FIELDS
                     System.out.print("New username (leave blank to keep '" + currentUsername + "'): ");
-                    String newUsername = sc.nextLine().trim();
+                    String newUsername = Terminal.in().nextLine().trim();
                     if (newUsername.isEmpty()) newUsername = currentUsername;
 
                     System.out.print("New password (leave blank to keep current): ");
-                    String newPassword = sc.nextLine().trim();
+                    String newPassword = Terminal.in().nextLine().trim();
                     if (newPassword.isEmpty()) newPassword = currentPassword;
 
                     System.out.print("New role (leave blank to keep '" + currentRole + "'): ");
-                    String newRole = sc.nextLine().trim().toUpperCase();
+                    String newRole = Terminal.in().nextLine().trim().toUpperCase();
                     if (newRole.isEmpty()) newRole = currentRole;
 
                     String updateSql = "UPDATE users SET username=?, password=?, role=? WHERE id=?";
@@ -316,7 +306,7 @@ public class UserManager {
             }
 
             System.out.print("\nEnter user ID to delete: ");
-            String input = sc.nextLine().trim();
+            String input = Terminal.in().nextLine().trim();
             if (input.equalsIgnoreCase("back")) return;
 
             int id;
@@ -337,7 +327,7 @@ public class UserManager {
 
                     // ADMIN verification
                     System.out.print("Enter YOUR ADMIN password to confirm deletion: ");
-                    String adminPass = sc.nextLine().trim();
+                    String adminPass = Terminal.in().nextLine().trim();
                     String adminVerifySql = "SELECT id FROM users WHERE id=? AND password=? AND role='ADMIN' AND active_status=1";
                     try (PreparedStatement adminPs = conn.prepareStatement(adminVerifySql)) {
                         adminPs.setInt(1, adminId);
@@ -352,7 +342,7 @@ public class UserManager {
 
                     // CONFIRM DELETE
                     System.out.print(YELLOW + "Are you sure you want to delete user '" + username + "'? (yes/no): " + RESET);
-                    String confirm = sc.nextLine().trim();
+                    String confirm = Terminal.in().nextLine().trim();
                     if (!confirm.equalsIgnoreCase("yes")) {
                         System.out.println(YELLOW + "Deletion cancelled." + RESET);
                         pause();
@@ -375,8 +365,8 @@ public class UserManager {
         pause();
     }
     
-    public static void changePassword(Connection conn, int userId, boolean loggedIn) {
-        if (!loggedIn) {
+    public static void changePassword(ConnectionPool pool, Session session) {
+        if (session == null) {
             System.out.println(YELLOW + "You must be logged in to change your password." + RESET);
             pause();
             return;
@@ -388,59 +378,22 @@ public class UserManager {
             System.out.println("║          CHANGE PASSWORD         ║");
             System.out.println("╚══════════════════════════════════╝");
 
-            // Get current password from DB
-            String sql = "SELECT password FROM users WHERE id = ?";
-            String currentPasswordInDB = null;
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, userId);
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    currentPasswordInDB = rs.getString("password");
-                } else {
-                    System.out.println(RED + "User not found!" + RESET);
-                    pause();
-                    return;
-                }
-            }
-
-            // Current password check
             System.out.print("Enter your current password: ");
-            String currentInput = sc.nextLine().trim();
-            if (!currentInput.equals(currentPasswordInDB)) {
-                System.out.println(RED + "Incorrect current password!" + RESET);
-                pause();
-                return;
-            }
+            String currentInput = Terminal.in().nextLine().trim();
 
             // New password input and confirmation
             System.out.print("Enter new password: ");
-            String newPassword1 = sc.nextLine().trim();
+            String newPassword1 = Terminal.in().nextLine().trim();
             System.out.print("Re-enter new password: ");
-            String newPassword2 = sc.nextLine().trim();
-
-            if (!newPassword1.equals(newPassword2)) {
-                System.out.println(RED + "Passwords do not match! Try again." + RESET);
-                pause();
-                return;
-            }
-
-            if (newPassword1.length() < 6) {
-                System.out.println(RED + "Password too short! Minimum 6 characters." + RESET);
-                pause();
-                return;
-            }
-
-            // Update password in DB
-            String updateSql = "UPDATE users SET password = ? WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
-                ps.setString(1, newPassword1);
-                ps.setInt(2, userId);
-                int updated = ps.executeUpdate();
-                if (updated > 0) {
-                    System.out.println(GREEN + "Password changed successfully!" + RESET);
-                } else {
-                    System.out.println(RED + "Failed to change password!" + RESET);
-                }
+            String newPassword2 = Terminal.in().nextLine().trim();
+
+            switch (UserService.changePassword(pool,
+                    new UserService.ChangePassword(session.userId(), currentInput, newPassword1, newPassword2))) {
+                case CHANGED -> System.out.println(GREEN + "Password changed successfully!" + RESET);
+                case USER_NOT_FOUND -> System.out.println(RED + "User not found!" + RESET);
+                case WRONG_PASSWORD -> System.out.println(RED + "Incorrect current password!" + RESET);
+                case MISMATCH -> System.out.println(RED + "Passwords do not match! Try again." + RESET);
+                case TOO_SHORT -> System.out.println(RED + "Password too short! Minimum 6 characters." + RESET);
             }
 
         } catch (SQLException e) {
@@ -457,7 +410,7 @@ public class UserManager {
 
     static void pause() {
         System.out.print("Press Enter to continue...");
-        sc.nextLine();
+        Terminal.in().nextLine();
     }
 }
 